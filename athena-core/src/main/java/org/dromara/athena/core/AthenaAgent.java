@@ -17,30 +17,120 @@
 
 package org.dromara.athena.core;
 
+import java.io.IOException;
+import java.lang.instrument.ClassFileTransformer;
 import java.lang.instrument.Instrumentation;
+import java.nio.file.Path;
 import org.dromara.athena.core.config.AgentConfig;
 import org.dromara.athena.core.config.AgentParser;
 import org.dromara.athena.core.transformer.MetricsClassTransformer;
+import org.dromara.athena.core.transformer.ReporterProbeIds;
 import org.dromara.athena.core.utils.YamlUtils;
+import org.dromara.athena.core.weaver.WovenRegistrations;
 import org.dromara.athena.spi.MetricsProvider;
 
 /**
  * The type Athena agent.
+ * It is started with the jvm through {@code -javaagent}, or attached to a running jvm by the {@link AttachLauncher}.
+ * An attached agent, or one started with {@code hotReload: true}, instruments through a {@link ConfigReloader} that never
+ * adds members to a class, so attaching it again with {@code reload} retransforms the classes whose metrics changed in
+ * the config file, and an attached agent is removed with {@code detach}, restoring the classes to their original bytecode.
  *
  * @author xiaoyu
  */
 public class AthenaAgent {
     
+    private static ClassFileTransformer transformer;
+    
+    private static ConfigReloader reloader;
+    
+    private static boolean attached;
+    
     /**
      * Premain.
      *
      * @param args            the args
      * @param instrumentation the instrumentation
      */
-    public static void premain(final String args, final Instrumentation instrumentation) {
+    public static synchronized void premain(final String args, final Instrumentation instrumentation) {
         AgentParser parser = new AgentParser(args);
         AgentConfig agentConfig = YamlUtils.createAgentConfig(parser.getConfigPath());
         MetricsProvider.INSTANCE.registerConfigMap(agentConfig.getConfigMap());
-        instrumentation.addTransformer(new MetricsClassTransformer(agentConfig), instrumentation.isRetransformClassesSupported());
+        Path wovenRegistrations = WovenRegistrations.getFile(agentConfig.getConfigMap());
+        if (null != wovenRegistrations) {
+            // the classes were woven at build time, only the ids they were woven with have to be handed out again.
+            try {
+                WovenRegistrations.replay(wovenRegistrations, agentConfig, ReporterProbeIds.INSTANCE);
+            } catch (IOException ex) {
+                throw new IllegalStateException("can not read the woven registrations " + wovenRegistrations, ex);
+            }
+            return;
+        }
+        if (ConfigReloader.isHotReload(agentConfig.getConfigMap()) && instrumentation.isRetransformClassesSupported()) {
+            reloader = new ConfigReloader(instrumentation, parser.getConfigPath(), agentConfig);
+            reloader.install();
+            reloader.getTransformStats().scheduleSummary(agentConfig.getConfigMap());
+            return;
+        }
+        MetricsClassTransformer metricsTransformer = new MetricsClassTransformer(agentConfig);
+        transformer = metricsTransformer;
+        // the classes get probe helpers and fields, a retransformation has to start from the instrumented bytecode to keep them.
+        instrumentation.addTransformer(transformer, false);
+        metricsTransformer.getTransformStats().scheduleSummary(agentConfig.getConfigMap());
+    }
+    
+    /**
+     * Agentmain, attaches the agent to a running jvm, reloads its config with the {@code reload} argument,
+     * or detaches it with the {@code detach} argument.
+     *
+     * @param args            the args
+     * @param instrumentation the instrumentation
+     */
+    public static synchronized void agentmain(final String args, final Instrumentation instrumentation) {
+        AgentParser parser = new AgentParser(args);
+        if (parser.isDetach()) {
+            detach();
+            return;
+        }
+        if (parser.isReload()) {
+            reload();
+            return;
+        }
+        if (null != transformer || null != reloader) {
+            System.out.println("athena agent is already installed");
+            return;
+        }
+        if (!instrumentation.isRetransformClassesSupported()) {
+            throw new IllegalStateException("athena agent can not be attached, the jvm does not support retransforming classes");
+        }
+        AgentConfig agentConfig = YamlUtils.createAgentConfig(parser.getConfigPath());
+        MetricsProvider.INSTANCE.registerConfigMap(agentConfig.getConfigMap());
+        reloader = new ConfigReloader(instrumentation, parser.getConfigPath(), agentConfig);
+        attached = true;
+        System.out.println("athena agent attached, " + reloader.install() + " loaded classes instrumented");
+        reloader.getTransformStats().printSummary();
+    }
+    
+    private static void reload() {
+        if (null == reloader) {
+            System.out.println("athena agent can only reload its config when it is attached or started with hotReload: true");
+            return;
+        }
+        try {
+            reloader.reload();
+        } catch (Exception ex) {
+            System.err.println("athena agent can not reload its config : " + ex);
+        }
+    }
+    
+    private static void detach() {
+        if (!attached) {
+            System.out.println("athena agent is not attached, only an attached agent can be detached");
+            return;
+        }
+        // every load of the agent gets its own instrumentation, the reloader keeps the one it was attached with.
+        System.out.println("athena agent detached, " + reloader.uninstall() + " classes restored");
+        reloader = null;
+        attached = false;
     }
 }
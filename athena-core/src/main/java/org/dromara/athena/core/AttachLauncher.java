@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.CodeSource;
+
+/**
+ * The type Attach launcher, loads the agent jar it runs from into a running jvm.
+ * <pre>
+ * java -cp athena-core.jar org.dromara.athena.core.AttachLauncher &lt;pid&gt; config:&lt;config.yaml&gt;
+ * java -cp athena-core.jar org.dromara.athena.core.AttachLauncher &lt;pid&gt; reload
+ * java -cp athena-core.jar org.dromara.athena.core.AttachLauncher &lt;pid&gt; detach
+ * </pre>
+ * The attach api is looked up at runtime, from the {@code tools.jar} of the jdk on java 8.
+ *
+ * @author xiaoyu
+ */
+public final class AttachLauncher {
+    
+    private static final String VIRTUAL_MACHINE_CLASS = "com.sun.tools.attach.VirtualMachine";
+    
+    private static final String CONFIG_PREFIX = "config:";
+    
+    private AttachLauncher() {
+    }
+    
+    /**
+     * The entry point.
+     *
+     * @param args the pid of the jvm and the agent args
+     * @throws ReflectiveOperationException the reflective operation exception
+     * @throws URISyntaxException           the uri syntax exception
+     * @throws IOException          the io exception
+     */
+    public static void main(final String[] args) throws ReflectiveOperationException, URISyntaxException, IOException {
+        if (args.length < 1) {
+            System.err.println("usage: AttachLauncher <pid> [config:<config.yaml> | reload | detach]");
+            System.exit(2);
+        }
+        String agentJar = getAgentJar();
+        String agentArgs = args.length > 1 ? toAgentArgs(args[1]) : null;
+        Class<?> virtualMachine = loadVirtualMachine();
+        Object vm = virtualMachine.getMethod("attach", String.class).invoke(null, args[0]);
+        try {
+            Method loadAgent = virtualMachine.getMethod("loadAgent", String.class, String.class);
+            loadAgent.invoke(vm, agentJar, agentArgs);
+        } catch (InvocationTargetException ex) {
+            System.err.println("athena agent failed in " + args[0] + " : " + ex.getCause());
+            System.exit(1);
+        } finally {
+            virtualMachine.getMethod("detach").invoke(vm);
+        }
+        System.out.println("athena agent " + (null == agentArgs ? "" : agentArgs + " ") + "loaded into " + args[0]);
+    }
+    
+    private static String toAgentArgs(final String args) {
+        // the config path is resolved by the target jvm, which may run in another directory.
+        if (args.startsWith(CONFIG_PREFIX)) {
+            return CONFIG_PREFIX + new File(args.substring(CONFIG_PREFIX.length())).getAbsolutePath();
+        }
+        return args;
+    }
+    
+    private static String getAgentJar() throws URISyntaxException {
+        CodeSource codeSource = AttachLauncher.class.getProtectionDomain().getCodeSource();
+        File result = null == codeSource ? null : new File(codeSource.getLocation().toURI());
+        if (null == result || !result.isFile()) {
+            throw new IllegalStateException("athena attach launcher has to run from the agent jar, not " + result);
+        }
+        return result.getAbsolutePath();
+    }
+    
+    private static Class<?> loadVirtualMachine() throws ClassNotFoundException, IOException {
+        try {
+            return Class.forName(VIRTUAL_MACHINE_CLASS);
+        } catch (ClassNotFoundException ex) {
+            File toolsJar = new File(System.getProperty("java.home"), "../lib/tools.jar");
+            if (!toolsJar.isFile()) {
+                throw ex;
+            }
+            URLClassLoader loader = new URLClassLoader(new URL[]{toolsJar.toURI().toURL()});
+            return Class.forName(VIRTUAL_MACHINE_CLASS, true, loader);
+        }
+    }
+}
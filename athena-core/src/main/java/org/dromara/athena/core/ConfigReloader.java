@@ -0,0 +1,302 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core;
+
+import java.io.File;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.lang.instrument.UnmodifiableClassException;
+import java.security.ProtectionDomain;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import lombok.Getter;
+import org.dromara.athena.core.config.AgentConfig;
+import org.dromara.athena.core.config.Klass;
+import org.dromara.athena.core.config.Metric;
+import org.dromara.athena.core.reporter.MetricsReporter;
+import org.dromara.athena.core.reporter.OverheadBudget;
+import org.dromara.athena.core.transformer.MetricsClassTransformer;
+import org.dromara.athena.core.transformer.ReporterProbeIds;
+import org.dromara.athena.core.transformer.TransformStats;
+import org.dromara.athena.core.utils.MemoizedSupplier;
+import org.dromara.athena.core.utils.YamlUtils;
+
+/**
+ * The type Config reloader, a retransformable transformer whose config can be replaced while the application runs.
+ * The classes never get members added, so each one can be retransformed from its original bytecode, either with
+ * another config or without the transformer when the agent is detached. Without added members the probes get no switchable
+ * call site, so a metric is switched off by reloading it with {@code enabled: false}, which leaves it out of the retransformed classes.
+ *
+ * <p>A reload reads the config file again, unregisters the metrics whose definition changed or that were removed, and
+ * retransforms only the loaded classes whose metrics differ between the two configs or share a name with a changed metric, or every instrumented class when
+ * the config map differs. The config map settings of the reporter, such as the register and the recording mode, are
+ * read once when it starts and are not reloaded. With {@code hotReload: true} the config file is polled every
+ * {@code hotReloadIntervalMillis} and reloaded when its modification time changes.
+ *
+ * @author xiaoyu
+ */
+public final class ConfigReloader implements ClassFileTransformer, Runnable {
+    
+    private static final String HOT_RELOAD_KEY = "hotReload";
+    
+    private static final String INTERVAL_KEY = "hotReloadIntervalMillis";
+    
+    private static final long DEFAULT_INTERVAL_MILLIS = 2000L;
+    
+    private static final int RETRANSFORM_BATCH_SIZE = 256;
+    
+    private final Instrumentation instrumentation;
+    
+    private final String configPath;
+    
+    @Getter
+    private final TransformStats transformStats;
+    
+    private volatile AgentConfig agentConfig;
+    
+    private volatile MetricsClassTransformer delegate;
+    
+    private Thread watcher;
+    
+    /**
+     * Instantiates a new Config reloader.
+     *
+     * @param instrumentation the instrumentation the transformer is added to
+     * @param configPath      the config file, null when there is none to reload
+     * @param agentConfig     the config read from it
+     */
+    public ConfigReloader(final Instrumentation instrumentation, final String configPath, final AgentConfig agentConfig) {
+        this.instrumentation = instrumentation;
+        this.configPath = configPath;
+        this.agentConfig = agentConfig;
+        // the overhead budget samples through switchable call sites, which a class without added members never gets.
+        OverheadBudget.refuse();
+        this.transformStats = new TransformStats(MetricsReporter.METRIC_REGISTER);
+        this.delegate = newTransformer(agentConfig, transformStats);
+    }
+    
+    /**
+     * Whether the config asks for its file to be watched.
+     *
+     * @param configMap the config map
+     * @return the boolean
+     */
+    public static boolean isHotReload(final Map<String, Object> configMap) {
+        Object hotReload = configMap.get(HOT_RELOAD_KEY);
+        return null != hotReload && Boolean.parseBoolean(hotReload.toString());
+    }
+    
+    @Override
+    public byte[] transform(final ClassLoader loader, final String className, final Class<?> classBeingRedefined,
+                            final ProtectionDomain protectionDomain, final byte[] classfileBuffer) {
+        return delegate.transform(loader, className, classBeingRedefined, protectionDomain, classfileBuffer);
+    }
+    
+    /**
+     * Add the transformer, retransform the loaded classes that match the config and start watching the config file when it asks for it.
+     *
+     * @return the number of classes retransformed
+     */
+    public synchronized int install() {
+        instrumentation.addTransformer(this, true);
+        AgentConfig installed = agentConfig;
+        int result = retransform(each -> installed.hasMetric(getInternalName(each), () -> getSupertypes(each)));
+        if (isHotReload(agentConfig.getConfigMap()) && null != configPath) {
+            watcher = new Thread(this, "athena-config-reloader");
+            watcher.setDaemon(true);
+            watcher.start();
+        }
+        return result;
+    }
+    
+    /**
+     * Remove the transformer and retransform the classes it instrumented back to their original bytecode.
+     *
+     * @return the number of classes retransformed
+     */
+    public synchronized int uninstall() {
+        if (null != watcher) {
+            watcher.interrupt();
+            watcher = null;
+        }
+        instrumentation.removeTransformer(this);
+        AgentConfig installed = agentConfig;
+        return retransform(each -> installed.hasMetric(getInternalName(each), () -> getSupertypes(each)));
+    }
+    
+    /**
+     * Reload the config file and retransform the loaded classes whose metrics changed.
+     *
+     * @return the number of classes retransformed
+     */
+    public synchronized int reload() {
+        if (null == configPath) {
+            throw new IllegalStateException("athena agent was started without a config file, there is nothing to reload");
+        }
+        AgentConfig previous = agentConfig;
+        AgentConfig next = YamlUtils.createAgentConfig(configPath);
+        Map<String, Set<Metric>> before = getMetricsByName(previous);
+        Map<String, Set<Metric>> after = getMetricsByName(next);
+        Set<String> changedNames = new HashSet<>(before.keySet());
+        changedNames.addAll(after.keySet());
+        changedNames.removeIf(each -> Objects.equals(before.get(each), after.get(each)));
+        for (String each : changedNames) {
+            if (before.containsKey(each)) {
+                // the probes still running the old bytecode record into the old handle until their class is retransformed.
+                before.get(each).forEach(MetricsReporter::unregisterMetric);
+            }
+        }
+        delegate = newTransformer(next, transformStats);
+        agentConfig = next;
+        boolean configMapChanged = !Objects.equals(previous.getConfigMap(), next.getConfigMap());
+        int result = retransform(each -> isChanged(previous, next, each, configMapChanged, changedNames));
+        System.out.println("athena config " + configPath + " reloaded, " + changedNames.size() + " metrics changed, " + result + " classes retransformed");
+        return result;
+    }
+    
+    @Override
+    public void run() {
+        long intervalMillis = getIntervalMillis(agentConfig.getConfigMap());
+        long lastModified = new File(configPath).lastModified();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Thread.sleep(intervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long modified = new File(configPath).lastModified();
+            if (modified == lastModified) {
+                continue;
+            }
+            lastModified = modified;
+            try {
+                reload();
+            } catch (Exception ex) {
+                // a file caught half written is read again on its next change.
+                System.err.println("athena can not reload the config " + configPath + " : " + ex);
+            }
+        }
+    }
+    
+    private static MetricsClassTransformer newTransformer(final AgentConfig agentConfig, final TransformStats transformStats) {
+        // the bytecode cache is keyed by the config only, its entries may have members added.
+        return new MetricsClassTransformer(agentConfig, ReporterProbeIds.INSTANCE, null, false, transformStats);
+    }
+    
+    private static long getIntervalMillis(final Map<String, Object> configMap) {
+        Object interval = configMap.get(INTERVAL_KEY);
+        return null == interval || interval.toString().trim().isEmpty() ? DEFAULT_INTERVAL_MILLIS : Long.parseLong(interval.toString().trim());
+    }
+    
+    private static Map<String, Set<Metric>> getMetricsByName(final AgentConfig agentConfig) {
+        Map<String, Set<Metric>> result = new HashMap<>();
+        for (List<Metric> each : agentConfig.getMetrics().values()) {
+            if (null != each) {
+                each.forEach(metric -> result.computeIfAbsent(metric.getName(), key -> new HashSet<>()).add(metric));
+            }
+        }
+        return result;
+    }
+    
+    private static boolean isChanged(final AgentConfig previous, final AgentConfig next, final Class<?> klass, final boolean configMapChanged, final Set<String> changedNames) {
+        String className = getInternalName(klass);
+        Supplier<Collection<String>> supertypes = new MemoizedSupplier<>(() -> getSupertypes(klass));
+        boolean before = previous.hasMetric(className, supertypes);
+        boolean after = next.hasMetric(className, supertypes);
+        if (!before && !after) {
+            return false;
+        }
+        if (configMapChanged || before != after) {
+            return true;
+        }
+        Collection<String> classSupertypes = previous.hasSupertypeSelectors() || next.hasSupertypeSelectors() ? supertypes.get() : Collections.emptySet();
+        Map<Klass, List<Metric>> keys = previous.findKeys(className, classSupertypes);
+        if (!keys.equals(next.findKeys(className, classSupertypes))) {
+            return true;
+        }
+        // a name unregistered for another key leaves the unchanged probes of this class recording into a dead handle.
+        return keys.values().stream().flatMap(List::stream).anyMatch(each -> changedNames.contains(each.getName()));
+    }
+    
+    private static String getInternalName(final Class<?> klass) {
+        return klass.getName().replace('.', '/');
+    }
+    
+    private static Collection<String> getSupertypes(final Class<?> klass) {
+        // the class is loaded, its supertypes are read from the class objects instead of the class files.
+        Set<String> result = new HashSet<>();
+        Deque<Class<?>> pending = new ArrayDeque<>();
+        pending.push(klass);
+        while (!pending.isEmpty()) {
+            Class<?> current = pending.pop();
+            if (null != current.getSuperclass() && result.add(getInternalName(current.getSuperclass()))) {
+                pending.push(current.getSuperclass());
+            }
+            for (Class<?> each : current.getInterfaces()) {
+                if (result.add(getInternalName(each))) {
+                    pending.push(each);
+                }
+            }
+        }
+        return result;
+    }
+    
+    private int retransform(final Predicate<Class<?>> filter) {
+        List<Class<?>> classes = new ArrayList<>();
+        for (Class<?> each : instrumentation.getAllLoadedClasses()) {
+            if (!each.isArray() && !each.isPrimitive() && filter.test(each) && instrumentation.isModifiableClass(each)) {
+                classes.add(each);
+            }
+        }
+        int result = 0;
+        for (int from = 0; from < classes.size(); from += RETRANSFORM_BATCH_SIZE) {
+            List<Class<?>> batch = classes.subList(from, Math.min(from + RETRANSFORM_BATCH_SIZE, classes.size()));
+            try {
+                instrumentation.retransformClasses(batch.toArray(new Class<?>[0]));
+                result += batch.size();
+            } catch (UnmodifiableClassException | UnsupportedOperationException | LinkageError | InternalError ex) {
+                // a failed batch leaves every class of it unchanged, one by one the other classes still get retransformed.
+                for (Class<?> each : batch) {
+                    result += retransform(each) ? 1 : 0;
+                }
+            }
+        }
+        return result;
+    }
+    
+    private boolean retransform(final Class<?> clazz) {
+        try {
+            instrumentation.retransformClasses(clazz);
+            return true;
+        } catch (UnmodifiableClassException | UnsupportedOperationException | LinkageError | InternalError ex) {
+            System.err.println("athena agent can not retransform " + clazz.getName() + " : " + ex);
+            return false;
+        }
+    }
+}
@@ -18,26 +18,42 @@
 package org.dromara.athena.core.config;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.objectweb.asm.Type;
 
 /**
  * The type Agent config.
+ * The metrics are indexed once by internal class name, method name and descriptor, so the transformer pays
+ * a few hash lookups per loaded class. Class names of a length no metric has, and the jdk and agent packages
+ * no metric is configured in, are rejected before the name is hashed.
+ * The keys that are {@link KlassSelector selectors} are compiled into one {@link GlobAutomaton} of their class names,
+ * a loaded class is matched against all of them in time proportional to the length of its name. The supertype
+ * selectors are indexed by their type name and matched against the supertypes of a class, which the caller resolves.
  *
  * @author xiaoyu
  */
 @Getter
 public class AgentConfig {
     
+    private static final String[] IGNORED_PACKAGES = {"java/", "javax/", "jdk/", "sun/", "com/sun/", "org/dromara/athena/", "org/objectweb/asm/", "io/prometheus/client/"};
+    
     private Set<String> imports;
     
     private Map<Klass, List<Metric>> metrics;
@@ -46,6 +62,25 @@ public class AgentConfig {
     
     private Debugger debugger;
     
+    @Getter(AccessLevel.NONE)
+    private final Map<String, Map<String, Map<String, List<Metric>>>> index;
+    
+    @JsonIgnore
+    @Getter(AccessLevel.NONE)
+    private final GlobAutomaton<KlassSelector> selectors;
+    
+    @Getter(AccessLevel.NONE)
+    private final Map<String, List<KlassSelector>> supertypeSelectors = new HashMap<>();
+    
+    @Getter(AccessLevel.NONE)
+    private final BitSet classNameLengths = new BitSet();
+    
+    @Getter(AccessLevel.NONE)
+    private int minSelectorLength = Integer.MAX_VALUE;
+    
+    @Getter(AccessLevel.NONE)
+    private final String[] ignoredPackages;
+    
     /**
      * Instantiates a new Agent config.
      */
@@ -71,6 +106,21 @@ public class AgentConfig {
         this.metrics = Optional.ofNullable(metrics).map(entry -> mergeByImports(entry, imports)).orElse(Collections.emptyMap());
         this.configMap = Optional.ofNullable(configMap).orElse(Collections.emptyMap());
         this.debugger = Optional.ofNullable(debugger).orElse(new Debugger());
+        this.index = buildIndex(this.metrics);
+        this.selectors = buildSelectors(this.metrics);
+        Set<String> selectorPrefixes = this.metrics.keySet().stream().filter(each -> KlassSelector.isSelector(each) && null == KlassSelector.getSupertype(each.getClassName()))
+                .map(each -> Glob.getPrefix(each.getClassName())).collect(Collectors.toSet());
+        this.ignoredPackages = Arrays.stream(IGNORED_PACKAGES).filter(each -> index.keySet().stream().noneMatch(name -> name.startsWith(each)))
+                .filter(each -> selectorPrefixes.stream().noneMatch(prefix -> prefix.startsWith(each) || each.startsWith(prefix))).toArray(String[]::new);
+    }
+    
+    /**
+     * Whether there are supertype selectors, whose classes can only be matched knowing their supertypes.
+     *
+     * @return the boolean
+     */
+    public boolean hasSupertypeSelectors() {
+        return !supertypeSelectors.isEmpty();
     }
     
     /**
@@ -80,7 +130,27 @@ public class AgentConfig {
      * @return the boolean
      */
     public boolean hasMetric(final String className) {
-        return metrics.keySet().stream().anyMatch(klass -> klass.getClassName().equalsIgnoreCase(className));
+        if (null == className || !classNameLengths.get(className.length()) && className.length() < minSelectorLength) {
+            return false;
+        }
+        return !isIgnored(className) && (index.containsKey(className) || !selectors.isEmpty() && !selectors.match(className).isEmpty());
+    }
+    
+    /**
+     * Has metric boolean, with the supertype selectors.
+     *
+     * @param className  the class name
+     * @param supertypes the internal names of the supertypes of the class, only asked for when there are supertype selectors
+     * @return the boolean
+     */
+    public boolean hasMetric(final String className, final Supplier<Collection<String>> supertypes) {
+        if (hasMetric(className)) {
+            return true;
+        }
+        if (supertypeSelectors.isEmpty() || null == className || isIgnored(className)) {
+            return false;
+        }
+        return supertypeSelectors.containsKey(className) || supertypes.get().stream().anyMatch(supertypeSelectors::containsKey);
     }
     
     /**
@@ -90,11 +160,45 @@ public class AgentConfig {
      * @return the list
      */
     public List<Metric> findByClassName(final String className) {
-        if (metrics.isEmpty()) {
-            return Collections.emptyList();
+        return findByClassName(className, Collections.emptySet());
+    }
+    
+    /**
+     * Find by class name list, with the supertype selectors.
+     *
+     * @param className  the class name
+     * @param supertypes the internal names of the supertypes of the class
+     * @return the list
+     */
+    public List<Metric> findByClassName(final String className, final Collection<String> supertypes) {
+        return findKeys(className, supertypes).values().stream().flatMap(List::stream).collect(Collectors.toList());
+    }
+    
+    /**
+     * Find the keys that apply to a class, its own method keys and the selectors that match it.
+     *
+     * @param className the class name
+     * @return the metrics by key
+     */
+    public Map<Klass, List<Metric>> findKeys(final String className) {
+        return findKeys(className, Collections.emptySet());
+    }
+    
+    /**
+     * Find the keys that apply to a class, with the supertype selectors.
+     *
+     * @param className  the class name
+     * @param supertypes the internal names of the supertypes of the class
+     * @return the metrics by key
+     */
+    public Map<Klass, List<Metric>> findKeys(final String className, final Collection<String> supertypes) {
+        Map<Klass, List<Metric>> result = new LinkedHashMap<>();
+        Map<String, Map<String, List<Metric>>> methods = index.get(className);
+        if (null != methods) {
+            methods.forEach((method, descriptors) -> descriptors.forEach((descriptor, each) -> result.put(new Klass(className, method, descriptor), each)));
         }
-        return metrics.keySet().stream().filter(klass -> klass.getClassName().equalsIgnoreCase(className))
-               .flatMap(klass -> metrics.get(klass).stream()).collect(Collectors.toList());
+        findSelectors(className, supertypes).forEach(each -> result.put(each.getKlass(), each.getMetrics()));
+        return result;
     }
     
     /**
@@ -106,7 +210,88 @@ public class AgentConfig {
      * @return the list
      */
     public List<Metric> findByKey(final String className, final String methodName, final String descriptor) {
-        return metrics.getOrDefault(new Klass(className, methodName, descriptor), Collections.emptyList());
+        return findByKey(className, Collections.emptySet(), methodName, descriptor);
+    }
+    
+    /**
+     * Find by key list, with the supertype selectors.
+     *
+     * @param className  the class name
+     * @param supertypes the internal names of the supertypes of the class
+     * @param methodName the method name
+     * @param descriptor the descriptor
+     * @return the list
+     */
+    public List<Metric> findByKey(final String className, final Collection<String> supertypes, final String methodName, final String descriptor) {
+        Map<String, Map<String, List<Metric>>> methods = index.get(className);
+        List<Metric> result = null == methods ? Collections.emptyList() : methods.getOrDefault(methodName, Collections.emptyMap()).getOrDefault(descriptor, Collections.emptyList());
+        if (selectors.isEmpty() && supertypeSelectors.isEmpty()) {
+            return result;
+        }
+        for (KlassSelector each : findSelectors(className, supertypes)) {
+            if (each.matchesMethod(methodName, descriptor)) {
+                result = new ArrayList<>(result);
+                result.addAll(each.getMetrics());
+            }
+        }
+        return result;
+    }
+    
+    private boolean isIgnored(final String className) {
+        for (String each : ignoredPackages) {
+            if (className.startsWith(each)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private List<KlassSelector> findSelectors(final String className, final Collection<String> supertypes) {
+        List<KlassSelector> result = selectors.isEmpty() ? Collections.emptyList() : selectors.match(className);
+        if (supertypeSelectors.isEmpty() || isIgnored(className)) {
+            return result;
+        }
+        result = new ArrayList<>(result);
+        result.addAll(supertypeSelectors.getOrDefault(className, Collections.emptyList()));
+        for (String each : supertypes) {
+            result.addAll(supertypeSelectors.getOrDefault(each, Collections.emptyList()));
+        }
+        return result;
+    }
+    
+    private Map<String, Map<String, Map<String, List<Metric>>>> buildIndex(final Map<Klass, List<Metric>> metrics) {
+        Map<String, Map<String, Map<String, List<Metric>>>> classes = new HashMap<>();
+        for (Map.Entry<Klass, List<Metric>> entry : metrics.entrySet()) {
+            Klass klass = entry.getKey();
+            if (KlassSelector.isSelector(klass)) {
+                continue;
+            }
+            classes.computeIfAbsent(klass.getClassName(), key -> new HashMap<>()).computeIfAbsent(klass.getMethod(), key -> new HashMap<>())
+                    .put(klass.getDescriptor(), null == entry.getValue() ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
+            classNameLengths.set(klass.getClassName().length());
+        }
+        for (Map.Entry<String, Map<String, Map<String, List<Metric>>>> each : classes.entrySet()) {
+            each.getValue().replaceAll((method, descriptors) -> Collections.unmodifiableMap(descriptors));
+            each.setValue(Collections.unmodifiableMap(each.getValue()));
+        }
+        return Collections.unmodifiableMap(classes);
+    }
+    
+    private GlobAutomaton<KlassSelector> buildSelectors(final Map<Klass, List<Metric>> metrics) {
+        List<KlassSelector> result = new ArrayList<>();
+        for (Map.Entry<Klass, List<Metric>> entry : metrics.entrySet()) {
+            if (!KlassSelector.isSelector(entry.getKey())) {
+                continue;
+            }
+            KlassSelector selector = new KlassSelector(entry.getKey(), null == entry.getValue() ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(entry.getValue())));
+            if (null != selector.getSupertype()) {
+                supertypeSelectors.computeIfAbsent(selector.getSupertype(), key -> new ArrayList<>()).add(selector);
+            } else {
+                result.add(selector);
+                minSelectorLength = Math.min(minSelectorLength, entry.getKey().getClassName().replace("*", "").length());
+            }
+        }
+        return new GlobAutomaton<>(result, each -> each.getKlass().getClassName());
     }
     
     private Map<Klass, List<Metric>> mergeByImports(final Map<Klass, List<Metric>> metrics, final Set<String> imports) {
@@ -114,6 +299,14 @@ public class AgentConfig {
         Map<Klass, List<Metric>> processed = new HashMap<>();
         for (Map.Entry<Klass, List<Metric>> entry : metrics.entrySet()) {
             Klass key = entry.getKey();
+            String supertype = KlassSelector.getSupertype(key.getClassName());
+            if (null != supertype) {
+                key = new Klass(KlassSelector.withSupertype(key.getClassName(), importsMap.getOrDefault(supertype, supertype)), key.getMethod(), key.getDescriptor());
+            }
+            if (KlassSelector.isDescriptorGlob(key.getDescriptor()) || null == supertype && Glob.isGlob(key.getClassName())) {
+                processed.put(key, entry.getValue());
+                continue;
+            }
             String className = importsMap.get(key.getClassName());
             if (className == null) {
                 className = key.getClassName();
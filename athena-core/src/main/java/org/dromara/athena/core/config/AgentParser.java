@@ -27,6 +27,10 @@ public class AgentParser {
     
     private static final String CONFIG = "config";
     
+    private static final String DETACH = "detach";
+    
+    private static final String RELOAD = "reload";
+    
     private final String[] agentArgs;
     
     /**
@@ -51,4 +55,22 @@ public class AgentParser {
                 .filter(arg -> arg.startsWith(CONFIG))
                 .map(arg -> arg.replace(CONFIG + ":", "")).findFirst().orElse(null);
     }
+    
+    /**
+     * Whether the agent is asked to detach, restoring the classes it instrumented when it was attached.
+     *
+     * @return the boolean
+     */
+    public boolean isDetach() {
+        return Arrays.asList(agentArgs).contains(DETACH);
+    }
+    
+    /**
+     * Whether the agent is asked to reload its config file and retransform the classes whose metrics changed.
+     *
+     * @return the boolean
+     */
+    public boolean isReload() {
+        return Arrays.asList(agentArgs).contains(RELOAD);
+    }
 }
@@ -30,4 +30,9 @@ public class Debugger {
     private boolean debug;
     
     private String outPath;
+    
+    /**
+     * Print the bytecode growth of every instrumented method.
+     */
+    private boolean report;
 }
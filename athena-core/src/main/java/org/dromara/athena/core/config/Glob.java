@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.config;
+
+/**
+ * The type Glob, matches the names of the metric selectors.
+ * {@code ?} matches one character and {@code *} any number of characters, neither crosses the separator,
+ * {@code **} matches any number of characters including the separator.
+ *
+ * @author xiaoyu
+ */
+public final class Glob {
+    
+    /**
+     * No separator, {@code *} matches any characters.
+     */
+    public static final char NO_SEPARATOR = 0;
+    
+    private Glob() {
+    }
+    
+    /**
+     * Whether a name is a glob rather than a plain name.
+     *
+     * @param name the name
+     * @return the boolean
+     */
+    public static boolean isGlob(final String name) {
+        return name.indexOf('*') >= 0 || name.indexOf('?') >= 0;
+    }
+    
+    /**
+     * Gets the plain prefix of a glob, before its first wildcard.
+     *
+     * @param glob the glob
+     * @return the prefix
+     */
+    public static String getPrefix(final String glob) {
+        for (int i = 0; i < glob.length(); i++) {
+            if (glob.charAt(i) == '*' || glob.charAt(i) == '?') {
+                return glob.substring(0, i);
+            }
+        }
+        return glob;
+    }
+    
+    /**
+     * Match a name against a glob, in time proportional to the product of their lengths.
+     *
+     * @param glob      the glob
+     * @param name      the name
+     * @param separator the character {@code ?} and {@code *} do not match, {@link #NO_SEPARATOR} for none
+     * @return the boolean
+     */
+    public static boolean matches(final String glob, final String name, final char separator) {
+        int length = name.length();
+        boolean[] current = new boolean[length + 1];
+        current[0] = true;
+        int i = 0;
+        while (i < glob.length()) {
+            char each = glob.charAt(i);
+            boolean[] next = new boolean[length + 1];
+            if ('*' == each) {
+                boolean crossing = i + 1 < glob.length() && '*' == glob.charAt(i + 1);
+                i += crossing ? 2 : 1;
+                for (int j = 0; j <= length; j++) {
+                    next[j] = current[j] || j > 0 && next[j - 1] && (crossing || name.charAt(j - 1) != separator);
+                }
+            } else {
+                for (int j = 0; j < length; j++) {
+                    next[j + 1] = current[j] && ('?' == each ? name.charAt(j) != separator : name.charAt(j) == each);
+                }
+                i++;
+            }
+            current = next;
+        }
+        return current[length];
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * The type Glob automaton, finds the values whose {@link Glob} matches a name, with {@code /} as the separator.
+ * The globs are merged into one trie whose nodes are the states of a nondeterministic automaton, the trie is
+ * determinized lazily: each set of states reached by a name becomes a state of a deterministic automaton that
+ * remembers its transitions, so once warm a match costs one hash lookup per character, whatever the number of globs.
+ * The number of deterministic states is capped, beyond it the rest of a name is matched on the nondeterministic automaton,
+ * in time proportional to the length of the name and the number of its states that are active at once.
+ *
+ * @param <T> the value type
+ * @author xiaoyu
+ */
+public final class GlobAutomaton<T> {
+    
+    private static final int MAX_STATES = 4096;
+    
+    private static final char SEPARATOR = '/';
+    
+    private final List<Node<T>> nodes = new ArrayList<>();
+    
+    private final List<T> values = new ArrayList<>();
+    
+    private final ConcurrentMap<NodeSet, State<T>> states = new ConcurrentHashMap<>();
+    
+    private final State<T> start;
+    
+    private final boolean empty;
+    
+    /**
+     * Instantiates a new Glob automaton.
+     *
+     * @param values the values
+     * @param globOf the glob of a value
+     */
+    public GlobAutomaton(final Collection<T> values, final Function<T, String> globOf) {
+        Node<T> root = newNode(false, false);
+        for (T each : values) {
+            add(root, globOf.apply(each), this.values.size());
+            this.values.add(each);
+        }
+        start = intern(closure(new int[]{root.id}, 1));
+        empty = values.isEmpty();
+    }
+    
+    /**
+     * Whether no glob was added.
+     *
+     * @return the boolean
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+    
+    /**
+     * Match a name.
+     *
+     * @param name the name
+     * @return the values whose glob matches the name, in the order they were added
+     */
+    public List<T> match(final String name) {
+        State<T> current = start;
+        for (int i = 0; i < name.length() && !current.ids.isEmpty(); i++) {
+            State<T> next = current.transitions.get(name.charAt(i));
+            if (null == next) {
+                if (states.size() >= MAX_STATES) {
+                    return simulate(current.ids, name, i);
+                }
+                next = intern(step(current.ids, name.charAt(i)));
+                current.transitions.put(name.charAt(i), next);
+            }
+            current = next;
+        }
+        return current.values;
+    }
+    
+    private void add(final Node<T> root, final String glob, final int index) {
+        Node<T> current = root;
+        int i = 0;
+        while (i < glob.length()) {
+            char each = glob.charAt(i);
+            if ('*' == each && i + 1 < glob.length() && '*' == glob.charAt(i + 1)) {
+                if (null == current.anyPath) {
+                    current.anyPath = newNode(true, true);
+                }
+                current = current.anyPath;
+                i += 2;
+            } else if ('*' == each) {
+                if (null == current.anySegment) {
+                    current.anySegment = newNode(true, false);
+                }
+                current = current.anySegment;
+                i++;
+            } else if ('?' == each) {
+                if (null == current.anyChar) {
+                    current.anyChar = newNode(false, false);
+                }
+                current = current.anyChar;
+                i++;
+            } else {
+                Node<T> child = current.children.get(each);
+                if (null == child) {
+                    child = newNode(false, false);
+                    current.children.put(each, child);
+                }
+                current = child;
+                i++;
+            }
+        }
+        current.indexes.add(index);
+    }
+    
+    private Node<T> newNode(final boolean loop, final boolean crossing) {
+        Node<T> result = new Node<>(nodes.size(), loop, crossing);
+        nodes.add(result);
+        return result;
+    }
+    
+    private List<T> simulate(final NodeSet ids, final String name, final int from) {
+        NodeSet current = ids;
+        for (int i = from; i < name.length() && !current.isEmpty(); i++) {
+            current = step(current, name.charAt(i));
+        }
+        return getValues(current);
+    }
+    
+    private NodeSet step(final NodeSet ids, final char each) {
+        int[] result = new int[ids.ids.length * 3];
+        int size = 0;
+        for (int id : ids.ids) {
+            Node<T> node = nodes.get(id);
+            if (node.loop && (node.crossing || SEPARATOR != each)) {
+                result[size++] = id;
+            }
+            Node<T> child = node.children.get(each);
+            if (null != child) {
+                result[size++] = child.id;
+            }
+            if (null != node.anyChar && SEPARATOR != each) {
+                result[size++] = node.anyChar.id;
+            }
+        }
+        return closure(result, size);
+    }
+    
+    private NodeSet closure(final int[] ids, final int size) {
+        // a star matches nothing too, so the states behind it are reached without reading a character.
+        int[] result = ids;
+        int count = size;
+        for (int i = 0; i < count; i++) {
+            Node<T> node = nodes.get(result[i]);
+            for (Node<T> each : Arrays.asList(node.anySegment, node.anyPath)) {
+                if (null != each) {
+                    if (count == result.length) {
+                        result = Arrays.copyOf(result, count * 2 + 2);
+                    }
+                    result[count++] = each.id;
+                }
+            }
+        }
+        return new NodeSet(result, count);
+    }
+    
+    private State<T> intern(final NodeSet ids) {
+        State<T> result = states.get(ids);
+        if (null != result) {
+            return result;
+        }
+        result = new State<>(ids, getValues(ids));
+        State<T> existing = states.putIfAbsent(ids, result);
+        return null == existing ? result : existing;
+    }
+    
+    private List<T> getValues(final NodeSet ids) {
+        // the states are ordered by node id, the values are put back in the order they were added.
+        List<Integer> indexes = new ArrayList<>();
+        for (int id : ids.ids) {
+            indexes.addAll(nodes.get(id).indexes);
+        }
+        if (indexes.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Collections.sort(indexes);
+        List<T> result = new ArrayList<>(indexes.size());
+        for (int each : indexes) {
+            result.add(values.get(each));
+        }
+        return Collections.unmodifiableList(result);
+    }
+    
+    private static final class Node<T> {
+        
+        private final int id;
+        
+        private final boolean loop;
+        
+        private final boolean crossing;
+        
+        private final Map<Character, Node<T>> children = new HashMap<>();
+        
+        private final List<Integer> indexes = new ArrayList<>();
+        
+        private Node<T> anyChar;
+        
+        private Node<T> anySegment;
+        
+        private Node<T> anyPath;
+        
+        Node(final int id, final boolean loop, final boolean crossing) {
+            this.id = id;
+            this.loop = loop;
+            this.crossing = crossing;
+        }
+    }
+    
+    /**
+     * The sorted ids of a set of nodes, the key of a deterministic state.
+     */
+    private static final class NodeSet {
+        
+        private final int[] ids;
+        
+        private final int hash;
+        
+        NodeSet(final int[] ids, final int size) {
+            int[] sorted = Arrays.copyOf(ids, size);
+            Arrays.sort(sorted);
+            int count = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                if (0 == i || sorted[i] != sorted[i - 1]) {
+                    sorted[count++] = sorted[i];
+                }
+            }
+            this.ids = count == sorted.length ? sorted : Arrays.copyOf(sorted, count);
+            this.hash = Arrays.hashCode(this.ids);
+        }
+        
+        boolean isEmpty() {
+            return 0 == ids.length;
+        }
+        
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof NodeSet && Arrays.equals(ids, ((NodeSet) obj).ids);
+        }
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+    
+    private static final class State<T> {
+        
+        private final NodeSet ids;
+        
+        private final List<T> values;
+        
+        private final ConcurrentMap<Character, State<T>> transitions = new ConcurrentHashMap<>();
+        
+        State(final NodeSet ids, final List<T> values) {
+            this.ids = ids;
+            this.values = values;
+        }
+    }
+}
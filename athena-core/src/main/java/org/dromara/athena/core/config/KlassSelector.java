@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.config;
+
+import java.util.Collection;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * The type Klass selector, a metrics key whose class, method or descriptor is a {@link Glob}, such as
+ * {@code org/apache/shardingsphere/proxy/backend/**.execute*(..)}.
+ * In the class name {@code *} stays within a package and {@code **} crosses packages, in the method name {@code *}
+ * matches any characters but a selector only matches a constructor or class initializer when it starts with {@code <}.
+ * In the descriptor {@code *} and {@code ..} match any characters, and a descriptor that ends with {@code )} matches any
+ * return type, so {@code (..)} matches every method. The imports are not applied to a glob.
+ *
+ * <p>A class name of the form {@code implements X} or {@code extends Y} selects X or Y and every class that
+ * has it among its supertypes, such as {@code implements org/apache/shardingsphere/proxy/frontend/command/executor/CommandExecutor.execute()*}.
+ * The type name goes through the imports and is not a glob, the classes of the jdk packages are not selected.
+ *
+ * @author xiaoyu
+ */
+public final class KlassSelector {
+    
+    private static final String ANY_ARGS = "..";
+    
+    private static final String[] SUPERTYPE_PREFIXES = {"implements ", "extends "};
+    
+    @Getter
+    private final Klass klass;
+    
+    @Getter
+    private final List<Metric> metrics;
+    
+    @Getter
+    private final String supertype;
+    
+    private final String descriptor;
+    
+    /**
+     * Instantiates a new Klass selector.
+     *
+     * @param klass   the klass
+     * @param metrics the metrics
+     */
+    public KlassSelector(final Klass klass, final List<Metric> metrics) {
+        this.klass = klass;
+        this.metrics = metrics;
+        this.supertype = getSupertype(klass.getClassName());
+        String result = klass.getDescriptor().replace(ANY_ARGS, "*");
+        this.descriptor = result.endsWith(")") ? result + "*" : result;
+    }
+    
+    /**
+     * Whether a metrics key is a selector rather than the name of a single method.
+     *
+     * @param klass the klass
+     * @return the boolean
+     */
+    public static boolean isSelector(final Klass klass) {
+        return null != getSupertype(klass.getClassName()) || Glob.isGlob(klass.getClassName()) || Glob.isGlob(klass.getMethod()) || isDescriptorGlob(klass.getDescriptor());
+    }
+    
+    /**
+     * Gets the type name of a class name of the form {@code implements X} or {@code extends Y}.
+     *
+     * @param className the class name of a metrics key
+     * @return the type name, or null when the class name is not of that form
+     */
+    public static String getSupertype(final String className) {
+        for (String each : SUPERTYPE_PREFIXES) {
+            if (className.startsWith(each)) {
+                return className.substring(each.length()).trim();
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Replace the type name of a class name of the form {@code implements X} or {@code extends Y}.
+     *
+     * @param className the class name of a metrics key
+     * @param supertype the type name
+     * @return the class name
+     */
+    public static String withSupertype(final String className, final String supertype) {
+        return className.substring(0, className.indexOf(' ') + 1) + supertype;
+    }
+    
+    /**
+     * Whether a descriptor is a glob rather than the descriptor of a single method.
+     *
+     * @param descriptor the descriptor
+     * @return the boolean
+     */
+    public static boolean isDescriptorGlob(final String descriptor) {
+        return Glob.isGlob(descriptor) || descriptor.contains(ANY_ARGS) || descriptor.endsWith(")");
+    }
+    
+    /**
+     * Whether the selector matches a class, by the name of the class or of one of its supertypes.
+     *
+     * @param className  the internal class name
+     * @param supertypes the internal names of the supertypes of the class
+     * @return the boolean
+     */
+    public boolean matchesClass(final String className, final Collection<String> supertypes) {
+        return null == supertype ? matchesClass(className) : supertype.equals(className) || supertypes.contains(supertype);
+    }
+    
+    /**
+     * Whether the selector matches a class.
+     *
+     * @param className the internal class name
+     * @return the boolean
+     */
+    public boolean matchesClass(final String className) {
+        return Glob.matches(klass.getClassName(), className, '/');
+    }
+    
+    /**
+     * Whether the selector matches a method of a class it matches.
+     *
+     * @param methodName the method name
+     * @param desc       the descriptor
+     * @return the boolean
+     */
+    public boolean matchesMethod(final String methodName, final String desc) {
+        if (methodName.startsWith("<") && !klass.getMethod().startsWith("<")) {
+            return false;
+        }
+        return Glob.matches(klass.getMethod(), methodName, Glob.NO_SEPARATOR) && Glob.matches(descriptor, desc, Glob.NO_SEPARATOR);
+    }
+}
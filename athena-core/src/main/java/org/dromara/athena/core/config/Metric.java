@@ -20,6 +20,7 @@ package org.dromara.athena.core.config;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import java.util.List;
+import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import org.dromara.athena.core.enums.MetricType;
 
@@ -29,6 +30,7 @@ import org.dromara.athena.core.enums.MetricType;
  * @author xiaoyu
  */
 @Getter
+@EqualsAndHashCode
 public class Metric {
     
     private final MetricType type;
@@ -41,25 +43,70 @@ public class Metric {
     
     private final List<String> labels;
     
+    private final int maxSeries;
+    
+    private final String unit;
+    
+    private final List<Double> buckets;
+    
+    private final List<Double> linearBuckets;
+    
+    private final List<Double> exponentialBuckets;
+    
+    private final int sampleEvery;
+    
+    private final double sampleRate;
+    
+    private final boolean enabled;
+    
+    private final boolean reentrant;
+    
     /**
      * Instantiates a new Metric.
      *
-     * @param type   the type
-     * @param method the method
-     * @param name   the name
-     * @param doc    the doc
-     * @param labels the labels
+     * @param type               the type
+     * @param method             the method
+     * @param name               the name
+     * @param doc                the doc
+     * @param labels             the labels
+     * @param maxSeries          the max number of label series, label values beyond it are folded into an overflow series, 0 for no cap
+     * @param unit               the unit of a histogram, ns, us, ms or s (default)
+     * @param buckets            the upper bounds of the histogram buckets in its unit
+     * @param linearBuckets      the linear histogram buckets as [start, width, count]
+     * @param exponentialBuckets the exponential histogram buckets as [start, factor, count]
+     * @param sampleEvery        time one call out of this many on average, for a histogram
+     * @param sampleRate         the fraction of the calls timed, for a histogram, used when sampleEvery is not set
+     * @param enabled            whether the probes start switched on, true when not set, a metric without switchable probes is left out when false
+     * @param reentrant          whether the nested frames of a recursive or overridden method record a counter or histogram too, true when not set
      */
     @JsonCreator
     Metric(@JsonProperty("type") final MetricType type,
            @JsonProperty("method") final String method,
            @JsonProperty("name") final String name,
            @JsonProperty("doc") final String doc,
-           @JsonProperty("labels") final List<String> labels) {
+           @JsonProperty("labels") final List<String> labels,
+           @JsonProperty("maxSeries") final int maxSeries,
+           @JsonProperty("unit") final String unit,
+           @JsonProperty("buckets") final List<Double> buckets,
+           @JsonProperty("linearBuckets") final List<Double> linearBuckets,
+           @JsonProperty("exponentialBuckets") final List<Double> exponentialBuckets,
+           @JsonProperty("sampleEvery") final int sampleEvery,
+           @JsonProperty("sampleRate") final double sampleRate,
+           @JsonProperty("enabled") final Boolean enabled,
+           @JsonProperty("reentrant") final Boolean reentrant) {
         this.type = type;
         this.method = method;
         this.name = name;
         this.doc = doc;
         this.labels = labels;
+        this.maxSeries = maxSeries;
+        this.unit = unit;
+        this.buckets = buckets;
+        this.linearBuckets = linearBuckets;
+        this.exponentialBuckets = exponentialBuckets;
+        this.sampleEvery = sampleEvery;
+        this.sampleRate = sampleRate;
+        this.enabled = null == enabled || enabled;
+        this.reentrant = null == reentrant || reentrant;
     }
 }
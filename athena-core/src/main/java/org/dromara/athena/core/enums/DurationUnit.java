@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.enums;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+
+/**
+ * The enum Duration unit, the unit a histogram is exported and configured in.
+ */
+@Getter
+public enum DurationUnit {
+    
+    /**
+     * Nanoseconds duration unit.
+     */
+    NS("ns", TimeUnit.NANOSECONDS),
+    
+    /**
+     * Microseconds duration unit.
+     */
+    US("us", TimeUnit.MICROSECONDS),
+    
+    /**
+     * Milliseconds duration unit.
+     */
+    MS("ms", TimeUnit.MILLISECONDS),
+    
+    /**
+     * Seconds duration unit.
+     */
+    S("s", TimeUnit.SECONDS);
+    
+    private final String symbol;
+    
+    private final TimeUnit timeUnit;
+    
+    DurationUnit(final String symbol, final TimeUnit timeUnit) {
+        this.symbol = symbol;
+        this.timeUnit = timeUnit;
+    }
+    
+    /**
+     * Find the unit of a symbol, seconds when there is none.
+     *
+     * @param symbol the symbol
+     * @return the duration unit
+     */
+    public static DurationUnit of(final String symbol) {
+        if (null == symbol || symbol.isEmpty()) {
+            return S;
+        }
+        return Arrays.stream(values()).filter(each -> each.symbol.equalsIgnoreCase(symbol)).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("we not support the duration unit : " + symbol));
+    }
+}
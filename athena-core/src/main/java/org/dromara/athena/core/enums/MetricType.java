@@ -17,10 +17,10 @@
 
 package org.dromara.athena.core.enums;
 
-import io.prometheus.client.Counter;
-import io.prometheus.client.Gauge;
-import io.prometheus.client.Histogram;
 import lombok.Getter;
+import org.dromara.athena.spi.CounterMetric;
+import org.dromara.athena.spi.GaugeMetric;
+import org.dromara.athena.spi.HistogramMetric;
 import org.objectweb.asm.Type;
 
 /**
@@ -31,18 +31,21 @@ public enum MetricType {
     /**
      * Counter metric type.
      */
-    COUNTER(Counter.class),
+    COUNTER(CounterMetric.Child.class),
     
     /**
      * Gauge metric type.
      */
-    GAUGE(Gauge.class),
+    GAUGE(GaugeMetric.Child.class),
     
     /**
      * Histogram metric type.
      */
-    HISTOGRAM(Histogram.class);
+    HISTOGRAM(HistogramMetric.Child.class);
     
+    /**
+     * The type of the resolved series child.
+     */
     @Getter
     private final Class<?> type;
     
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.enums;
+
+import java.util.Arrays;
+import lombok.Getter;
+
+/**
+ * The enum Recording full policy, what an asynchronous probe does when the event ring is full.
+ */
+@Getter
+public enum RecordingFullPolicy {
+    
+    /**
+     * Drop the event and count it in the dropped counter.
+     */
+    DROP("drop"),
+    
+    /**
+     * Record the event on the calling thread.
+     */
+    SYNC("sync");
+    
+    private final String name;
+    
+    RecordingFullPolicy(final String name) {
+        this.name = name;
+    }
+    
+    /**
+     * Find the policy of a name, sync when there is none.
+     *
+     * @param name the name
+     * @return the recording full policy
+     */
+    public static RecordingFullPolicy of(final String name) {
+        if (null == name || name.isEmpty()) {
+            return SYNC;
+        }
+        return Arrays.stream(values()).filter(each -> each.name.equalsIgnoreCase(name)).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("we not support the recording full policy : " + name));
+    }
+}
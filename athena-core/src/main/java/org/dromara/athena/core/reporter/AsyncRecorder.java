@@ -0,0 +1,348 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.reporter;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.dromara.athena.core.enums.RecordingFullPolicy;
+import org.dromara.athena.spi.CounterMetric;
+import org.dromara.athena.spi.GaugeMetric;
+import org.dromara.athena.spi.HistogramMetric;
+import org.dromara.athena.spi.MetricRegister;
+
+/**
+ * The type Async recorder, takes the aggregation off the instrumented threads.
+ * A probe only offers a primitive event to the {@link EventRing}, one daemon thread resolves the series
+ * and applies the events to the metric register. When the ring is full the event is either dropped and
+ * counted, or recorded on the calling thread, as the {@link RecordingFullPolicy} says. An empty ring makes the thread
+ * spin, then yield, then park for twice as long each time, up to 10 milliseconds, until an event comes again.
+ *
+ * @author xiaoyu
+ */
+final class AsyncRecorder implements Runnable {
+    
+    private static final String RECORDING_KEY = "recording";
+    
+    private static final String ASYNC_RECORDING = "async";
+    
+    private static final String BUFFER_SIZE_KEY = "asyncBufferSize";
+    
+    private static final String FULL_POLICY_KEY = "asyncFullPolicy";
+    
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    
+    private static final int DRAIN_BATCH = 1024;
+    
+    private static final int IDLE_SPINS = 64;
+    
+    private static final int IDLE_YIELDS = 64;
+    
+    private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    
+    private static final String DROPPED_NAME = "athena_async_dropped_total";
+    
+    private final EventRing ring;
+    
+    private final RecordingFullPolicy fullPolicy;
+    
+    private final CounterMetric.Child dropped;
+    
+    private final MetricHandles<CounterMetric> counters;
+    
+    private final MetricHandles<GaugeMetric> gauges;
+    
+    private final MetricHandles<HistogramMetric> histograms;
+    
+    private AsyncRecorder(final int bufferSize, final RecordingFullPolicy fullPolicy, final MetricRegister register, final MetricHandles<CounterMetric> counters,
+                          final MetricHandles<GaugeMetric> gauges, final MetricHandles<HistogramMetric> histograms) {
+        this.ring = new EventRing(bufferSize);
+        this.fullPolicy = fullPolicy;
+        this.dropped = register.registerCounter(DROPPED_NAME, null, "the probe events dropped because the async ring was full", 0).labels((String[]) null);
+        this.counters = counters;
+        this.gauges = gauges;
+        this.histograms = histograms;
+    }
+    
+    /**
+     * Create the recorder and start its thread when the config asks for the async recording.
+     *
+     * @param configMap  the config map
+     * @param register   the metric register
+     * @param counters   the counter handles
+     * @param gauges     the gauge handles
+     * @param histograms the histogram handles
+     * @return the recorder, or null when the probes record on the calling thread
+     */
+    static AsyncRecorder create(final Map<String, Object> configMap, final MetricRegister register, final MetricHandles<CounterMetric> counters,
+                                final MetricHandles<GaugeMetric> gauges, final MetricHandles<HistogramMetric> histograms) {
+        if (null == configMap || !ASYNC_RECORDING.equals(String.valueOf(configMap.get(RECORDING_KEY)))) {
+            return null;
+        }
+        Object bufferSize = configMap.get(BUFFER_SIZE_KEY);
+        Object fullPolicy = configMap.get(FULL_POLICY_KEY);
+        AsyncRecorder result = new AsyncRecorder(null == bufferSize ? DEFAULT_BUFFER_SIZE : Integer.parseInt(bufferSize.toString()),
+                RecordingFullPolicy.of(null == fullPolicy ? null : fullPolicy.toString()), register, counters, gauges, histograms);
+        Thread thread = new Thread(result, "athena-async-recorder");
+        thread.setDaemon(true);
+        thread.start();
+        return result;
+    }
+    
+    /**
+     * Publish an event.
+     *
+     * @param op     the op
+     * @param id     the metric id
+     * @param target the label value array or the series
+     * @param arity  the number of label values passed one by one
+     * @param v1     the first label value
+     * @param v2     the second label value
+     * @param v3     the third label value
+     * @param v4     the fourth label value
+     * @param value  the value
+     * @return false when the caller has to record the event itself
+     */
+    boolean publish(final int op, final int id, final Object target, final int arity,
+                    final String v1, final String v2, final String v3, final String v4, final long value) {
+        if (ring.offer(op, id, target, arity, v1, v2, v3, v4, value)) {
+            return true;
+        }
+        if (RecordingFullPolicy.DROP == fullPolicy) {
+            dropped.inc();
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Wrap a counter series so it records through the ring.
+     *
+     * @param series the series
+     * @return the wrapped series
+     */
+    CounterMetric.Child wrap(final CounterMetric.Child series) {
+        return new AsyncCounterSeries(series);
+    }
+    
+    /**
+     * Wrap a gauge series so it records through the ring.
+     *
+     * @param series the series
+     * @return the wrapped series
+     */
+    GaugeMetric.Child wrap(final GaugeMetric.Child series) {
+        return new AsyncGaugeSeries(series);
+    }
+    
+    /**
+     * Wrap a histogram series so it records through the ring.
+     *
+     * @param series the series
+     * @return the wrapped series
+     */
+    HistogramMetric.Child wrap(final HistogramMetric.Child series) {
+        return new AsyncHistogramSeries(series);
+    }
+    
+    @Override
+    public void run() {
+        int idle = 0;
+        long parkNanos = MIN_PARK_NANOS;
+        while (!Thread.currentThread().isInterrupted()) {
+            if (0 != ring.drain(DRAIN_BATCH, this::apply)) {
+                idle = 0;
+                parkNanos = MIN_PARK_NANOS;
+            } else if (idle < IDLE_SPINS) {
+                idle++;
+            } else if (idle < IDLE_SPINS + IDLE_YIELDS) {
+                idle++;
+                Thread.yield();
+            } else {
+                // an idle application costs a wake up every few milliseconds, the ring holds the events of a burst meanwhile.
+                LockSupport.parkNanos(parkNanos);
+                parkNanos = Math.min(parkNanos << 1, MAX_PARK_NANOS);
+            }
+        }
+    }
+    
+    private void apply(final RecordEvent event) {
+        try {
+            switch (event.getOp()) {
+                case RecordEvent.COUNTER_INC:
+                    counterSeries(event).inc(event.getValue());
+                    break;
+                case RecordEvent.GAUGE_INC:
+                    gaugeSeries(event).inc();
+                    break;
+                case RecordEvent.GAUGE_DEC:
+                    gaugeSeries(event).dec();
+                    break;
+                case RecordEvent.HISTOGRAM_OBSERVE:
+                    histogramSeries(event).observe(event.getValue());
+                    break;
+                case RecordEvent.SERIES_COUNTER_INC:
+                    ((CounterMetric.Child) event.getTarget()).inc(event.getValue());
+                    break;
+                case RecordEvent.SERIES_GAUGE_INC:
+                    ((GaugeMetric.Child) event.getTarget()).inc();
+                    break;
+                case RecordEvent.SERIES_GAUGE_DEC:
+                    ((GaugeMetric.Child) event.getTarget()).dec();
+                    break;
+                case RecordEvent.SERIES_HISTOGRAM_OBSERVE:
+                    ((HistogramMetric.Child) event.getTarget()).observe(event.getValue());
+                    break;
+                case RecordEvent.SERIES_GAUGE_ADD:
+                    ((GaugeMetric.Child) event.getTarget()).add(event.getValue());
+                    break;
+                case RecordEvent.SERIES_HISTOGRAM_OBSERVE_COUNT:
+                    ((HistogramMetric.Child) event.getTarget()).observe(event.getValue(), event.getId());
+                    break;
+                default:
+                    break;
+            }
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    private CounterMetric.Child counterSeries(final RecordEvent event) {
+        CounterMetric metric = counters.get(event.getId());
+        switch (event.getArity()) {
+            case 1:
+                return metric.labels(event.getV1());
+            case 2:
+                return metric.labels(event.getV1(), event.getV2());
+            case 3:
+                return metric.labels(event.getV1(), event.getV2(), event.getV3());
+            case 4:
+                return metric.labels(event.getV1(), event.getV2(), event.getV3(), event.getV4());
+            default:
+                return metric.labels(event.getLabelValues());
+        }
+    }
+    
+    private GaugeMetric.Child gaugeSeries(final RecordEvent event) {
+        GaugeMetric metric = gauges.get(event.getId());
+        switch (event.getArity()) {
+            case 1:
+                return metric.labels(event.getV1());
+            case 2:
+                return metric.labels(event.getV1(), event.getV2());
+            case 3:
+                return metric.labels(event.getV1(), event.getV2(), event.getV3());
+            case 4:
+                return metric.labels(event.getV1(), event.getV2(), event.getV3(), event.getV4());
+            default:
+                return metric.labels(event.getLabelValues());
+        }
+    }
+    
+    private HistogramMetric.Child histogramSeries(final RecordEvent event) {
+        HistogramMetric metric = histograms.get(event.getId());
+        switch (event.getArity()) {
+            case 1:
+                return metric.labels(event.getV1());
+            case 2:
+                return metric.labels(event.getV1(), event.getV2());
+            case 3:
+                return metric.labels(event.getV1(), event.getV2(), event.getV3());
+            case 4:
+                return metric.labels(event.getV1(), event.getV2(), event.getV3(), event.getV4());
+            default:
+                return metric.labels(event.getLabelValues());
+        }
+    }
+    
+    private final class AsyncCounterSeries implements CounterMetric.Child {
+        
+        private final CounterMetric.Child series;
+        
+        AsyncCounterSeries(final CounterMetric.Child series) {
+            this.series = series;
+        }
+        
+        @Override
+        public void inc() {
+            inc(1L);
+        }
+        
+        @Override
+        public void inc(final long count) {
+            if (!publish(RecordEvent.SERIES_COUNTER_INC, 0, series, 0, null, null, null, null, count)) {
+                series.inc(count);
+            }
+        }
+    }
+    
+    private final class AsyncGaugeSeries implements GaugeMetric.Child {
+        
+        private final GaugeMetric.Child series;
+        
+        AsyncGaugeSeries(final GaugeMetric.Child series) {
+            this.series = series;
+        }
+        
+        @Override
+        public void inc() {
+            if (!publish(RecordEvent.SERIES_GAUGE_INC, 0, series, 0, null, null, null, null, 0L)) {
+                series.inc();
+            }
+        }
+        
+        @Override
+        public void dec() {
+            if (!publish(RecordEvent.SERIES_GAUGE_DEC, 0, series, 0, null, null, null, null, 0L)) {
+                series.dec();
+            }
+        }
+        
+        @Override
+        public void add(final long delta) {
+            if (!publish(RecordEvent.SERIES_GAUGE_ADD, 0, series, 0, null, null, null, null, delta)) {
+                series.add(delta);
+            }
+        }
+    }
+    
+    private final class AsyncHistogramSeries implements HistogramMetric.Child {
+        
+        private final HistogramMetric.Child series;
+        
+        AsyncHistogramSeries(final HistogramMetric.Child series) {
+            this.series = series;
+        }
+        
+        @Override
+        public void observe(final long duration) {
+            if (!publish(RecordEvent.SERIES_HISTOGRAM_OBSERVE, 0, series, 0, null, null, null, null, duration)) {
+                series.observe(duration);
+            }
+        }
+        
+        @Override
+        public void observe(final long duration, final int count) {
+            if (!publish(RecordEvent.SERIES_HISTOGRAM_OBSERVE_COUNT, count, series, 0, null, null, null, null, duration)) {
+                series.observe(duration, count);
+            }
+        }
+    }
+}
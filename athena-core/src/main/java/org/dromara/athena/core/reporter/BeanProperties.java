@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.reporter;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The type Bean properties, reads a label bean path by reflection when it could not be compiled to direct accessors
+ * at transform time, e.g. the property is declared on a subtype of the argument type.
+ * The members are looked up once per class and property, a null bean or a missing property reads as null.
+ *
+ * @author xiaoyu
+ */
+public final class BeanProperties {
+    
+    private static final Object MISSING = new Object();
+    
+    private static final ClassValue<ConcurrentMap<String, Object>> MEMBERS = new ClassValue<ConcurrentMap<String, Object>>() {
+        @Override
+        protected ConcurrentMap<String, Object> computeValue(final Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+    
+    private BeanProperties() {
+    }
+    
+    /**
+     * Gets the value of a nested property.
+     *
+     * @param bean the bean
+     * @param path the property path, separated by dots
+     * @return the value, or null
+     */
+    public static Object getNestedProperty(final Object bean, final String path) {
+        Object current = bean;
+        int start = 0;
+        while (null != current && start <= path.length()) {
+            int end = path.indexOf('.', start);
+            if (end < 0) {
+                end = path.length();
+            }
+            current = getProperty(current, path.substring(start, end));
+            start = end + 1;
+        }
+        return current;
+    }
+    
+    private static Object getProperty(final Object bean, final String property) {
+        Object member = MEMBERS.get(bean.getClass()).computeIfAbsent(property, p -> findMember(bean.getClass(), p));
+        try {
+            if (member instanceof Method) {
+                return ((Method) member).invoke(bean);
+            }
+            if (member instanceof Field) {
+                return ((Field) member).get(bean);
+            }
+        } catch (ReflectiveOperationException | RuntimeException ignored) {
+            // the property can not be read, labelled as null.
+        }
+        return null;
+    }
+    
+    private static Object findMember(final Class<?> type, final String property) {
+        String capitalized = Character.toUpperCase(property.charAt(0)) + property.substring(1);
+        for (String getter : new String[]{"get" + capitalized, "is" + capitalized}) {
+            try {
+                Method method = type.getMethod(getter);
+                if (!Modifier.isStatic(method.getModifiers()) && method.getReturnType() != void.class) {
+                    method.setAccessible(true);
+                    return method;
+                }
+            } catch (NoSuchMethodException | SecurityException ignored) {
+                // try the next accessor.
+            }
+        }
+        for (Class<?> current = type; null != current; current = current.getSuperclass()) {
+            try {
+                Field field = current.getDeclaredField(property);
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    field.setAccessible(true);
+                    return field;
+                }
+            } catch (NoSuchFieldException | SecurityException ignored) {
+                // try the super class.
+            }
+        }
+        return MISSING;
+    }
+}
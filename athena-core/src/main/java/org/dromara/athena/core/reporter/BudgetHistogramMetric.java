@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.reporter;
+
+import org.dromara.athena.spi.HistogramMetric;
+
+/**
+ * The type Budget histogram metric, a histogram whose probes the {@link OverheadBudget} may sample.
+ * While only one call out of {@code sampleEvery} is recorded, every observation is counted for {@code sampleEvery} calls,
+ * so the counts and the sum keep the rates of all the calls. A series resolved once and kept by the instrumented class
+ * reads the sample interval on every observation, one resolved per call only while the histogram is sampled.
+ *
+ * @author xiaoyu
+ */
+final class BudgetHistogramMetric implements HistogramMetric {
+    
+    private final HistogramMetric histogram;
+    
+    private volatile int sampleEvery = 1;
+    
+    /**
+     * Instantiates a new Budget histogram metric.
+     *
+     * @param histogram the histogram of the metric register
+     */
+    BudgetHistogramMetric(final HistogramMetric histogram) {
+        this.histogram = histogram;
+    }
+    
+    /**
+     * Set the sample interval of the probes, the observations are counted for that many calls from now on.
+     *
+     * @param sampleEvery one call out of this many is recorded, 0 when none is
+     */
+    void setSampleEvery(final int sampleEvery) {
+        this.sampleEvery = Math.max(1, sampleEvery);
+    }
+    
+    /**
+     * Resolve a series kept by the instrumented class, which follows the later changes of the sample interval.
+     *
+     * @param labelValues the label values
+     * @return the series child
+     */
+    Child series(final String[] labelValues) {
+        return new BudgetHistogramChild(histogram.labels(labelValues));
+    }
+    
+    @Override
+    public void observe(final String[] labelValues, final long duration) {
+        int count = sampleEvery;
+        if (1 == count) {
+            histogram.observe(labelValues, duration);
+        } else {
+            histogram.labels(labelValues).observe(duration, count);
+        }
+    }
+    
+    @Override
+    public Child labels(final String[] labelValues) {
+        return weigh(histogram.labels(labelValues));
+    }
+    
+    @Override
+    public Child labels(final String v1) {
+        return weigh(histogram.labels(v1));
+    }
+    
+    @Override
+    public Child labels(final String v1, final String v2) {
+        return weigh(histogram.labels(v1, v2));
+    }
+    
+    @Override
+    public Child labels(final String v1, final String v2, final String v3) {
+        return weigh(histogram.labels(v1, v2, v3));
+    }
+    
+    @Override
+    public Child labels(final String v1, final String v2, final String v3, final String v4) {
+        return weigh(histogram.labels(v1, v2, v3, v4));
+    }
+    
+    private Child weigh(final Child series) {
+        return 1 == sampleEvery ? series : new BudgetHistogramChild(series);
+    }
+    
+    private final class BudgetHistogramChild implements Child {
+        
+        private final Child series;
+        
+        BudgetHistogramChild(final Child series) {
+            this.series = series;
+        }
+        
+        @Override
+        public void observe(final long duration) {
+            int count = sampleEvery;
+            if (1 == count) {
+                series.observe(duration);
+            } else {
+                series.observe(duration, count);
+            }
+        }
+        
+        @Override
+        public void observe(final long duration, final int count) {
+            series.observe(duration, count * sampleEvery);
+        }
+    }
+}
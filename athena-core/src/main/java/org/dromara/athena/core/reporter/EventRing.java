@@ -0,0 +1,123 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.reporter;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+/**
+ * The type Event ring, a bounded lock free ring of preallocated events with many producers and one consumer.
+ * Each slot carries a sequence: a producer claims the slot whose sequence equals the tail with one CAS, fills
+ * it and publishes it by moving the sequence on, the consumer takes it back once it has applied the event.
+ * Offering to a full ring fails at once, it never blocks the producer.
+ *
+ * @author xiaoyu
+ */
+final class EventRing {
+    
+    private final RecordEvent[] events;
+    
+    private final AtomicLongArray sequences;
+    
+    private final int mask;
+    
+    private final AtomicLong tail = new AtomicLong();
+    
+    private long head;
+    
+    /**
+     * Instantiates a new Event ring.
+     *
+     * @param capacity the capacity, rounded up to a power of two
+     */
+    EventRing(final int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        events = new RecordEvent[size];
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            events[i] = new RecordEvent();
+            sequences.set(i, i);
+        }
+        mask = size - 1;
+    }
+    
+    /**
+     * Offer an event.
+     *
+     * @param op     the op
+     * @param id     the metric id
+     * @param target the label value array or the series
+     * @param arity  the number of label values passed one by one
+     * @param v1     the first label value
+     * @param v2     the second label value
+     * @param v3     the third label value
+     * @param v4     the fourth label value
+     * @param value  the value
+     * @return false when the ring is full
+     */
+    boolean offer(final int op, final int id, final Object target, final int arity,
+                  final String v1, final String v2, final String v3, final String v4, final long value) {
+        long current;
+        int index;
+        do {
+            current = tail.get();
+            index = (int) current & mask;
+            long sequence = sequences.get(index);
+            if (sequence < current) {
+                return false;
+            }
+            if (sequence > current) {
+                continue;
+            }
+            if (tail.compareAndSet(current, current + 1)) {
+                break;
+            }
+        } while (true);
+        events[index].set(op, id, target, arity, v1, v2, v3, v4, value);
+        sequences.lazySet(index, current + 1);
+        return true;
+    }
+    
+    /**
+     * Drain the published events, only called from the consumer thread.
+     *
+     * @param limit    the max number of events to drain
+     * @param consumer the consumer
+     * @return the number of events drained
+     */
+    int drain(final int limit, final Consumer<RecordEvent> consumer) {
+        int count = 0;
+        while (count < limit) {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+            RecordEvent event = events[index];
+            try {
+                consumer.accept(event);
+            } finally {
+                event.clear();
+                sequences.lazySet(index, head + mask + 1);
+                head++;
+            }
+            count++;
+        }
+        return count;
+    }
+}
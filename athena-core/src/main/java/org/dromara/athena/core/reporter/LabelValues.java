@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.reporter;
+
+/**
+ * The type Label values, turns method arguments into label values without boxing.
+ * Small integers and ascii chars are served from caches and enums are labelled by their name,
+ * so the common label values do not allocate.
+ *
+ * @author xiaoyu
+ */
+public final class LabelValues {
+
+    private static final int INT_CACHE_LOW = -128;
+
+    private static final int INT_CACHE_HIGH = 1023;
+
+    private static final String[] INT_CACHE = new String[INT_CACHE_HIGH - INT_CACHE_LOW + 1];
+
+    private static final String[] CHAR_CACHE = new String[128];
+
+    static {
+        for (int i = 0; i < INT_CACHE.length; i++) {
+            INT_CACHE[i] = String.valueOf(i + INT_CACHE_LOW).intern();
+        }
+        for (int i = 0; i < CHAR_CACHE.length; i++) {
+            CHAR_CACHE[i] = String.valueOf((char) i).intern();
+        }
+    }
+
+    private LabelValues() {
+    }
+
+    /**
+     * Value of int, also used for byte and short arguments.
+     *
+     * @param value the value
+     * @return the label value
+     */
+    public static String valueOf(final int value) {
+        if (value >= INT_CACHE_LOW && value <= INT_CACHE_HIGH) {
+            return INT_CACHE[value - INT_CACHE_LOW];
+        }
+        return Integer.toString(value);
+    }
+
+    /**
+     * Value of long.
+     *
+     * @param value the value
+     * @return the label value
+     */
+    public static String valueOf(final long value) {
+        if (value >= INT_CACHE_LOW && value <= INT_CACHE_HIGH) {
+            return INT_CACHE[(int) value - INT_CACHE_LOW];
+        }
+        return Long.toString(value);
+    }
+
+    /**
+     * Value of boolean.
+     *
+     * @param value the value
+     * @return the label value
+     */
+    public static String valueOf(final boolean value) {
+        return value ? "true" : "false";
+    }
+
+    /**
+     * Value of char.
+     *
+     * @param value the value
+     * @return the label value
+     */
+    public static String valueOf(final char value) {
+        if (value < CHAR_CACHE.length) {
+            return CHAR_CACHE[value];
+        }
+        return String.valueOf(value);
+    }
+
+    /**
+     * Value of float.
+     *
+     * @param value the value
+     * @return the label value
+     */
+    public static String valueOf(final float value) {
+        return String.valueOf(value);
+    }
+
+    /**
+     * Value of double.
+     *
+     * @param value the value
+     * @return the label value
+     */
+    public static String valueOf(final double value) {
+        return String.valueOf(value);
+    }
+
+    /**
+     * Value of object, enums are labelled by their constant name.
+     *
+     * @param value the value
+     * @return the label value
+     */
+    public static String valueOf(final Object value) {
+        if (value instanceof Enum) {
+            return ((Enum<?>) value).name();
+        }
+        return String.valueOf(value);
+    }
+}
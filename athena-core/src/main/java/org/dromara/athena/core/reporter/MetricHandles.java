@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.reporter;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The type Metric handles, an append only table that maps a metric name to a stable int id at transform time.
+ * The id is baked into the injected bytecode so the recording path is a plain array read.
+ * A released name gets a new id when it is registered again, the old id keeps its handle for the code instrumented with it.
+ *
+ * @param <T> the handle type
+ * @author xiaoyu
+ */
+public final class MetricHandles<T> {
+
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    private volatile Object[] handles = new Object[0];
+
+    /**
+     * Register the handle of the metric, the supplier is only called the first time a name is seen or after it was released.
+     *
+     * @param name     the name
+     * @param supplier the supplier
+     * @return the id
+     */
+    public synchronized int register(final String name, final Supplier<T> supplier) {
+        Integer id = ids.get(name);
+        if (null != id) {
+            return id;
+        }
+        Object[] current = handles;
+        Object[] grown = Arrays.copyOf(current, current.length + 1);
+        grown[current.length] = supplier.get();
+        handles = grown;
+        ids.put(name, current.length);
+        return current.length;
+    }
+
+    /**
+     * Release the name of a metric, the code instrumented with its id keeps recording into the old handle
+     * until it is retransformed.
+     *
+     * @param name the name
+     * @return false when the name was never registered
+     */
+    public synchronized boolean release(final String name) {
+        return null != ids.remove(name);
+    }
+
+    /**
+     * Get the handle.
+     *
+     * @param id the id
+     * @return the handle
+     */
+    @SuppressWarnings("unchecked")
+    public T get(final int id) {
+        return (T) handles[id];
+    }
+
+    /**
+     * Find the handle registered under a name.
+     *
+     * @param name the name
+     * @return the handle, or null when the name is not registered
+     */
+    public synchronized T find(final String name) {
+        Integer id = ids.get(name);
+        return null == id ? null : get(id);
+    }
+
+    /**
+     * Gets the number of handles, the ids are 0 to size - 1.
+     *
+     * @return the size
+     */
+    public int size() {
+        return handles.length;
+    }
+}
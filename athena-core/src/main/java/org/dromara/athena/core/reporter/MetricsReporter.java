@@ -17,15 +17,25 @@
 
 package org.dromara.athena.core.reporter;
 
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 import org.dromara.athena.core.config.Metric;
+import org.dromara.athena.core.enums.DurationUnit;
+import org.dromara.athena.core.utils.HistogramBucketUtils;
 import org.dromara.athena.core.utils.MetricsLabelUtils;
+import org.dromara.athena.core.utils.MetricsUtils;
+import org.dromara.athena.spi.CounterMetric;
+import org.dromara.athena.spi.GaugeMetric;
+import org.dromara.athena.spi.HistogramMetric;
 import org.dromara.athena.spi.MetricRegister;
 import org.dromara.athena.spi.MetricsProvider;
 
 /**
  * The type Metrics reporter.
+ * With {@code recording: async} in the config map the probes only publish events that a background
+ * thread applies to the metric register, see {@link AsyncRecorder}.
  *
  * @author xiaoyu
  */
@@ -36,26 +46,41 @@ public class MetricsReporter {
      */
     public static final MetricRegister METRIC_REGISTER = MetricsProvider.INSTANCE.newInstance();
     
+    private static final MetricHandles<CounterMetric> COUNTERS = new MetricHandles<>();
+    
+    private static final MetricHandles<GaugeMetric> GAUGES = new MetricHandles<>();
+    
+    private static final MetricHandles<HistogramMetric> HISTOGRAMS = new MetricHandles<>();
+    
+    private static final MetricHandles<String> REENTRY = new MetricHandles<>();
+    
+    private static final ThreadLocal<int[]> DEPTHS = ThreadLocal.withInitial(() -> new int[8]);
+    
+    private static final AsyncRecorder ASYNC_RECORDER = AsyncRecorder.create(MetricsProvider.INSTANCE.getConfigMap(), METRIC_REGISTER, COUNTERS, GAUGES, HISTOGRAMS);
+    
+    private static final ProbeOverhead PROBE_OVERHEAD = ProbeOverhead.create(MetricsProvider.INSTANCE.getConfigMap(), METRIC_REGISTER);
+    
+    private static final boolean BUDGETED = OverheadBudget.start(MetricsProvider.INSTANCE.getConfigMap(), METRIC_REGISTER, PROBE_OVERHEAD);
+    
     /**
-     * Register metrics.
+     * Register metric and return the id used by the injected code to record through its handle.
      *
-     * @param metrics the metrics
+     * @param metric the metric
+     * @return the metric id
      */
-    public static void registerMetrics(final Collection<Metric> metrics) {
-        for (Metric metric : metrics) {
-            switch (metric.getType()) {
-                case COUNTER:
-                    registerCounter(metric.getName(), getLabelNames(metric.getLabels()), metric.getDoc());
-                    break;
-                case GAUGE:
-                    registerGauge(metric.getName(), getLabelNames(metric.getLabels()), metric.getDoc());
-                    break;
-                case HISTOGRAM:
-                    registerHistogram(metric.getName(), getLabelNames(metric.getLabels()), metric.getDoc());
-                    break;
-                default:
-                    throw new RuntimeException("we not support metric registration for type: " + metric.getType());
-            }
+    public static int registerMetric(final Metric metric) {
+        ProbeSwitches.declare(metric.getName(), metric.isEnabled());
+        switch (metric.getType()) {
+            case COUNTER:
+                return registerCounter(metric.getName(), getLabelNames(metric.getLabels()), metric.getDoc(), metric.getMaxSeries());
+            case GAUGE:
+                return registerGauge(metric.getName(), getLabelNames(metric.getLabels()), metric.getDoc(), metric.getMaxSeries());
+            case HISTOGRAM:
+                TimeUnit unit = DurationUnit.of(metric.getUnit()).getTimeUnit();
+                return registerHistogram(metric.getName(), getLabelNames(metric.getLabels()), metric.getDoc(), metric.getMaxSeries(),
+                        unit, HistogramBucketUtils.getBuckets(metric, unit), MetricsUtils.getSampleEvery(metric));
+            default:
+                throw new RuntimeException("we not support metric registration for type: " + metric.getType());
         }
     }
     
@@ -65,9 +90,11 @@ public class MetricsReporter {
      * @param name       the name
      * @param labelNames the label names
      * @param doc        the doc
+     * @param maxSeries  the max number of label series, 0 or less for no cap
+     * @return the counter id
      */
-    public static void registerCounter(final String name, final String[] labelNames, final String doc) {
-        METRIC_REGISTER.registerCounter(name, labelNames, doc);
+    public static int registerCounter(final String name, final String[] labelNames, final String doc, final int maxSeries) {
+        return COUNTERS.register(name, () -> METRIC_REGISTER.registerCounter(name, labelNames, doc, maxSeries));
     }
     
     /**
@@ -76,74 +103,521 @@ public class MetricsReporter {
      * @param name       the name
      * @param labelNames the label names
      * @param doc        the doc
+     * @param maxSeries  the max number of label series, 0 or less for no cap
+     * @return the gauge id
      */
-    public static void registerGauge(final String name, final String[] labelNames, final String doc) {
-        METRIC_REGISTER.registerGauge(name, labelNames, doc);
+    public static int registerGauge(final String name, final String[] labelNames, final String doc, final int maxSeries) {
+        return GAUGES.register(name, () -> METRIC_REGISTER.registerGauge(name, labelNames, doc, maxSeries));
     }
     
     /**
      * Register histogram.
      *
-     * @param name       the name
-     * @param labelNames the label names
-     * @param doc        the doc
+     * @param name        the name
+     * @param labelNames  the label names
+     * @param doc         the doc
+     * @param maxSeries   the max number of label series, 0 or less for no cap
+     * @param unit        the unit the histogram is exported in
+     * @param buckets     the upper bounds of the buckets in the unit
+     * @param sampleEvery one call out of this many is recorded
+     * @return the histogram id
+     */
+    public static int registerHistogram(final String name, final String[] labelNames, final String doc, final int maxSeries,
+                                        final TimeUnit unit, final double[] buckets, final int sampleEvery) {
+        return HISTOGRAMS.register(name, () -> {
+            HistogramMetric histogram = METRIC_REGISTER.registerHistogram(name, labelNames, doc, maxSeries, unit, buckets, sampleEvery);
+            return BUDGETED ? new BudgetHistogramMetric(histogram) : histogram;
+        });
+    }
+    
+    /**
+     * Gets the histogram of a metric whose probes the overhead budget may sample.
+     *
+     * @param metricName the metric name
+     * @return the histogram, or null when the metric is not a histogram or there is no budget
+     */
+    static BudgetHistogramMetric getBudgetHistogram(final String metricName) {
+        HistogramMetric result = HISTOGRAMS.find(metricName);
+        return result instanceof BudgetHistogramMetric ? (BudgetHistogramMetric) result : null;
+    }
+    
+    /**
+     * Unregister a metric from the metric register, the code instrumented with its id keeps recording into the old handle,
+     * a metric registered again under the name gets a new id.
+     *
+     * @param metric the metric
+     */
+    public static void unregisterMetric(final Metric metric) {
+        switch (metric.getType()) {
+            case COUNTER:
+                COUNTERS.release(metric.getName());
+                break;
+            case GAUGE:
+                GAUGES.release(metric.getName());
+                break;
+            case HISTOGRAM:
+                HISTOGRAMS.release(metric.getName());
+                break;
+            default:
+                throw new RuntimeException("we not support metric registration for type: " + metric.getType());
+        }
+        METRIC_REGISTER.unregister(metric.getName());
+    }
+    
+    /**
+     * Register the overhead measurement of the probes of a metric.
+     *
+     * @param metricName the metric name
+     * @return the probe id, or -1 when the probe overhead is not measured
+     */
+    public static int registerProbe(final String metricName) {
+        return null == PROBE_OVERHEAD ? -1 : PROBE_OVERHEAD.register(metricName);
+    }
+    
+    /**
+     * Register the thread local depth of a metric that is not reentrant.
+     *
+     * @param metricName the metric name
+     * @return the reentry id
+     */
+    public static int registerReentry(final String metricName) {
+        return REENTRY.register(metricName, () -> metricName);
+    }
+    
+    /**
+     * Enter a frame of a method whose metric is not reentrant.
+     *
+     * @param id the reentry id
+     * @return the number of enclosing frames of the metric on this thread, 0 for the outermost frame
+     */
+    public static int reentryEnter(final int id) {
+        int[] depths = DEPTHS.get();
+        if (id >= depths.length) {
+            depths = Arrays.copyOf(depths, Math.max(id + 1, depths.length * 2));
+            DEPTHS.set(depths);
+        }
+        return depths[id]++;
+    }
+    
+    /**
+     * Exit a frame entered by {@link #reentryEnter(int)}.
+     *
+     * @param id the reentry id
+     */
+    public static void reentryExit(final int id) {
+        DEPTHS.get()[id]--;
+    }
+    
+    /**
+     * Resolve the counter series of constant label values, called once from the class initializer of an instrumented class.
+     *
+     * @param id          the counter id
+     * @param labelValues the label values
+     * @return the series child
+     */
+    public static CounterMetric.Child counterSeries(final int id, final String[] labelValues) {
+        CounterMetric.Child series = COUNTERS.get(id).labels(labelValues);
+        return null == ASYNC_RECORDER ? series : ASYNC_RECORDER.wrap(series);
+    }
+    
+    /**
+     * Resolve the gauge series of constant label values, called once from the class initializer of an instrumented class.
+     *
+     * @param id          the gauge id
+     * @param labelValues the label values
+     * @return the series child
+     */
+    public static GaugeMetric.Child gaugeSeries(final int id, final String[] labelValues) {
+        GaugeMetric.Child series = GAUGES.get(id).labels(labelValues);
+        return null == ASYNC_RECORDER ? series : ASYNC_RECORDER.wrap(series);
+    }
+    
+    /**
+     * Resolve the histogram series of constant label values, called once from the class initializer of an instrumented class.
+     *
+     * @param id          the histogram id
+     * @param labelValues the label values
+     * @return the series child
      */
-    public static void registerHistogram(final String name, final String[] labelNames, final String doc) {
-        METRIC_REGISTER.registerHistogram(name, labelNames, doc);
+    public static HistogramMetric.Child histogramSeries(final int id, final String[] labelValues) {
+        HistogramMetric metric = HISTOGRAMS.get(id);
+        HistogramMetric.Child series = metric instanceof BudgetHistogramMetric ? ((BudgetHistogramMetric) metric).series(labelValues) : metric.labels(labelValues);
+        return null == ASYNC_RECORDER ? series : ASYNC_RECORDER.wrap(series);
     }
     
     /**
      * Counter inc.
      *
-     * @param name        the name
+     * @param id          the counter id
      * @param labelValues the label values
      */
-    public static void counterInc(final String name, final String[] labelValues) {
-        METRIC_REGISTER.counterInc(name, labelValues);
+    public static void counterInc(final int id, final String[] labelValues) {
+        if (!publish(RecordEvent.COUNTER_INC, id, labelValues, RecordEvent.ARRAY_ARITY, null, null, null, null, 1L)) {
+            COUNTERS.get(id).inc(labelValues);
+        }
     }
     
     /**
      * Counter inc.
      *
-     * @param name        the name
+     * @param id          the counter id
      * @param labelValues the label values
      * @param counter     the counter
      */
-    public static void counterInc(final String name, final String[] labelValues, final long counter) {
-        METRIC_REGISTER.counterInc(name, labelValues, counter);
+    public static void counterInc(final int id, final String[] labelValues, final long counter) {
+        if (!publish(RecordEvent.COUNTER_INC, id, labelValues, RecordEvent.ARRAY_ARITY, null, null, null, null, counter)) {
+            COUNTERS.get(id).inc(labelValues, counter);
+        }
+    }
+    
+    /**
+     * Counter inc of a metric without labels.
+     *
+     * @param id the counter id
+     */
+    public static void counterInc(final int id) {
+        if (!publish(RecordEvent.COUNTER_INC, id, null, 0, null, null, null, null, 1L)) {
+            COUNTERS.get(id).inc(null);
+        }
+    }
+    
+    /**
+     * Counter inc of one label value.
+     *
+     * @param id the counter id
+     * @param v1 the label value
+     */
+    public static void counterInc(final int id, final String v1) {
+        if (!publish(RecordEvent.COUNTER_INC, id, null, 1, v1, null, null, null, 1L)) {
+            COUNTERS.get(id).labels(v1).inc();
+        }
+    }
+    
+    /**
+     * Counter inc of two label values.
+     *
+     * @param id the counter id
+     * @param v1 the first label value
+     * @param v2 the second label value
+     */
+    public static void counterInc(final int id, final String v1, final String v2) {
+        if (!publish(RecordEvent.COUNTER_INC, id, null, 2, v1, v2, null, null, 1L)) {
+            COUNTERS.get(id).labels(v1, v2).inc();
+        }
+    }
+    
+    /**
+     * Counter inc of three label values.
+     *
+     * @param id the counter id
+     * @param v1 the first label value
+     * @param v2 the second label value
+     * @param v3 the third label value
+     */
+    public static void counterInc(final int id, final String v1, final String v2, final String v3) {
+        if (!publish(RecordEvent.COUNTER_INC, id, null, 3, v1, v2, v3, null, 1L)) {
+            COUNTERS.get(id).labels(v1, v2, v3).inc();
+        }
+    }
+    
+    /**
+     * Counter inc of four label values.
+     *
+     * @param id the counter id
+     * @param v1 the first label value
+     * @param v2 the second label value
+     * @param v3 the third label value
+     * @param v4 the fourth label value
+     */
+    public static void counterInc(final int id, final String v1, final String v2, final String v3, final String v4) {
+        if (!publish(RecordEvent.COUNTER_INC, id, null, 4, v1, v2, v3, v4, 1L)) {
+            COUNTERS.get(id).labels(v1, v2, v3, v4).inc();
+        }
     }
     
     /**
      * Gauge inc.
      *
-     * @param name        the name
+     * @param id          the gauge id
      * @param labelValues the label values
      */
-    public static void gaugeInc(final String name, final String[] labelValues) {
-        METRIC_REGISTER.gaugeInc(name, labelValues);
+    public static void gaugeInc(final int id, final String[] labelValues) {
+        if (!publish(RecordEvent.GAUGE_INC, id, labelValues, RecordEvent.ARRAY_ARITY, null, null, null, null, 0L)) {
+            GAUGES.get(id).inc(labelValues);
+        }
+    }
+    
+    /**
+     * Gauge inc of a metric without labels.
+     *
+     * @param id the gauge id
+     */
+    public static void gaugeInc(final int id) {
+        if (!publish(RecordEvent.GAUGE_INC, id, null, 0, null, null, null, null, 0L)) {
+            GAUGES.get(id).inc(null);
+        }
+    }
+    
+    /**
+     * Gauge inc of one label value.
+     *
+     * @param id the gauge id
+     * @param v1 the label value
+     */
+    public static void gaugeInc(final int id, final String v1) {
+        if (!publish(RecordEvent.GAUGE_INC, id, null, 1, v1, null, null, null, 0L)) {
+            GAUGES.get(id).labels(v1).inc();
+        }
+    }
+    
+    /**
+     * Gauge inc of two label values.
+     *
+     * @param id the gauge id
+     * @param v1 the first label value
+     * @param v2 the second label value
+     */
+    public static void gaugeInc(final int id, final String v1, final String v2) {
+        if (!publish(RecordEvent.GAUGE_INC, id, null, 2, v1, v2, null, null, 0L)) {
+            GAUGES.get(id).labels(v1, v2).inc();
+        }
+    }
+    
+    /**
+     * Gauge inc of three label values.
+     *
+     * @param id the gauge id
+     * @param v1 the first label value
+     * @param v2 the second label value
+     * @param v3 the third label value
+     */
+    public static void gaugeInc(final int id, final String v1, final String v2, final String v3) {
+        if (!publish(RecordEvent.GAUGE_INC, id, null, 3, v1, v2, v3, null, 0L)) {
+            GAUGES.get(id).labels(v1, v2, v3).inc();
+        }
+    }
+    
+    /**
+     * Gauge inc of four label values.
+     *
+     * @param id the gauge id
+     * @param v1 the first label value
+     * @param v2 the second label value
+     * @param v3 the third label value
+     * @param v4 the fourth label value
+     */
+    public static void gaugeInc(final int id, final String v1, final String v2, final String v3, final String v4) {
+        if (!publish(RecordEvent.GAUGE_INC, id, null, 4, v1, v2, v3, v4, 0L)) {
+            GAUGES.get(id).labels(v1, v2, v3, v4).inc();
+        }
     }
     
     /**
      * Gauge dec.
      *
-     * @param name        the name
+     * @param id          the gauge id
      * @param labelValues the label values
      */
-    public static void gaugeDec(final String name, final String[] labelValues) {
-        METRIC_REGISTER.gaugeDec(name, labelValues);
+    public static void gaugeDec(final int id, final String[] labelValues) {
+        if (!publish(RecordEvent.GAUGE_DEC, id, labelValues, RecordEvent.ARRAY_ARITY, null, null, null, null, 0L)) {
+            GAUGES.get(id).dec(labelValues);
+        }
+    }
+    
+    /**
+     * Gauge dec of a metric without labels.
+     *
+     * @param id the gauge id
+     */
+    public static void gaugeDec(final int id) {
+        if (!publish(RecordEvent.GAUGE_DEC, id, null, 0, null, null, null, null, 0L)) {
+            GAUGES.get(id).dec(null);
+        }
+    }
+    
+    /**
+     * Gauge dec of one label value.
+     *
+     * @param id the gauge id
+     * @param v1 the label value
+     */
+    public static void gaugeDec(final int id, final String v1) {
+        if (!publish(RecordEvent.GAUGE_DEC, id, null, 1, v1, null, null, null, 0L)) {
+            GAUGES.get(id).labels(v1).dec();
+        }
+    }
+    
+    /**
+     * Gauge dec of two label values.
+     *
+     * @param id the gauge id
+     * @param v1 the first label value
+     * @param v2 the second label value
+     */
+    public static void gaugeDec(final int id, final String v1, final String v2) {
+        if (!publish(RecordEvent.GAUGE_DEC, id, null, 2, v1, v2, null, null, 0L)) {
+            GAUGES.get(id).labels(v1, v2).dec();
+        }
+    }
+    
+    /**
+     * Gauge dec of three label values.
+     *
+     * @param id the gauge id
+     * @param v1 the first label value
+     * @param v2 the second label value
+     * @param v3 the third label value
+     */
+    public static void gaugeDec(final int id, final String v1, final String v2, final String v3) {
+        if (!publish(RecordEvent.GAUGE_DEC, id, null, 3, v1, v2, v3, null, 0L)) {
+            GAUGES.get(id).labels(v1, v2, v3).dec();
+        }
+    }
+    
+    /**
+     * Gauge dec of four label values.
+     *
+     * @param id the gauge id
+     * @param v1 the first label value
+     * @param v2 the second label value
+     * @param v3 the third label value
+     * @param v4 the fourth label value
+     */
+    public static void gaugeDec(final int id, final String v1, final String v2, final String v3, final String v4) {
+        if (!publish(RecordEvent.GAUGE_DEC, id, null, 4, v1, v2, v3, v4, 0L)) {
+            GAUGES.get(id).labels(v1, v2, v3, v4).dec();
+        }
+    }
+    
+    /**
+     * Decide whether a sampled probe times this call, one call out of {@code every} on average.
+     * It reads the per thread random of {@link ThreadLocalRandom}, there is no shared state to contend on.
+     *
+     * @param every the sample interval
+     * @return true when the call is timed
+     */
+    public static boolean sample(final int every) {
+        return ThreadLocalRandom.current().nextInt(every) == 0;
+    }
+    
+    /**
+     * Start measuring a probe execution, decides whether the execution is sampled.
+     *
+     * @return the bytes the thread allocated so far, or {@link ProbeOverhead#NOT_SAMPLED}
+     */
+    public static long probeAllocatedBytes() {
+        return PROBE_OVERHEAD.allocatedBytes();
+    }
+    
+    /**
+     * Read the start time of a probe execution.
+     *
+     * @param allocatedBytes the value returned by {@link #probeAllocatedBytes()}
+     * @return the nano time, or 0 when the execution is not sampled
+     */
+    public static long probeStart(final long allocatedBytes) {
+        return ProbeOverhead.NOT_SAMPLED == allocatedBytes ? 0L : System.nanoTime();
+    }
+    
+    /**
+     * End a probe execution.
+     *
+     * @param probeId        the probe id
+     * @param start          the value returned by {@link #probeStart(long)}
+     * @param allocatedBytes the value returned by {@link #probeAllocatedBytes()}
+     */
+    public static void probeExit(final int probeId, final long start, final long allocatedBytes) {
+        PROBE_OVERHEAD.exit(probeId, start, allocatedBytes);
     }
     
     /**
      * Record time.
      *
-     * @param name        the name
+     * @param id          the histogram id
      * @param labelValues the label values
      * @param duration    the duration
      */
-    public static void recordTime(final String name, final String[] labelValues, final long duration) {
-        METRIC_REGISTER.recordTime(name, labelValues, duration);
+    public static void recordTime(final int id, final String[] labelValues, final long duration) {
+        if (!publish(RecordEvent.HISTOGRAM_OBSERVE, id, labelValues, RecordEvent.ARRAY_ARITY, null, null, null, null, duration)) {
+            HISTOGRAMS.get(id).observe(labelValues, duration);
+        }
     }
-
+    
+    /**
+     * Record time of a metric without labels.
+     *
+     * @param id       the histogram id
+     * @param duration the duration
+     */
+    public static void recordTime(final int id, final long duration) {
+        if (!publish(RecordEvent.HISTOGRAM_OBSERVE, id, null, 0, null, null, null, null, duration)) {
+            HISTOGRAMS.get(id).observe(null, duration);
+        }
+    }
+    
+    /**
+     * Record time of one label value.
+     *
+     * @param id       the histogram id
+     * @param v1       the label value
+     * @param duration the duration
+     */
+    public static void recordTime(final int id, final String v1, final long duration) {
+        if (!publish(RecordEvent.HISTOGRAM_OBSERVE, id, null, 1, v1, null, null, null, duration)) {
+            HISTOGRAMS.get(id).labels(v1).observe(duration);
+        }
+    }
+    
+    /**
+     * Record time of two label values.
+     *
+     * @param id       the histogram id
+     * @param v1       the first label value
+     * @param v2       the second label value
+     * @param duration the duration
+     */
+    public static void recordTime(final int id, final String v1, final String v2, final long duration) {
+        if (!publish(RecordEvent.HISTOGRAM_OBSERVE, id, null, 2, v1, v2, null, null, duration)) {
+            HISTOGRAMS.get(id).labels(v1, v2).observe(duration);
+        }
+    }
+    
+    /**
+     * Record time of three label values.
+     *
+     * @param id       the histogram id
+     * @param v1       the first label value
+     * @param v2       the second label value
+     * @param v3       the third label value
+     * @param duration the duration
+     */
+    public static void recordTime(final int id, final String v1, final String v2, final String v3, final long duration) {
+        if (!publish(RecordEvent.HISTOGRAM_OBSERVE, id, null, 3, v1, v2, v3, null, duration)) {
+            HISTOGRAMS.get(id).labels(v1, v2, v3).observe(duration);
+        }
+    }
+    
+    /**
+     * Record time of four label values.
+     *
+     * @param id       the histogram id
+     * @param v1       the first label value
+     * @param v2       the second label value
+     * @param v3       the third label value
+     * @param v4       the fourth label value
+     * @param duration the duration
+     */
+    public static void recordTime(final int id, final String v1, final String v2, final String v3, final String v4, final long duration) {
+        if (!publish(RecordEvent.HISTOGRAM_OBSERVE, id, null, 4, v1, v2, v3, v4, duration)) {
+            HISTOGRAMS.get(id).labels(v1, v2, v3, v4).observe(duration);
+        }
+    }
+    
+    private static boolean publish(final int op, final int id, final Object target, final int arity,
+                                   final String v1, final String v2, final String v3, final String v4, final long value) {
+        return null != ASYNC_RECORDER && ASYNC_RECORDER.publish(op, id, target, arity, v1, v2, v3, v4, value);
+    }
+    
     private static String[] getLabelNames(final List<String> labels) {
         return MetricsLabelUtils.getLabelNames(labels);
     }
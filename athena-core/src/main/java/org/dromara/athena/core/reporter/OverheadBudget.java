@@ -0,0 +1,289 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.reporter;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.dromara.athena.spi.CounterMetric;
+import org.dromara.athena.spi.GaugeMetric;
+import org.dromara.athena.spi.MetricRegister;
+
+/**
+ * The type Overhead budget, keeps the estimated cpu time of the probes under a share of the process cpu time.
+ * Every {@code overheadBudgetIntervalMillis} it compares the time measured by the {@link ProbeOverhead} with the
+ * {@code overheadBudget} share of the cpu time the process used. Over the budget the most expensive metrics are sampled
+ * half as often, one step per metric and interval, and switched off past {@value #MAX_SAMPLE_EVERY}; under half the
+ * budget they are stepped back towards every call. Only histograms whose probes are reached through a call site of the
+ * {@link ProbeSwitches} are sampled, each recorded call is counted for the calls left out, see {@link BudgetHistogramMetric}.
+ * Counters and gauges are never sampled, a gauge that missed some calls would drift away for good. Those call sites need
+ * {@code probeHelpers} and {@code switchableProbes} on classes that get members added as they load, without them
+ * the budget is refused when the reporter starts.
+ * The sample interval of each adjusted metric, the adjustments and the estimated overhead are exported as metrics.
+ *
+ * @author xiaoyu
+ */
+public final class OverheadBudget implements Runnable {
+    
+    private static final String BUDGET_KEY = "overheadBudget";
+    
+    private static final String INTERVAL_KEY = "overheadBudgetIntervalMillis";
+    
+    private static final String PROBE_HELPERS_KEY = "probeHelpers";
+    
+    private static final String SWITCHABLE_PROBES_KEY = "switchableProbes";
+    
+    private static final long DEFAULT_INTERVAL_MILLIS = 5000L;
+    
+    private static final int MAX_SAMPLE_EVERY = 1024;
+    
+    private static final double PPM = 1_000_000D;
+    
+    private static final String THROTTLE = "throttle";
+    
+    private static final String DISABLE = "disable";
+    
+    private static final String RELAX = "relax";
+    
+    private static volatile boolean refused;
+    
+    private final double budget;
+    
+    private final long intervalMillis;
+    
+    private final ProbeOverhead overhead;
+    
+    private final com.sun.management.OperatingSystemMXBean osBean;
+    
+    private final GaugeMetric.Child overheadPpm;
+    
+    private final GaugeMetric sampleEveryGauge;
+    
+    private final CounterMetric adjustments;
+    
+    private final Map<String, ProbeBudget> probes = new HashMap<>();
+    
+    private long lastCpuNanos;
+    
+    private long lastOverheadPpm;
+    
+    private OverheadBudget(final double budget, final long intervalMillis, final MetricRegister register,
+                           final ProbeOverhead overhead, final com.sun.management.OperatingSystemMXBean osBean) {
+        this.budget = budget;
+        this.intervalMillis = intervalMillis;
+        this.overhead = overhead;
+        this.osBean = osBean;
+        this.overheadPpm = register.registerGauge("athena_budget_overhead_ppm", null,
+                "the estimated cpu time of the athena probes in parts per million of the process cpu time", 0).labels((String[]) null);
+        this.sampleEveryGauge = register.registerGauge("athena_budget_sample_every", new String[]{"metric"},
+                "one call out of this many runs the probes of the metric, 0 when they are switched off by the budget", 0);
+        this.adjustments = register.registerCounter("athena_budget_adjustments_total", new String[]{"metric", "action"},
+                "the sample interval changes made to keep the athena probes under the overhead budget", 0);
+        this.lastCpuNanos = osBean.getProcessCpuTime();
+    }
+    
+    /**
+     * Refuse a configured budget, the classes are instrumented without added members so their probes get no call site
+     * to sample. It has to be called before the reporter starts.
+     */
+    public static void refuse() {
+        refused = true;
+    }
+    
+    /**
+     * Gets the budget, when the probes can be sampled.
+     *
+     * @param configMap the config map
+     * @return the share of the process cpu time the probes may use, 0 or less when there is no budget
+     */
+    static double getBudget(final Map<String, Object> configMap) {
+        return isSampled(configMap) ? getConfiguredBudget(configMap) : 0D;
+    }
+    
+    /**
+     * Start the budget thread when the config asks for a budget.
+     *
+     * @param configMap the config map
+     * @param register  the metric register
+     * @param overhead  the probe overhead, created whenever there is a budget
+     * @return whether the budget is started
+     */
+    static boolean start(final Map<String, Object> configMap, final MetricRegister register, final ProbeOverhead overhead) {
+        double budget = getConfiguredBudget(configMap);
+        if (budget <= 0D) {
+            return false;
+        }
+        if (!isSampled(configMap) || null == overhead) {
+            System.err.println("athena can not sample the probes without probeHelpers and switchableProbes on classes that get members added, the overhead budget is ignored");
+            return false;
+        }
+        OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+        if (!(bean instanceof com.sun.management.OperatingSystemMXBean) || ((com.sun.management.OperatingSystemMXBean) bean).getProcessCpuTime() < 0L) {
+            System.err.println("athena can not read the process cpu time, the overhead budget is ignored");
+            return false;
+        }
+        Object interval = configMap.get(INTERVAL_KEY);
+        OverheadBudget result = new OverheadBudget(budget, null == interval ? DEFAULT_INTERVAL_MILLIS : Long.parseLong(interval.toString()),
+                register, overhead, (com.sun.management.OperatingSystemMXBean) bean);
+        Thread thread = new Thread(result, "athena-overhead-budget");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+    
+    private static double getConfiguredBudget(final Map<String, Object> configMap) {
+        Object budget = null == configMap ? null : configMap.get(BUDGET_KEY);
+        return null == budget || budget.toString().trim().isEmpty() ? 0D : Double.parseDouble(budget.toString());
+    }
+    
+    private static boolean isSampled(final Map<String, Object> configMap) {
+        return !refused && null != configMap && Boolean.parseBoolean(String.valueOf(configMap.get(PROBE_HELPERS_KEY)))
+                && Boolean.parseBoolean(String.valueOf(configMap.get(SWITCHABLE_PROBES_KEY)));
+    }
+    
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Thread.sleep(intervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            adjust();
+        }
+    }
+    
+    private void adjust() {
+        long cpuNanos = osBean.getProcessCpuTime();
+        long cpuDelta = cpuNanos - lastCpuNanos;
+        lastCpuNanos = cpuNanos;
+        if (cpuDelta <= 0L) {
+            return;
+        }
+        long spent = 0L;
+        List<ProbeBudget> candidates = new ArrayList<>();
+        for (int i = 0; i < overhead.size(); i++) {
+            String metricName = overhead.getMetricName(i);
+            ProbeBudget probe = probes.computeIfAbsent(metricName, ProbeBudget::new);
+            probe.measure(overhead.getEstimatedNanos(i));
+            spent += probe.cost;
+            BudgetHistogramMetric histogram = MetricsReporter.getBudgetHistogram(metricName);
+            if (null != histogram && ProbeSwitches.hasCallSites(metricName)) {
+                probe.bind(histogram);
+                candidates.add(probe);
+            }
+        }
+        long ppm = (long) (spent * PPM / cpuDelta);
+        overheadPpm.add(ppm - lastOverheadPpm);
+        lastOverheadPpm = ppm;
+        long allowed = (long) (cpuDelta * budget);
+        if (spent > allowed) {
+            throttle(candidates, spent, allowed);
+        } else if (spent < allowed / 2) {
+            relax(candidates, spent, allowed / 2);
+        }
+    }
+    
+    private void throttle(final List<ProbeBudget> candidates, final long spent, final long allowed) {
+        candidates.sort(Comparator.comparingLong((ProbeBudget probe) -> probe.cost).reversed());
+        long remaining = spent;
+        for (ProbeBudget each : candidates) {
+            if (remaining <= allowed || each.cost <= 0L) {
+                return;
+            }
+            int next = each.sampleEvery * 2;
+            if (next > MAX_SAMPLE_EVERY) {
+                each.apply(0, DISABLE);
+                remaining -= each.cost;
+            } else {
+                each.apply(next, THROTTLE);
+                remaining -= each.cost / 2;
+            }
+        }
+    }
+    
+    private void relax(final List<ProbeBudget> candidates, final long spent, final long allowed) {
+        candidates.sort(Comparator.comparingLong((ProbeBudget probe) -> probe.fullRateCost));
+        long projected = spent;
+        for (ProbeBudget each : candidates) {
+            if (1 == each.sampleEvery) {
+                continue;
+            }
+            int next = 0 == each.sampleEvery ? MAX_SAMPLE_EVERY : each.sampleEvery / 2;
+            long extra = each.fullRateCost / next - (0 == each.sampleEvery ? 0L : each.fullRateCost / each.sampleEvery);
+            if (projected + extra > allowed) {
+                return;
+            }
+            each.apply(next, RELAX);
+            projected += extra;
+        }
+    }
+    
+    /**
+     * The budget state of the probes of one metric.
+     */
+    private final class ProbeBudget {
+        
+        private final String metricName;
+        
+        private long lastNanos;
+        
+        private long cost;
+        
+        private long fullRateCost;
+        
+        private int sampleEvery = 1;
+        
+        private int reportedSampleEvery;
+        
+        private BudgetHistogramMetric histogram;
+        
+        ProbeBudget(final String metricName) {
+            this.metricName = metricName;
+        }
+        
+        void bind(final BudgetHistogramMetric histogram) {
+            // a metric registered again gets a new histogram, which has to weigh its observations as well.
+            if (histogram != this.histogram) {
+                this.histogram = histogram;
+                histogram.setSampleEvery(sampleEvery);
+            }
+        }
+        
+        void measure(final long nanos) {
+            cost = nanos - lastNanos;
+            lastNanos = nanos;
+            if (sampleEvery > 0 && cost > 0L) {
+                fullRateCost = cost * sampleEvery;
+            }
+        }
+        
+        void apply(final int next, final String action) {
+            sampleEvery = next;
+            histogram.setSampleEvery(next);
+            ProbeSwitches.setSampleEvery(metricName, next);
+            adjustments.labels(metricName, action).inc();
+            sampleEveryGauge.labels(metricName).add(next - reportedSampleEvery);
+            reportedSampleEvery = next;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.reporter;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import org.dromara.athena.spi.CounterMetric;
+import org.dromara.athena.spi.MetricRegister;
+
+/**
+ * The type Probe overhead, measures what the injected probes of each metric cost the instrumented threads.
+ * Every probe execution is counted, the time spent in the probe and the bytes it allocated are measured on
+ * one execution out of {@code probeOverheadSampleEvery} and scaled back up, they are exported as the
+ * {@code athena_probe_*} counters labelled by metric through the active metric register.
+ * It is also measured when an {@link OverheadBudget} is configured, which reads the estimated time of each metric.
+ *
+ * @author xiaoyu
+ */
+public final class ProbeOverhead {
+    
+    /**
+     * The value returned by {@link #allocatedBytes()} for an execution that is not measured.
+     */
+    public static final long NOT_SAMPLED = -1L;
+    
+    private static final String ENABLED_KEY = "probeOverhead";
+    
+    private static final String SAMPLE_EVERY_KEY = "probeOverheadSampleEvery";
+    
+    private static final int DEFAULT_SAMPLE_EVERY = 64;
+    
+    private static final String[] LABEL_NAMES = {"metric"};
+    
+    private final int sampleEvery;
+    
+    private final CounterMetric executions;
+    
+    private final CounterMetric nanos;
+    
+    private final CounterMetric allocated;
+    
+    private final com.sun.management.ThreadMXBean threadBean;
+    
+    private final MetricHandles<ProbeStats> probes = new MetricHandles<>();
+    
+    private ProbeOverhead(final int sampleEvery, final MetricRegister register) {
+        this.sampleEvery = sampleEvery;
+        this.executions = register.registerCounter("athena_probe_executions_total", LABEL_NAMES, "the executions of the athena probes", 0);
+        this.nanos = register.registerCounter("athena_probe_nanos_total", LABEL_NAMES, "the estimated nanoseconds spent in the athena probes", 0);
+        this.allocated = register.registerCounter("athena_probe_allocated_bytes_total", LABEL_NAMES, "the estimated bytes allocated by the athena probes", 0);
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            threadBean = (com.sun.management.ThreadMXBean) bean;
+            threadBean.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            threadBean = null;
+        }
+    }
+    
+    /**
+     * Whether the config asks for the probe overhead, directly or through an overhead budget.
+     *
+     * @param configMap the config map
+     * @return the boolean
+     */
+    public static boolean isMeasured(final Map<String, Object> configMap) {
+        return null != configMap && (Boolean.parseBoolean(String.valueOf(configMap.get(ENABLED_KEY))) || OverheadBudget.getBudget(configMap) > 0D);
+    }
+    
+    /**
+     * Create the probe overhead when the config asks for it.
+     *
+     * @param configMap the config map
+     * @param register  the metric register
+     * @return the probe overhead, or null when it is not measured
+     */
+    static ProbeOverhead create(final Map<String, Object> configMap, final MetricRegister register) {
+        if (!isMeasured(configMap)) {
+            return null;
+        }
+        Object sampleEvery = configMap.get(SAMPLE_EVERY_KEY);
+        return new ProbeOverhead(null == sampleEvery ? DEFAULT_SAMPLE_EVERY : Math.max(1, Integer.parseInt(sampleEvery.toString())), register);
+    }
+    
+    /**
+     * Register the probes of a metric.
+     *
+     * @param metricName the metric name
+     * @return the probe id
+     */
+    int register(final String metricName) {
+        return probes.register(metricName, () -> new ProbeStats(metricName, executions.labels(metricName), nanos.labels(metricName), allocated.labels(metricName)));
+    }
+    
+    /**
+     * Gets the number of registered probes, the probe ids are 0 to size - 1.
+     *
+     * @return the size
+     */
+    int size() {
+        return probes.size();
+    }
+    
+    /**
+     * Gets the metric name of a probe.
+     *
+     * @param probeId the probe id
+     * @return the metric name
+     */
+    String getMetricName(final int probeId) {
+        return probes.get(probeId).metricName;
+    }
+    
+    /**
+     * Gets the estimated nanoseconds spent in a probe since it was registered.
+     *
+     * @param probeId the probe id
+     * @return the estimated nanoseconds
+     */
+    long getEstimatedNanos(final int probeId) {
+        return probes.get(probeId).estimatedNanos.sum();
+    }
+    
+    /**
+     * Decide whether this execution is measured and read the bytes the thread allocated so far.
+     *
+     * @return the allocated bytes, 0 when the jvm does not track them, or {@link #NOT_SAMPLED}
+     */
+    long allocatedBytes() {
+        if (ThreadLocalRandom.current().nextInt(sampleEvery) != 0) {
+            return NOT_SAMPLED;
+        }
+        return currentAllocatedBytes();
+    }
+    
+    /**
+     * Record the end of a probe execution.
+     *
+     * @param probeId             the probe id
+     * @param start               the nano time the probe started, 0 when it is not measured
+     * @param startAllocatedBytes the allocated bytes when the probe started
+     */
+    void exit(final int probeId, final long start, final long startAllocatedBytes) {
+        ProbeStats stats = probes.get(probeId);
+        stats.executions.inc();
+        if (0L == start) {
+            return;
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocatedBytes = currentAllocatedBytes() - startAllocatedBytes;
+        stats.nanos.inc(elapsed * sampleEvery);
+        stats.estimatedNanos.add(elapsed * sampleEvery);
+        if (allocatedBytes > 0L) {
+            stats.allocated.inc(allocatedBytes * sampleEvery);
+        }
+    }
+    
+    private long currentAllocatedBytes() {
+        return null == threadBean ? 0L : threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    
+    private static final class ProbeStats {
+        
+        private final String metricName;
+        
+        private final LongAdder estimatedNanos = new LongAdder();
+        
+        private final CounterMetric.Child executions;
+        
+        private final CounterMetric.Child nanos;
+        
+        private final CounterMetric.Child allocated;
+        
+        ProbeStats(final String metricName, final CounterMetric.Child executions, final CounterMetric.Child nanos, final CounterMetric.Child allocated) {
+            this.metricName = metricName;
+            this.executions = executions;
+            this.nanos = nanos;
+            this.allocated = allocated;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.reporter;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * The type Probe switches, turns the probes of a metric on and off while the application runs.
+ * The instrumented method reaches its probe helper through an invokedynamic call site bound by {@link #bootstrap},
+ * the site is a {@link MutableCallSite} whose target is either the helper or a no-op that drops the arguments.
+ * The JIT treats the target as a constant, so a switched off probe is compiled away and switching
+ * deoptimizes the methods that inlined the old target.
+ * Only the probes of a class transformed with {@code probeHelpers} and {@code switchableProbes} while it loads get such
+ * a site; without one a metric can not be switched here, and a metric configured with {@code enabled: false} is not instrumented.
+ * Besides the switch a metric has a sample interval, set by the {@link OverheadBudget} for histograms only: a site sampled
+ * every n calls runs its helper behind a random one in n test, so the metric records about 1/n of the calls and counts each for n.
+ * The enter probe of a timed or non reentrant metric leaves a value for its exit probe and is bound by {@link #bootstrapValue}:
+ * switched off it returns zero without running the helper, and the calls left out by the sample interval run the helper with
+ * a last argument of false, so it still counts the frame of a non reentrant metric but does not time the call.
+ *
+ * @author xiaoyu
+ */
+public final class ProbeSwitches implements ProbeSwitchesMBean {
+    
+    /**
+     * The object name the switches are registered under in the platform mbean server.
+     */
+    public static final String OBJECT_NAME = "org.dromara.athena:type=ProbeSwitches";
+    
+    private static final ProbeSwitches INSTANCE = new ProbeSwitches();
+    
+    private static final MethodHandle NOOP;
+    
+    private static final MethodHandle SAMPLE;
+    
+    private final Map<String, Switch> switches = new ConcurrentHashMap<>();
+    
+    static {
+        try {
+            NOOP = MethodHandles.lookup().findStatic(ProbeSwitches.class, "noop", MethodType.methodType(void.class));
+            SAMPLE = MethodHandles.lookup().findStatic(MetricsReporter.class, "sample", MethodType.methodType(boolean.class, int.class));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    private ProbeSwitches() {
+    }
+    
+    /**
+     * Declare the switch of a metric, only the first declaration of a name sets its initial state.
+     *
+     * @param metricName the metric name
+     * @param enabled    whether the probes start switched on
+     */
+    public static void declare(final String metricName, final boolean enabled) {
+        INSTANCE.switches.computeIfAbsent(metricName, key -> new Switch(enabled));
+    }
+    
+    /**
+     * Switch the probes of a metric on or off, only the probes reached through a call site can be switched.
+     *
+     * @param metricName the metric name
+     * @param enabled    whether the probes are switched on
+     * @return false when there is no metric of that name with a call site, its probes are left as they are
+     */
+    public static boolean setEnabled(final String metricName, final boolean enabled) {
+        Switch each = INSTANCE.switches.get(metricName);
+        if (null == each || !each.hasSites()) {
+            return false;
+        }
+        each.setEnabled(enabled);
+        return true;
+    }
+    
+    /**
+     * Whether the probes of a metric are switched on, a metric without a switch always is.
+     *
+     * @param metricName the metric name
+     * @return the boolean
+     */
+    public static boolean isEnabled(final String metricName) {
+        Switch each = INSTANCE.switches.get(metricName);
+        return null == each || each.enabled;
+    }
+    
+    /**
+     * Set how often the probes of a metric run, independently of its switch.
+     *
+     * @param metricName  the metric name
+     * @param sampleEvery 1 to run every call, n to run one call out of n, 0 to skip every call
+     * @return false when there is no metric of that name
+     */
+    public static boolean setSampleEvery(final String metricName, final int sampleEvery) {
+        Switch each = INSTANCE.switches.get(metricName);
+        if (null == each) {
+            return false;
+        }
+        each.setSampleEvery(sampleEvery);
+        return true;
+    }
+    
+    /**
+     * Gets how often the probes of a metric run.
+     *
+     * @param metricName the metric name
+     * @return 1 when every call runs them, n for one call out of n, 0 for none
+     */
+    public static int getSampleEvery(final String metricName) {
+        Switch each = INSTANCE.switches.get(metricName);
+        return null == each ? 1 : each.sampleEvery;
+    }
+    
+    /**
+     * Whether a metric has probes reached through a call site, only those can be switched or sampled.
+     *
+     * @param metricName the metric name
+     * @return the boolean
+     */
+    public static boolean hasCallSites(final String metricName) {
+        Switch each = INSTANCE.switches.get(metricName);
+        return null != each && each.hasSites();
+    }
+    
+    /**
+     * Bootstrap the invokedynamic call site of a probe.
+     *
+     * @param lookup     the lookup of the instrumented class
+     * @param name       the name of the call site
+     * @param type       the type of the call site, the type of the probe helper
+     * @param probe      the probe helper
+     * @param metricName the metric name
+     * @return the call site
+     */
+    public static CallSite bootstrap(final MethodHandles.Lookup lookup, final String name, final MethodType type, final MethodHandle probe, final String metricName) {
+        MethodHandle disabled = MethodHandles.dropArguments(NOOP, 0, type.parameterArray());
+        return INSTANCE.add(metricName, new ProbeSite(probe, disabled, disabled));
+    }
+    
+    /**
+     * Bootstrap the invokedynamic call site of a probe that returns a value, whose helper takes a last boolean argument
+     * telling whether the call is sampled.
+     *
+     * @param lookup     the lookup of the instrumented class
+     * @param name       the name of the call site
+     * @param type       the type of the call site, the type of the probe helper without its last argument
+     * @param probe      the probe helper
+     * @param metricName the metric name
+     * @return the call site
+     */
+    public static CallSite bootstrapValue(final MethodHandles.Lookup lookup, final String name, final MethodType type, final MethodHandle probe, final String metricName) {
+        MethodHandle zero = MethodHandles.explicitCastArguments(MethodHandles.constant(int.class, 0), MethodType.methodType(type.returnType()));
+        MethodHandle disabled = MethodHandles.dropArguments(zero, 0, type.parameterArray());
+        int sampledIndex = type.parameterCount();
+        return INSTANCE.add(metricName, new ProbeSite(MethodHandles.insertArguments(probe, sampledIndex, true), MethodHandles.insertArguments(probe, sampledIndex, false), disabled));
+    }
+    
+    @Override
+    public String[] getMetricNames() {
+        return switches.entrySet().stream().filter(entry -> entry.getValue().hasSites()).map(Map.Entry::getKey).sorted().toArray(String[]::new);
+    }
+    
+    @Override
+    public String[] getDisabledMetricNames() {
+        return switches.entrySet().stream().filter(entry -> entry.getValue().hasSites() && !entry.getValue().enabled).map(Map.Entry::getKey).sorted().toArray(String[]::new);
+    }
+    
+    @Override
+    public void enable(final String metricName) {
+        checkSwitched(setEnabled(metricName, true), metricName);
+    }
+    
+    @Override
+    public void disable(final String metricName) {
+        checkSwitched(setEnabled(metricName, false), metricName);
+    }
+    
+    private ProbeSite add(final String metricName, final ProbeSite site) {
+        switches.computeIfAbsent(metricName, key -> new Switch(true)).add(site);
+        return site;
+    }
+    
+    private static void checkSwitched(final boolean switched, final String metricName) {
+        if (!switched) {
+            throw new IllegalArgumentException("there is no switchable probe of the metric : " + metricName);
+        }
+    }
+    
+    private static void noop() {
+    }
+    
+    /**
+     * The switch of one metric and the call sites of its probes.
+     */
+    private static final class Switch {
+        
+        private final List<WeakReference<ProbeSite>> sites = new ArrayList<>();
+        
+        private volatile boolean enabled;
+        
+        private volatile int sampleEvery = 1;
+        
+        Switch(final boolean enabled) {
+            this.enabled = enabled;
+        }
+        
+        synchronized void add(final ProbeSite site) {
+            site.switchTo(enabled, sampleEvery);
+            sites.add(new WeakReference<>(site));
+        }
+        
+        synchronized boolean hasSites() {
+            return !sites.isEmpty();
+        }
+        
+        synchronized void setEnabled(final boolean enabled) {
+            this.enabled = enabled;
+            switchSites();
+        }
+        
+        synchronized void setSampleEvery(final int sampleEvery) {
+            this.sampleEvery = Math.max(0, sampleEvery);
+            switchSites();
+        }
+        
+        private void switchSites() {
+            List<MutableCallSite> switched = new ArrayList<>(sites.size());
+            Iterator<WeakReference<ProbeSite>> iterator = sites.iterator();
+            while (iterator.hasNext()) {
+                ProbeSite site = iterator.next().get();
+                if (null == site) {
+                    // the class of the call site was unloaded.
+                    iterator.remove();
+                } else {
+                    site.switchTo(enabled, sampleEvery);
+                    switched.add(site);
+                }
+            }
+            MutableCallSite.syncAll(switched.toArray(new MutableCallSite[0]));
+        }
+    }
+    
+    /**
+     * The call site of one probe.
+     */
+    private static final class ProbeSite extends MutableCallSite {
+        
+        private final MethodHandle probe;
+        
+        private final MethodHandle unsampled;
+        
+        private final MethodHandle disabled;
+        
+        ProbeSite(final MethodHandle probe, final MethodHandle unsampled, final MethodHandle disabled) {
+            super(probe.type());
+            this.probe = probe;
+            this.unsampled = unsampled;
+            this.disabled = disabled;
+        }
+        
+        void switchTo(final boolean enabled, final int sampleEvery) {
+            if (!enabled || 0 == sampleEvery) {
+                setTarget(disabled);
+            } else if (1 == sampleEvery) {
+                setTarget(probe);
+            } else {
+                setTarget(MethodHandles.guardWithTest(MethodHandles.insertArguments(SAMPLE, 0, sampleEvery), probe, unsampled));
+            }
+        }
+    }
+}
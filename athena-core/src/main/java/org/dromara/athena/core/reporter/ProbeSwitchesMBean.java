@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.reporter;
+
+/**
+ * The interface Probe switches mbean, turns the probes of a metric on and off at runtime over JMX.
+ *
+ * @author xiaoyu
+ */
+public interface ProbeSwitchesMBean {
+    
+    /**
+     * Gets the names of the metrics whose probes can be switched.
+     *
+     * @return the metric names
+     */
+    String[] getMetricNames();
+    
+    /**
+     * Gets the names of the metrics whose probes are switched off.
+     *
+     * @return the metric names
+     */
+    String[] getDisabledMetricNames();
+    
+    /**
+     * Switch on the probes of a metric.
+     *
+     * @param metricName the metric name
+     */
+    void enable(String metricName);
+    
+    /**
+     * Switch off the probes of a metric.
+     *
+     * @param metricName the metric name
+     */
+    void disable(String metricName);
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.reporter;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * The type Record event, one preallocated slot of the event ring.
+ * The probe fills in the primitive fields and the label values it already holds, the
+ * series lookup and the aggregation are left to the recorder thread.
+ *
+ * @author xiaoyu
+ */
+@Getter(AccessLevel.PACKAGE)
+final class RecordEvent {
+    
+    static final int COUNTER_INC = 0;
+    
+    static final int GAUGE_INC = 1;
+    
+    static final int GAUGE_DEC = 2;
+    
+    static final int HISTOGRAM_OBSERVE = 3;
+    
+    static final int SERIES_COUNTER_INC = 4;
+    
+    static final int SERIES_GAUGE_INC = 5;
+    
+    static final int SERIES_GAUGE_DEC = 6;
+    
+    static final int SERIES_HISTOGRAM_OBSERVE = 7;
+    
+    static final int SERIES_GAUGE_ADD = 8;
+    
+    /**
+     * The op of a series observation that stands for more than one call, the number of calls is carried in the id.
+     */
+    static final int SERIES_HISTOGRAM_OBSERVE_COUNT = 9;
+    
+    /**
+     * The arity of an event that carries its label values as an array in the target.
+     */
+    static final int ARRAY_ARITY = -1;
+    
+    private int op;
+    
+    private int id;
+    
+    private Object target;
+    
+    private int arity;
+    
+    private String v1;
+    
+    private String v2;
+    
+    private String v3;
+    
+    private String v4;
+    
+    private long value;
+    
+    void set(final int op, final int id, final Object target, final int arity,
+             final String v1, final String v2, final String v3, final String v4, final long value) {
+        this.op = op;
+        this.id = id;
+        this.target = target;
+        this.arity = arity;
+        this.v1 = v1;
+        this.v2 = v2;
+        this.v3 = v3;
+        this.v4 = v4;
+        this.value = value;
+    }
+    
+    /**
+     * Drop the references so the ring does not keep label values or series alive.
+     */
+    void clear() {
+        target = null;
+        v1 = null;
+        v2 = null;
+        v3 = null;
+        v4 = null;
+    }
+    
+    /**
+     * Get the label values as an array, only called for the events of the array arity and of no label.
+     *
+     * @return the label values
+     */
+    String[] getLabelValues() {
+        return ARRAY_ARITY == arity ? (String[]) target : null;
+    }
+}
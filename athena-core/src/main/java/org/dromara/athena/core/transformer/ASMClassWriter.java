@@ -17,13 +17,11 @@
 
 package org.dromara.athena.core.transformer;
 
-import java.io.IOException;
-import java.io.InputStream;
 import java.util.HashSet;
 import java.util.Set;
+import org.dromara.athena.core.transformer.ClassHeaders.ClassHeader;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassWriter;
-import org.objectweb.asm.Opcodes;
 
 /**
  * We need to override the getCommonSuperClass method of ClassWriter as the default implementation
@@ -43,6 +41,19 @@ public final class ASMClassWriter extends ClassWriter {
         this.classLoader = classLoader;
     }
 
+    /**
+     * Instantiates a new writer that copies the constant pool of the class reader, the methods the reader hands
+     * straight to this writer are copied as they are without being parsed and written again.
+     *
+     * @param classReader the class reader of the class
+     * @param flags       the flags
+     * @param classLoader the class loader of the class
+     */
+    public ASMClassWriter(final ClassReader classReader, final int flags, final ClassLoader classLoader) {
+        super(classReader, flags);
+        this.classLoader = classLoader;
+    }
+
     @Override
     protected String getCommonSuperClass(final String classInternalName1, final String classInternalName2) {
         return get(classInternalName1, classInternalName2);
@@ -58,56 +69,56 @@ public final class ASMClassWriter extends ClassWriter {
             // two equal.
             return classInternalName1;
         }
-        final ClassReader classReader1 = getClassReader(classInternalName1);
-        if (classReader1 == null) {
+        final ClassHeader classHeader1 = getClassHeader(classInternalName1);
+        if (classHeader1 == null) {
             return OBJECT_CLASS_INTERNAL_NAME;
         }
-        final ClassReader classReader2 = getClassReader(classInternalName2);
-        if (classReader2 == null) {
+        final ClassHeader classHeader2 = getClassHeader(classInternalName2);
+        if (classHeader2 == null) {
             return OBJECT_CLASS_INTERNAL_NAME;
         }
         // interface.
-        if (isInterface(classReader1)) {
+        if (isInterface(classHeader1)) {
             // <interface, class> or <interface, interface>
-            return getCommonInterface(classReader1, classReader2);
+            return getCommonInterface(classHeader1, classHeader2);
         }
         // interface.
-        if (isInterface(classReader2)) {
+        if (isInterface(classHeader2)) {
             // <class, interface>
-            return getCommonInterface(classReader2, classReader1);
+            return getCommonInterface(classHeader2, classHeader1);
         }
-        return getCommonClass(classReader1, classReader2);
+        return getCommonClass(classHeader1, classHeader2);
     }
 
-    private boolean isInterface(final ClassReader classReader) {
-        return (classReader.getAccess() & Opcodes.ACC_INTERFACE) != 0;
+    private boolean isInterface(final ClassHeader classHeader) {
+        return classHeader.isInterface();
     }
     
-    private String getCommonInterface(final ClassReader classReader1, final ClassReader classReader2) {
+    private String getCommonInterface(final ClassHeader classHeader1, final ClassHeader classHeader2) {
         final Set<String> interfaceHierarchy = new HashSet<>();
-        traversalInterfaceHierarchy(interfaceHierarchy, classReader1);
-        if (isInterface(classReader2)) {
-            if (interfaceHierarchy.contains(classReader2.getClassName())) {
-                return classReader2.getClassName();
+        traversalInterfaceHierarchy(interfaceHierarchy, classHeader1);
+        if (isInterface(classHeader2)) {
+            if (interfaceHierarchy.contains(classHeader2.getClassName())) {
+                return classHeader2.getClassName();
             }
         }
-        final String interfaceInternalName = getImplementedInterface(interfaceHierarchy, classReader2);
+        final String interfaceInternalName = getImplementedInterface(interfaceHierarchy, classHeader2);
         if (interfaceInternalName != null) {
             return interfaceInternalName;
         }
         return OBJECT_CLASS_INTERNAL_NAME;
     }
 
-    private void traversalInterfaceHierarchy(final Set<String> interfaceHierarchy, final ClassReader classReader) {
-        if (classReader != null && interfaceHierarchy.add(classReader.getClassName())) {
-            for (String interfaceInternalName : classReader.getInterfaces()) {
-                traversalInterfaceHierarchy(interfaceHierarchy, getClassReader(interfaceInternalName));
+    private void traversalInterfaceHierarchy(final Set<String> interfaceHierarchy, final ClassHeader classHeader) {
+        if (classHeader != null && interfaceHierarchy.add(classHeader.getClassName())) {
+            for (String interfaceInternalName : classHeader.getInterfaces()) {
+                traversalInterfaceHierarchy(interfaceHierarchy, getClassHeader(interfaceInternalName));
             }
         }
     }
 
-    private String getImplementedInterface(final Set<String> interfaceHierarchy, final ClassReader classReader) {
-        ClassReader cr = classReader;
+    private String getImplementedInterface(final Set<String> interfaceHierarchy, final ClassHeader classHeader) {
+        ClassHeader cr = classHeader;
         while (cr != null) {
             final String[] interfaceInternalNames = cr.getInterfaces();
             for (String name : interfaceInternalNames) {
@@ -116,7 +127,7 @@ public final class ASMClassWriter extends ClassWriter {
                 }
             }
             for (String name : interfaceInternalNames) {
-                final String interfaceInternalName = getImplementedInterface(interfaceHierarchy, getClassReader(name));
+                final String interfaceInternalName = getImplementedInterface(interfaceHierarchy, getClassHeader(name));
                 if (interfaceInternalName != null) {
                     return interfaceInternalName;
                 }
@@ -125,21 +136,21 @@ public final class ASMClassWriter extends ClassWriter {
             if (superClassInternalName == null || superClassInternalName.equals(OBJECT_CLASS_INTERNAL_NAME)) {
                 break;
             }
-            cr = getClassReader(superClassInternalName);
+            cr = getClassHeader(superClassInternalName);
         }
         return null;
     }
 
-    private String getCommonClass(final ClassReader classReader1, final ClassReader classReader2) {
+    private String getCommonClass(final ClassHeader classHeader1, final ClassHeader classHeader2) {
         final Set<String> classHierarchy = new HashSet<>();
-        classHierarchy.add(classReader1.getClassName());
-        classHierarchy.add(classReader2.getClassName());
-        String superClassInternalName1 = classReader1.getSuperName();
+        classHierarchy.add(classHeader1.getClassName());
+        classHierarchy.add(classHeader2.getClassName());
+        String superClassInternalName1 = classHeader1.getSuperName();
         if (!classHierarchy.add(superClassInternalName1)) {
             // find common super class.
             return superClassInternalName1;
         }
-        String superClassInternalName2 = classReader2.getSuperName();
+        String superClassInternalName2 = classHeader2.getSuperName();
         if (!classHierarchy.add(superClassInternalName2)) {
             // find common super class.
             return superClassInternalName2;
@@ -166,24 +177,14 @@ public final class ASMClassWriter extends ClassWriter {
     }
     
     private String getSuperClassInternalName(final String classInternalName) {
-        final ClassReader classReader = getClassReader(classInternalName);
-        if (classReader == null) {
+        final ClassHeader classHeader = getClassHeader(classInternalName);
+        if (classHeader == null) {
             return null;
         }
-        return classReader.getSuperName();
+        return classHeader.getSuperName();
     }
 
-    private ClassReader getClassReader(final String classInternalName) {
-        if (classInternalName == null || classLoader == null) {
-            return null;
-        }
-        try (InputStream in = classLoader.getResourceAsStream(classInternalName + ".class")) {
-            if (in != null) {
-                return new ClassReader(in);
-            }
-        } catch (IOException ignored) {
-            // not found class.
-        }
-        return null;
+    private ClassHeader getClassHeader(final String classInternalName) {
+        return ClassHeaders.get(classLoader, classInternalName);
     }
 }
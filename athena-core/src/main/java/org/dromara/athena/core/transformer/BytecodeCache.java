@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.transformer;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import lombok.SneakyThrows;
+import org.dromara.athena.core.config.AgentConfig;
+import org.dromara.athena.core.config.Klass;
+import org.dromara.athena.core.config.Metric;
+
+/**
+ * The type Bytecode cache, keeps the transformed classes in a directory so a restarted agent serves them without running ASM.
+ * An entry is keyed by a digest of the agent version, the config map, the metrics configured on the class and the original
+ * class file, and is read back through a memory mapped file.
+ * The ids the probes were compiled against are stored with the class. On a hit they are registered again and the entry is
+ * only served when the reporter hands out the same ids, which holds as long as the instrumented classes load in the same order;
+ * otherwise the class is transformed again and the entry replaced.
+ * The result of the transformation also depends on the classes the label bean paths and the frames are resolved against,
+ * the directory has to be cleared when those change without the instrumented class changing.
+ *
+ * @author xiaoyu
+ */
+public final class BytecodeCache {
+
+    private static final String DIR_KEY = "bytecodeCacheDir";
+
+    private static final int MAGIC = 0x41544843;
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final String SUFFIX = ".class";
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private static final ObjectMapper KEY_MAPPER = new ObjectMapper()
+            .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+            .configure(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY, true)
+            .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    private final Path dir;
+
+    private final AgentConfig agentConfig;
+
+    private final byte[] agentDigest;
+
+    private BytecodeCache(final Path dir, final AgentConfig agentConfig) {
+        this.dir = dir;
+        this.agentConfig = agentConfig;
+        MessageDigest digest = newDigest();
+        digest.update(agentVersion().getBytes(StandardCharsets.UTF_8));
+        digest.update(toBytes(agentConfig.getConfigMap()));
+        this.agentDigest = digest.digest();
+    }
+
+    /**
+     * Create the bytecode cache of the {@code bytecodeCacheDir} config.
+     *
+     * @param agentConfig the agent config
+     * @return the bytecode cache, or null when no directory is configured or it can not be created
+     */
+    public static BytecodeCache create(final AgentConfig agentConfig) {
+        Object value = null == agentConfig.getConfigMap() ? null : agentConfig.getConfigMap().get(DIR_KEY);
+        if (null == value || value.toString().trim().isEmpty()) {
+            return null;
+        }
+        Path dir = Paths.get(value.toString().trim());
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException ex) {
+            System.err.println("athena bytecode cache disabled, can not create " + dir + " : " + ex);
+            return null;
+        }
+        return new BytecodeCache(dir, agentConfig);
+    }
+
+    /**
+     * Compute the key of a class.
+     *
+     * @param className       the internal class name
+     * @param supertypes      the internal names of the supertypes of the class
+     * @param classfileBuffer the original class file
+     * @return the key
+     */
+    public String key(final String className, final Collection<String> supertypes, final byte[] classfileBuffer) {
+        Map<String, List<Metric>> metrics = new TreeMap<>();
+        for (Map.Entry<Klass, List<Metric>> entry : agentConfig.findKeys(className, supertypes).entrySet()) {
+            metrics.put(entry.getKey().getClassName() + "." + entry.getKey().getMethod() + entry.getKey().getDescriptor(), entry.getValue());
+        }
+        MessageDigest digest = newDigest();
+        digest.update(agentDigest);
+        digest.update(className.getBytes(StandardCharsets.UTF_8));
+        digest.update(toBytes(metrics));
+        digest.update(classfileBuffer);
+        StringBuilder result = new StringBuilder();
+        for (byte each : digest.digest()) {
+            result.append(Character.forDigit((each >> 4) & 0xF, 16)).append(Character.forDigit(each & 0xF, 16));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Load the transformed class of a key.
+     *
+     * @param className  the internal class name
+     * @param supertypes the internal names of the supertypes of the class
+     * @param key        the key
+     * @param probeIds   the probe ids the stored ids are registered with again
+     * @return the transformed class, or null when it is not cached or its ids are not the ones handed out in this run
+     */
+    public byte[] load(final String className, final Collection<String> supertypes, final String key, final ProbeIds probeIds) {
+        Path file = dir.resolve(key + SUFFIX);
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        List<Registration> registrations = new ArrayList<>();
+        byte[] result;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                return null;
+            }
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                Registration.Kind kind = Registration.Kind.values()[buffer.get()];
+                byte[] name = new byte[buffer.getInt()];
+                buffer.get(name);
+                registrations.add(new Registration(kind, new String(name, StandardCharsets.UTF_8), buffer.getInt()));
+            }
+            result = new byte[buffer.getInt()];
+            buffer.get(result);
+        } catch (IOException | RuntimeException ignored) {
+            // an unreadable entry is a miss, it is replaced once the class is transformed.
+            return null;
+        }
+        List<Metric> metrics = agentConfig.findByClassName(className, supertypes);
+        for (Registration each : registrations) {
+            if (each.replay(probeIds, metrics) != each.getId()) {
+                return null;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Store the transformed class of a key.
+     *
+     * @param key           the key
+     * @param bytes         the transformed class
+     * @param registrations the ids handed out while the class was transformed
+     */
+    public void store(final String key, final byte[] bytes, final List<Registration> registrations) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length + 64);
+        Path temp = null;
+        try (DataOutputStream data = new DataOutputStream(out)) {
+            data.writeInt(MAGIC);
+            data.writeInt(FORMAT_VERSION);
+            data.writeInt(registrations.size());
+            for (Registration each : registrations) {
+                byte[] name = each.getMetricName().getBytes(StandardCharsets.UTF_8);
+                data.writeByte(each.getKind().ordinal());
+                data.writeInt(name.length);
+                data.write(name);
+                data.writeInt(each.getId());
+            }
+            data.writeInt(bytes.length);
+            data.write(bytes);
+            data.flush();
+            // written aside and moved, so a concurrent reader never maps a partial entry.
+            temp = Files.createTempFile(dir, key, ".tmp");
+            Files.write(temp, out.toByteArray());
+            Files.move(temp, dir.resolve(key + SUFFIX), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            System.err.println("athena bytecode cache can not store " + key + " : " + ex);
+            deleteQuietly(temp);
+        }
+    }
+
+    private static void deleteQuietly(final Path path) {
+        if (null == path) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+            // left for the next cleanup of the directory.
+        }
+    }
+
+    @SneakyThrows
+    private static MessageDigest newDigest() {
+        return MessageDigest.getInstance(DIGEST_ALGORITHM);
+    }
+
+    @SneakyThrows
+    private static byte[] toBytes(final Object value) {
+        return KEY_MAPPER.writeValueAsBytes(null == value ? new HashMap<>() : value);
+    }
+
+    @SneakyThrows
+    private static String agentVersion() {
+        Package agentPackage = BytecodeCache.class.getPackage();
+        StringBuilder result = new StringBuilder(String.valueOf(null == agentPackage ? null : agentPackage.getImplementationVersion()));
+        CodeSource codeSource = BytecodeCache.class.getProtectionDomain().getCodeSource();
+        if (null != codeSource && null != codeSource.getLocation()) {
+            // the version in the manifest is not bumped by every build, the agent jar itself is.
+            File agentJar = new File(codeSource.getLocation().toURI());
+            result.append('#').append(agentJar.length()).append('#').append(agentJar.lastModified());
+        }
+        return result.toString();
+    }
+}
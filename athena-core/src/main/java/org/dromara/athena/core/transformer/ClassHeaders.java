@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.transformer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * The type Class headers, a cache of the super name, interfaces and kind of the classes visible to a class loader.
+ * A header is read lazily from the class file the first time frame computation or a supertype selector asks for it,
+ * only the parsed names are kept, and it is shared by every transformation of the classes of that loader. The set of
+ * all the supertypes of a class is computed once from the headers and kept with its header. The loaders are weakly
+ * keyed, so the headers go away with the loader.
+ *
+ * @author xiaoyu
+ */
+public final class ClassHeaders {
+    
+    private static final ClassHeader MISSING = new ClassHeader(null, null, new String[0], false);
+    
+    private static final Map<ClassLoader, ConcurrentMap<String, ClassHeader>> HEADERS = new WeakHashMap<>();
+    
+    private ClassHeaders() {
+    }
+    
+    /**
+     * Get the header of a class.
+     *
+     * @param classLoader       the class loader, the bootstrap loader is not read
+     * @param classInternalName the internal name of the class
+     * @return the header, or null when the class file can not be found
+     */
+    public static ClassHeader get(final ClassLoader classLoader, final String classInternalName) {
+        if (null == classInternalName || null == classLoader) {
+            return null;
+        }
+        ClassHeader result = headersOf(classLoader).computeIfAbsent(classInternalName, key -> read(classLoader, key));
+        return MISSING == result ? null : result;
+    }
+    
+    /**
+     * Get the internal names of all the super classes and interfaces of a class, from its direct supertypes.
+     * The supertypes whose class file can not be found end the walk up their branch.
+     *
+     * @param classLoader the class loader of the class
+     * @param superName   the internal name of the super class, null for {@code java/lang/Object}
+     * @param interfaces  the internal names of the interfaces
+     * @return the supertypes
+     */
+    public static Set<String> getSupertypes(final ClassLoader classLoader, final String superName, final String[] interfaces) {
+        Set<String> result = new HashSet<>();
+        addSupertype(classLoader, superName, result);
+        if (null != interfaces) {
+            for (String each : interfaces) {
+                addSupertype(classLoader, each, result);
+            }
+        }
+        return result;
+    }
+    
+    private static void addSupertype(final ClassLoader classLoader, final String name, final Set<String> supertypes) {
+        if (null == name || !supertypes.add(name)) {
+            return;
+        }
+        ClassHeader header = get(classLoader, name);
+        if (null != header) {
+            supertypes.addAll(header.getSupertypes(classLoader));
+        }
+    }
+    
+    private static ConcurrentMap<String, ClassHeader> headersOf(final ClassLoader classLoader) {
+        synchronized (HEADERS) {
+            return HEADERS.computeIfAbsent(classLoader, key -> new ConcurrentHashMap<>());
+        }
+    }
+    
+    private static ClassHeader read(final ClassLoader classLoader, final String classInternalName) {
+        try (InputStream in = classLoader.getResourceAsStream(classInternalName + ".class")) {
+            if (null != in) {
+                ClassReader classReader = new ClassReader(in);
+                return new ClassHeader(classReader.getClassName(), classReader.getSuperName(), classReader.getInterfaces(),
+                        (classReader.getAccess() & Opcodes.ACC_INTERFACE) != 0);
+            }
+        } catch (IOException ignored) {
+            // not found class.
+        }
+        return MISSING;
+    }
+    
+    /**
+     * The header of one class.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static final class ClassHeader {
+        
+        private final String className;
+        
+        private final String superName;
+        
+        private final String[] interfaces;
+        
+        private final boolean isInterface;
+        
+        @Getter(AccessLevel.NONE)
+        private volatile Set<String> supertypes;
+        
+        private Set<String> getSupertypes(final ClassLoader classLoader) {
+            Set<String> result = supertypes;
+            if (null == result) {
+                result = Collections.unmodifiableSet(ClassHeaders.getSupertypes(classLoader, superName, interfaces));
+                supertypes = result;
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.transformer;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.commons.AnalyzerAdapter;
+
+/**
+ * The type Frame tracker, keeps the stack map frames of an instrumented method valid without recomputing them.
+ * It sits between the probe code generation and the class writer and follows the types of the locals and the stack
+ * through the existing frames, so the frames of the original code are passed on and only the injected code gets new ones:
+ * the target of an injected jump gets the frame seen at the jump, and a handler gets the frame given by {@link #handlerAt}.
+ * The locals the probes only use for a moment are {@link #newLocal scratch locals}, they are switched to top in the
+ * frames of the original code so those frames hold on every path.
+ *
+ * @author xiaoyu
+ */
+public final class FrameTracker extends AnalyzerAdapter {
+    
+    private static final Object[] THROWABLE_STACK = {"java/lang/Throwable"};
+    
+    private final Map<Label, Object[][]> frames = new HashMap<>();
+    
+    private final BitSet scratchLocals = new BitSet();
+    
+    private Object[][] pending;
+    
+    /**
+     * Instantiates a new Frame tracker.
+     *
+     * @param owner  the internal name of the class of the method
+     * @param access the access of the method
+     * @param name   the name of the method
+     * @param desc   the descriptor of the method
+     * @param mv     the method visitor the code and frames are passed to
+     */
+    public FrameTracker(final String owner, final int access, final String name, final String desc, final MethodVisitor mv) {
+        super(Opcodes.ASM5, owner, access, name, desc, mv);
+    }
+    
+    /**
+     * Declare a local added by the probes, it is a scratch local until it is {@link #keepLocal kept}.
+     *
+     * @param local the local
+     */
+    public void newLocal(final int local) {
+        scratchLocals.set(local);
+    }
+    
+    /**
+     * Keep a local added by the probes in the frames of the original code, it has to be stored before the original code runs.
+     *
+     * @param local the local
+     */
+    public void keepLocal(final int local) {
+        scratchLocals.clear(local);
+    }
+    
+    /**
+     * Gets the locals of a handler whose range starts here, the scratch locals are left out.
+     *
+     * @return the frame locals
+     */
+    public Object[] handlerLocals() {
+        return withoutScratch(toFrameTypes(locals));
+    }
+    
+    /**
+     * Give the frame of a handler, it is written when the handler label is visited.
+     *
+     * @param handler the handler label
+     * @param locals  the frame locals, from {@link #handlerLocals()} at the start of the handler range
+     */
+    public void handlerAt(final Label handler, final Object[] locals) {
+        frames.put(handler, new Object[][]{locals, THROWABLE_STACK});
+    }
+    
+    @Override
+    public void visitFrame(final int type, final int nLocal, final Object[] local, final int nStack, final Object[] stack) {
+        // the original code has its own frame here.
+        pending = null;
+        Object[] result = new Object[nLocal];
+        System.arraycopy(local, 0, result, 0, nLocal);
+        result = withoutScratch(result);
+        super.visitFrame(type, result.length, result, nStack, stack);
+    }
+    
+    @Override
+    public void visitLabel(final Label label) {
+        super.visitLabel(label);
+        if (null == pending) {
+            pending = frames.get(label);
+        }
+    }
+    
+    @Override
+    public void visitJumpInsn(final int opcode, final Label label) {
+        writePending();
+        if (Opcodes.GOTO == opcode) {
+            record(label);
+            super.visitJumpInsn(opcode, label);
+        } else {
+            super.visitJumpInsn(opcode, label);
+            record(label);
+        }
+    }
+    
+    @Override
+    public void visitInsn(final int opcode) {
+        writePending();
+        super.visitInsn(opcode);
+    }
+    
+    @Override
+    public void visitIntInsn(final int opcode, final int operand) {
+        writePending();
+        super.visitIntInsn(opcode, operand);
+    }
+    
+    @Override
+    public void visitVarInsn(final int opcode, final int var) {
+        writePending();
+        super.visitVarInsn(opcode, var);
+    }
+    
+    @Override
+    public void visitTypeInsn(final int opcode, final String type) {
+        writePending();
+        super.visitTypeInsn(opcode, type);
+    }
+    
+    @Override
+    public void visitFieldInsn(final int opcode, final String owner, final String name, final String desc) {
+        writePending();
+        super.visitFieldInsn(opcode, owner, name, desc);
+    }
+    
+    @Override
+    public void visitMethodInsn(final int opcode, final String owner, final String name, final String desc, final boolean itf) {
+        writePending();
+        super.visitMethodInsn(opcode, owner, name, desc, itf);
+    }
+    
+    @Override
+    public void visitInvokeDynamicInsn(final String name, final String desc, final Handle bsm, final Object... bsmArgs) {
+        writePending();
+        super.visitInvokeDynamicInsn(name, desc, bsm, bsmArgs);
+    }
+    
+    @Override
+    public void visitLdcInsn(final Object cst) {
+        writePending();
+        super.visitLdcInsn(cst);
+    }
+    
+    @Override
+    public void visitIincInsn(final int var, final int increment) {
+        writePending();
+        super.visitIincInsn(var, increment);
+    }
+    
+    @Override
+    public void visitTableSwitchInsn(final int min, final int max, final Label dflt, final Label... labels) {
+        writePending();
+        super.visitTableSwitchInsn(min, max, dflt, labels);
+    }
+    
+    @Override
+    public void visitLookupSwitchInsn(final Label dflt, final int[] keys, final Label[] labels) {
+        writePending();
+        super.visitLookupSwitchInsn(dflt, keys, labels);
+    }
+    
+    @Override
+    public void visitMultiANewArrayInsn(final String desc, final int dims) {
+        writePending();
+        super.visitMultiANewArrayInsn(desc, dims);
+    }
+    
+    private void record(final Label label) {
+        if (null != locals && !frames.containsKey(label)) {
+            frames.put(label, new Object[][]{toFrameTypes(locals), toFrameTypes(stack)});
+        }
+    }
+    
+    private void writePending() {
+        if (null != pending) {
+            Object[][] frame = pending;
+            pending = null;
+            super.visitFrame(Opcodes.F_NEW, frame[0].length, frame[0], frame[1].length, frame[1]);
+        }
+    }
+    
+    private Object[] withoutScratch(final Object[] frameLocals) {
+        List<Object> result = new ArrayList<>(frameLocals.length);
+        int slot = 0;
+        for (Object each : frameLocals) {
+            boolean isWide = Opcodes.LONG == each || Opcodes.DOUBLE == each;
+            if (scratchLocals.get(slot)) {
+                result.add(Opcodes.TOP);
+                if (isWide) {
+                    result.add(Opcodes.TOP);
+                }
+            } else {
+                result.add(each);
+            }
+            slot += isWide ? 2 : 1;
+        }
+        return trimTop(result);
+    }
+    
+    private static Object[] toFrameTypes(final List<?> types) {
+        // the types are tracked by slot, a long or a double is followed by a top that a frame leaves out.
+        // the lists of the analyzer are raw in this asm version, a wildcard reads them without an unchecked conversion.
+        List<Object> result = new ArrayList<>(types.size());
+        int i = 0;
+        while (i < types.size()) {
+            Object each = types.get(i);
+            result.add(each);
+            i += Opcodes.LONG == each || Opcodes.DOUBLE == each ? 2 : 1;
+        }
+        return result.toArray();
+    }
+    
+    private static Object[] trimTop(final List<Object> types) {
+        int size = types.size();
+        while (size > 0 && Opcodes.TOP == types.get(size - 1)) {
+            size--;
+        }
+        return types.subList(0, size).toArray();
+    }
+}
@@ -20,12 +20,20 @@ package org.dromara.athena.core.transformer;
 import java.io.FileOutputStream;
 import java.lang.instrument.ClassFileTransformer;
 import java.security.ProtectionDomain;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import lombok.Getter;
 import lombok.SneakyThrows;
 import org.dromara.athena.core.config.AgentConfig;
 import org.dromara.athena.core.config.Debugger;
+import org.dromara.athena.core.reporter.MetricsReporter;
 import org.dromara.athena.core.transformer.visitor.MetricsClassVisitor;
+import org.dromara.athena.core.utils.BytecodeUtils;
+import org.dromara.athena.core.utils.MemoizedSupplier;
 import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
 
 import static org.objectweb.asm.ClassReader.EXPAND_FRAMES;
@@ -43,36 +51,105 @@ public class MetricsClassTransformer implements ClassFileTransformer {
     
     private final Debugger debugger;
     
+    private final boolean preserveFrames;
+    
+    private final ProbeIds probeIds;
+    
+    private final BytecodeCache bytecodeCache;
+    
+    private final boolean canAddMembers;
+    
+    @Getter
+    private final TransformStats transformStats;
+    
     /**
      * Instantiates a new Metrics class transformer.
      *
      * @param agentConfig the agent config
      */
     public MetricsClassTransformer(final AgentConfig agentConfig) {
+        this(agentConfig, ReporterProbeIds.INSTANCE, BytecodeCache.create(agentConfig), true, new TransformStats(MetricsReporter.METRIC_REGISTER));
+    }
+    
+    /**
+     * Instantiates a new Metrics class transformer.
+     *
+     * @param agentConfig    the agent config
+     * @param probeIds       the probe ids the metrics are registered with
+     * @param bytecodeCache  the bytecode cache, null for none
+     * @param canAddMembers  whether fields and methods can be added to the classes as they load, false keeps every class retransformable
+     *                       back to its original bytes
+     * @param transformStats the stats the transformations are recorded in
+     */
+    public MetricsClassTransformer(final AgentConfig agentConfig, final ProbeIds probeIds, final BytecodeCache bytecodeCache, final boolean canAddMembers,
+                                   final TransformStats transformStats) {
         this.agentConfig = agentConfig;
         this.debugger = agentConfig.getDebugger();
+        this.preserveFrames = MetricsClassVisitor.isPreserveFrames(agentConfig);
+        this.probeIds = probeIds;
+        this.bytecodeCache = bytecodeCache;
+        this.canAddMembers = canAddMembers;
+        this.transformStats = transformStats;
     }
     
     @Override
     public byte[] transform(final ClassLoader loader, final String className, final Class<?> classBeingRedefined,
                             final ProtectionDomain protectionDomain, final byte[] classfileBuffer) {
+        long start = System.nanoTime();
         try {
-            if (agentConfig.hasMetric(className)) {
+            Supplier<Collection<String>> classSupertypes = new MemoizedSupplier<>(() -> getSupertypes(loader, classfileBuffer));
+            if (agentConfig.hasMetric(className, classSupertypes)) {
+                Collection<String> supertypes = agentConfig.hasSupertypeSelectors() ? classSupertypes.get() : Collections.emptySet();
+                // a redefined class can not get new members, it is transformed differently and never cached.
+                String cacheKey = null == bytecodeCache || null != classBeingRedefined ? null : bytecodeCache.key(className, supertypes, classfileBuffer);
+                byte[] cached = null == cacheKey ? null : bytecodeCache.load(className, supertypes, cacheKey, probeIds);
+                if (null != cached) {
+                    transformStats.cached(className, System.nanoTime() - start, classfileBuffer.length, cached.length);
+                    return cached;
+                }
                 ClassReader cr = new ClassReader(classfileBuffer);
-                ClassWriter cw = new ASMClassWriter(COMPUTE_FRAMES | COMPUTE_MAXS, loader);
-                ClassVisitor cv = new MetricsClassVisitor(cw, agentConfig);
+                ClassWriter cw = new ASMClassWriter(cr, preserveFrames ? COMPUTE_MAXS : COMPUTE_FRAMES | COMPUTE_MAXS, loader);
+                MetricsClassVisitor cv = new MetricsClassVisitor(cw, agentConfig, loader, canAddMembers && null == classBeingRedefined, probeIds, supertypes);
                 cr.accept(cv, EXPAND_FRAMES);
+                byte[] result = cw.toByteArray();
+                if (null != cacheKey) {
+                    bytecodeCache.store(cacheKey, result, cv.getContext().getRegistrations());
+                }
+                transformStats.transformed(className, System.nanoTime() - start, classfileBuffer.length, result.length, countProbes(cv.getContext().getRegistrations()));
                 output(cw, className);
-                return cw.toByteArray();
+                report(className, classfileBuffer, result);
+                return result;
             }
         } catch (RuntimeException e) {
-            e.printStackTrace();
+            transformStats.failed(e);
+            System.err.println("athena can not transform " + className + " : " + e);
+            if (debugger.isDebug()) {
+                e.printStackTrace();
+            }
             throw e;
+        } finally {
+            transformStats.inspected(System.nanoTime() - start);
         }
     
         return classfileBuffer;
     }
     
+    private static int countProbes(final List<Registration> registrations) {
+        int result = 0;
+        for (Registration each : registrations) {
+            if (Registration.Kind.METRIC == each.getKind()) {
+                result++;
+            }
+        }
+        return result;
+    }
+    
+    private static Collection<String> getSupertypes(final ClassLoader loader, final byte[] classfileBuffer) {
+        // the class is not defined yet, its supertypes are read from the class files through the cached headers.
+        ClassReader header = new ClassReader(classfileBuffer);
+        return ClassHeaders.getSupertypes(loader, header.getSuperName(), header.getInterfaces());
+    }
+    
     @SneakyThrows
     private void output(final ClassWriter cw, final String className) {
         if (debugger.isDebug()) {
@@ -84,6 +161,23 @@ public class MetricsClassTransformer implements ClassFileTransformer {
         }
     }
     
+    private void report(final String className, final byte[] before, final byte[] after) {
+        if (!debugger.isReport()) {
+            return;
+        }
+        Map<String, Integer> beforeLengths = BytecodeUtils.getCodeLengths(before);
+        for (Map.Entry<String, Integer> entry : BytecodeUtils.getCodeLengths(after).entrySet()) {
+            Integer beforeLength = beforeLengths.get(entry.getKey());
+            int afterLength = entry.getValue();
+            if (null == beforeLength) {
+                System.out.println("athena bytecode " + className + "." + entry.getKey() + " : added " + afterLength + " bytes");
+            } else if (beforeLength != afterLength) {
+                System.out.println("athena bytecode " + className + "." + entry.getKey() + " : " + beforeLength + " -> " + afterLength + " bytes (+"
+                        + (afterLength - beforeLength) + "), " + BytecodeUtils.inlining(beforeLength) + " -> " + BytecodeUtils.inlining(afterLength));
+            }
+        }
+    }
+    
     private String getPath() {
         String path;
         if (null == debugger.getOutPath() || "".equalsIgnoreCase(debugger.getOutPath())) {
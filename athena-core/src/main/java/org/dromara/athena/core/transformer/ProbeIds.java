@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.transformer;
+
+import org.dromara.athena.core.config.Metric;
+
+/**
+ * The type Probe ids, hands out the ids the probes push as constants while a class is transformed.
+ *
+ * @author xiaoyu
+ */
+public interface ProbeIds {
+    
+    /**
+     * Register a metric.
+     *
+     * @param metric the metric
+     * @return the metric id
+     */
+    int registerMetric(Metric metric);
+    
+    /**
+     * Register the overhead measurement of the probes of a metric.
+     *
+     * @param metricName the metric name
+     * @return the probe id, or -1 when the probe overhead is not measured
+     */
+    int registerProbe(String metricName);
+    
+    /**
+     * Register the thread local depth of a metric that is not reentrant.
+     *
+     * @param metricName the metric name
+     * @return the reentry id
+     */
+    int registerReentry(String metricName);
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.transformer;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.dromara.athena.core.config.Metric;
+
+/**
+ * The type Registration, an id handed out by the {@link ProbeIds} while a class was transformed and pushed as a constant by its probes.
+ *
+ * @author xiaoyu
+ */
+@Getter
+@AllArgsConstructor
+public final class Registration {
+
+    private final Kind kind;
+
+    private final String metricName;
+
+    private final int id;
+
+    /**
+     * Register the metric again, as the transformation would.
+     *
+     * @param probeIds the probe ids to register with
+     * @param metrics  the configured metrics, searched by name
+     * @return the id handed out now, or -2 when the metric is no longer configured
+     */
+    public int replay(final ProbeIds probeIds, final List<Metric> metrics) {
+        switch (kind) {
+            case METRIC:
+                return metrics.stream().filter(each -> each.getName().equals(metricName)).findFirst().map(probeIds::registerMetric).orElse(-2);
+            case PROBE:
+                return probeIds.registerProbe(metricName);
+            case REENTRY:
+                return probeIds.registerReentry(metricName);
+            default:
+                throw new IllegalStateException("we not support registration kind: " + kind);
+        }
+    }
+
+    /**
+     * The kind of id.
+     */
+    public enum Kind {
+
+        /**
+         * The handle id of a metric.
+         */
+        METRIC,
+
+        /**
+         * The overhead probe id of a metric.
+         */
+        PROBE,
+
+        /**
+         * The thread local depth id of a metric that is not reentrant.
+         */
+        REENTRY
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.transformer;
+
+import org.dromara.athena.core.config.Metric;
+import org.dromara.athena.core.reporter.MetricsReporter;
+
+/**
+ * The type Reporter probe ids, the ids of the {@link MetricsReporter} of this jvm, used when the classes are transformed as they load.
+ *
+ * @author xiaoyu
+ */
+public enum ReporterProbeIds implements ProbeIds {
+    
+    /**
+     * Instance reporter probe ids.
+     */
+    INSTANCE;
+    
+    @Override
+    public int registerMetric(final Metric metric) {
+        return MetricsReporter.registerMetric(metric);
+    }
+    
+    @Override
+    public int registerProbe(final String metricName) {
+        return MetricsReporter.registerProbe(metricName);
+    }
+    
+    @Override
+    public int registerReentry(final String metricName) {
+        return MetricsReporter.registerReentry(metricName);
+    }
+}
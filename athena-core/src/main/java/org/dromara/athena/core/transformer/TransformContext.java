@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.transformer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Getter;
+import org.dromara.athena.core.config.Metric;
+import org.dromara.athena.core.enums.MetricType;
+import org.dromara.athena.core.reporter.MetricsReporter;
+import org.dromara.athena.core.transformer.accessor.BeanPathResolver;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.MethodNode;
+
+import static org.objectweb.asm.Opcodes.AASTORE;
+import static org.objectweb.asm.Opcodes.ACC_FINAL;
+import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
+import static org.objectweb.asm.Opcodes.ACC_STATIC;
+import static org.objectweb.asm.Opcodes.ACC_SYNTHETIC;
+import static org.objectweb.asm.Opcodes.ACONST_NULL;
+import static org.objectweb.asm.Opcodes.ANEWARRAY;
+import static org.objectweb.asm.Opcodes.BIPUSH;
+import static org.objectweb.asm.Opcodes.DUP;
+import static org.objectweb.asm.Opcodes.GETSTATIC;
+import static org.objectweb.asm.Opcodes.ICONST_0;
+import static org.objectweb.asm.Opcodes.INVOKESTATIC;
+import static org.objectweb.asm.Opcodes.PUTSTATIC;
+import static org.objectweb.asm.Opcodes.SIPUSH;
+
+/**
+ * The type Transform context, the state shared by all instrumented methods of the class being transformed.
+ *
+ * @author xiaoyu
+ */
+@Getter
+public final class TransformContext {
+
+    private static final String SERIES_FIELD_PREFIX = "athena$series$";
+
+    private static final String PROBE_HELPER_PREFIX = "athena$probe$";
+
+    private static final String METRICS_REPORTER_CLASSNAME = Type.getInternalName(MetricsReporter.class);
+
+    private final String className;
+
+    private final ClassLoader classLoader;
+
+    private final boolean canAddMembers;
+
+    private final boolean probeHelpers;
+
+    private final boolean switchableProbes;
+
+    private final boolean preserveFrames;
+
+    private final ProbeIds probeIds;
+
+    private final Map<String, SeriesField> seriesFields = new LinkedHashMap<>();
+
+    private final List<MethodNode> probeHelperMethods = new ArrayList<>();
+
+    private final List<Registration> registrations = new ArrayList<>();
+
+    private BeanPathResolver beanPathResolver;
+
+    private FrameTracker frameTracker;
+
+    /**
+     * Instantiates a new Transform context.
+     *
+     * @param className     the internal class name
+     * @param classLoader   the class loader of the class, null for the bootstrap loader
+     * @param canAddMembers whether fields and methods can be added, false when the class is being redefined
+     * @param probeHelpers     whether the probe code is moved out of the instrumented methods into synthetic helpers
+     * @param switchableProbes whether the probe helpers are invoked through switchable invokedynamic call sites
+     * @param preserveFrames   whether the stack map frames are kept and extended instead of computed by the class writer
+     * @param probeIds         the probe ids the metrics are registered with
+     */
+    public TransformContext(final String className, final ClassLoader classLoader, final boolean canAddMembers, final boolean probeHelpers,
+                            final boolean switchableProbes, final boolean preserveFrames, final ProbeIds probeIds) {
+        this.className = className;
+        this.classLoader = classLoader;
+        this.canAddMembers = canAddMembers;
+        this.probeHelpers = canAddMembers && probeHelpers;
+        this.switchableProbes = this.probeHelpers && switchableProbes;
+        this.preserveFrames = preserveFrames;
+        this.probeIds = probeIds;
+    }
+
+    /**
+     * Set the frame tracker of the method being instrumented.
+     *
+     * @param frameTracker the frame tracker, null when the frames are computed by the class writer
+     */
+    public void setFrameTracker(final FrameTracker frameTracker) {
+        this.frameTracker = frameTracker;
+    }
+
+    /**
+     * Register a metric.
+     *
+     * @param metric the metric
+     * @return the metric id
+     */
+    public int registerMetric(final Metric metric) {
+        return record(Registration.Kind.METRIC, metric.getName(), probeIds.registerMetric(metric));
+    }
+
+    /**
+     * Register the overhead measurement of the probes of a metric.
+     *
+     * @param metricName the metric name
+     * @return the probe id, or -1 when the probe overhead is not measured
+     */
+    public int registerProbe(final String metricName) {
+        return record(Registration.Kind.PROBE, metricName, probeIds.registerProbe(metricName));
+    }
+
+    /**
+     * Register the thread local depth of a metric that is not reentrant.
+     *
+     * @param metricName the metric name
+     * @return the reentry id
+     */
+    public int registerReentry(final String metricName) {
+        return record(Registration.Kind.REENTRY, metricName, probeIds.registerReentry(metricName));
+    }
+
+    /**
+     * Gets the bean path resolver of the class, created on first use.
+     *
+     * @return the bean path resolver
+     */
+    public BeanPathResolver getBeanPathResolver() {
+        if (null == beanPathResolver) {
+            beanPathResolver = new BeanPathResolver(classLoader, className);
+        }
+        return beanPathResolver;
+    }
+
+    /**
+     * Bind a series with constant label values to a static field, the same series is shared by every probe of the class.
+     *
+     * @param type        the metric type
+     * @param metricId    the metric id
+     * @param labelValues the constant label values, null when the metric has no labels
+     * @return the series field, or null when the class can not get new fields
+     */
+    public SeriesField bindSeries(final MetricType type, final int metricId, final String[] labelValues) {
+        if (!canAddMembers) {
+            return null;
+        }
+        String key = type + "#" + metricId + "#" + Arrays.toString(labelValues);
+        return seriesFields.computeIfAbsent(key, k -> new SeriesField(SERIES_FIELD_PREFIX + seriesFields.size(), type, metricId, labelValues));
+    }
+
+    /**
+     * Load series field.
+     *
+     * @param mv          the method visitor
+     * @param seriesField the series field
+     */
+    public void loadSeries(final MethodVisitor mv, final SeriesField seriesField) {
+        mv.visitFieldInsn(GETSTATIC, className, seriesField.getName(), seriesField.getType().getDesc());
+    }
+
+    /**
+     * Create a synthetic static probe helper method, it is added to the class by {@link #visitProbeHelpers(ClassVisitor)}.
+     *
+     * @param desc the method descriptor
+     * @return the method node to write the helper code to
+     */
+    public MethodNode newProbeHelper(final String desc) {
+        MethodNode result = new MethodNode(ACC_PRIVATE | ACC_STATIC | ACC_SYNTHETIC, PROBE_HELPER_PREFIX + probeHelperMethods.size(), desc, null, null);
+        probeHelperMethods.add(result);
+        return result;
+    }
+
+    /**
+     * Add the probe helper methods to the class.
+     *
+     * @param cv the class visitor
+     */
+    public void visitProbeHelpers(final ClassVisitor cv) {
+        for (MethodNode each : probeHelperMethods) {
+            each.accept(cv);
+        }
+    }
+
+    /**
+     * Whether any series field was bound.
+     *
+     * @return the boolean
+     */
+    public boolean hasSeriesFields() {
+        return !seriesFields.isEmpty();
+    }
+
+    /**
+     * Declare the series fields on the class.
+     *
+     * @param cv the class visitor
+     */
+    public void visitSeriesFields(final ClassVisitor cv) {
+        for (SeriesField each : seriesFields.values()) {
+            cv.visitField(ACC_PRIVATE | ACC_STATIC | ACC_FINAL | ACC_SYNTHETIC, each.getName(), each.getType().getDesc(), null, null).visitEnd();
+        }
+    }
+
+    /**
+     * Emit the initialization of the series fields, it has to run at the start of the class initializer.
+     *
+     * @param mv the class initializer visitor
+     */
+    public void visitSeriesInit(final MethodVisitor mv) {
+        for (SeriesField each : seriesFields.values()) {
+            push(mv, each.getMetricId());
+            String[] labelValues = each.getLabelValues();
+            if (null == labelValues) {
+                mv.visitInsn(ACONST_NULL);
+            } else {
+                push(mv, labelValues.length);
+                mv.visitTypeInsn(ANEWARRAY, Type.getInternalName(String.class));
+                for (int i = 0; i < labelValues.length; i++) {
+                    mv.visitInsn(DUP);
+                    push(mv, i);
+                    mv.visitLdcInsn(labelValues[i]);
+                    mv.visitInsn(AASTORE);
+                }
+            }
+            String method = each.getType().name().toLowerCase() + "Series";
+            String desc = Type.getMethodDescriptor(Type.getType(each.getType().getType()), Type.INT_TYPE, Type.getType(String[].class));
+            mv.visitMethodInsn(INVOKESTATIC, METRICS_REPORTER_CLASSNAME, method, desc, false);
+            mv.visitFieldInsn(PUTSTATIC, className, each.getName(), each.getType().getDesc());
+        }
+    }
+
+    private int record(final Registration.Kind kind, final String metricName, final int id) {
+        registrations.add(new Registration(kind, metricName, id));
+        return id;
+    }
+
+    private static void push(final MethodVisitor mv, final int value) {
+        if (value >= -1 && value <= 5) {
+            mv.visitInsn(ICONST_0 + value);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(BIPUSH, value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            mv.visitIntInsn(SIPUSH, value);
+        } else {
+            mv.visitLdcInsn(value);
+        }
+    }
+}
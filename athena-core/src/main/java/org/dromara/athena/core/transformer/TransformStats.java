@@ -0,0 +1,264 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.transformer;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import org.dromara.athena.spi.CounterMetric;
+import org.dromara.athena.spi.HistogramMetric;
+import org.dromara.athena.spi.MetricRegister;
+
+/**
+ * The type Transform stats, what the class file transformer costs the jvm.
+ * Every class the transformer is called with is inspected, the matched ones are transformed, loaded from the bytecode cache
+ * or fail. The time spent, the bytecode sizes, the probes injected and the failures by exception type are exported as the
+ * {@code athena_transform_*} metrics through the metric register when there is one, and printed as a summary together
+ * with the slowest classes, {@code transformSummaryDelayMillis} after the agent started or once the classes were retransformed.
+ *
+ * @author xiaoyu
+ */
+public final class TransformStats {
+    
+    private static final String SUMMARY_DELAY_KEY = "transformSummaryDelayMillis";
+    
+    private static final long DEFAULT_SUMMARY_DELAY_MILLIS = 30000L;
+    
+    private static final int SLOWEST_SIZE = 10;
+    
+    private static final int MAX_CAUSES = 32;
+    
+    private static final double[] DURATION_BUCKETS = {0.1D, 0.5D, 1D, 5D, 10D, 50D, 100D, 500D, 1000D};
+    
+    private static final double NANOS_PER_MILLI = 1_000_000D;
+    
+    private final LongAdder inspected = new LongAdder();
+    
+    private final LongAdder matched = new LongAdder();
+    
+    private final LongAdder cached = new LongAdder();
+    
+    private final LongAdder nanos = new LongAdder();
+    
+    private final LongAdder bytesBefore = new LongAdder();
+    
+    private final LongAdder bytesAfter = new LongAdder();
+    
+    private final LongAdder probes = new LongAdder();
+    
+    private final ConcurrentMap<String, LongAdder> failures = new ConcurrentHashMap<>();
+    
+    private final List<ClassTime> slowest = new ArrayList<>(SLOWEST_SIZE + 1);
+    
+    private final Handles handles;
+    
+    /**
+     * Instantiates a new Transform stats.
+     *
+     * @param register the metric register the stats are exported through, null to only print them
+     */
+    public TransformStats(final MetricRegister register) {
+        this.handles = null == register ? null : new Handles(register);
+    }
+    
+    /**
+     * Print the summary once the delay configured for the startup has passed, from a daemon thread.
+     *
+     * @param configMap the config map
+     */
+    public void scheduleSummary(final Map<String, Object> configMap) {
+        Object delay = configMap.get(SUMMARY_DELAY_KEY);
+        long delayMillis = null == delay || delay.toString().trim().isEmpty() ? DEFAULT_SUMMARY_DELAY_MILLIS : Long.parseLong(delay.toString().trim());
+        if (delayMillis <= 0L) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                Thread.sleep(delayMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            printSummary();
+        }, "athena-transform-summary");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /**
+     * Record a class the transformer was called with.
+     *
+     * @param elapsedNanos the nanoseconds spent in the transformer, whether the class matched or not
+     */
+    void inspected(final long elapsedNanos) {
+        inspected.increment();
+        nanos.add(elapsedNanos);
+        if (null != handles) {
+            handles.inspected.inc();
+            handles.nanos.inc(elapsedNanos);
+        }
+    }
+    
+    /**
+     * Record a matched class that was transformed.
+     *
+     * @param className    the internal class name
+     * @param elapsedNanos the nanoseconds the transformation took
+     * @param sizeBefore   the size of the original class file
+     * @param sizeAfter    the size of the transformed class file
+     * @param probeCount   the number of probes injected
+     */
+    void transformed(final String className, final long elapsedNanos, final int sizeBefore, final int sizeAfter, final int probeCount) {
+        record(className, elapsedNanos, sizeBefore, sizeAfter);
+        probes.add(probeCount);
+        if (null != handles) {
+            handles.probes.inc(probeCount);
+        }
+    }
+    
+    /**
+     * Record a matched class that was loaded from the bytecode cache.
+     *
+     * @param className    the internal class name
+     * @param elapsedNanos the nanoseconds the lookup took
+     * @param sizeBefore   the size of the original class file
+     * @param sizeAfter    the size of the cached class file
+     */
+    void cached(final String className, final long elapsedNanos, final int sizeBefore, final int sizeAfter) {
+        record(className, elapsedNanos, sizeBefore, sizeAfter);
+        cached.increment();
+        if (null != handles) {
+            handles.cached.inc();
+        }
+    }
+    
+    /**
+     * Record a matched class whose transformation failed, it is loaded with its original bytecode.
+     *
+     * @param cause the exception
+     */
+    void failed(final RuntimeException cause) {
+        matched.increment();
+        String type = cause.getClass().getSimpleName();
+        failures.computeIfAbsent(type, key -> new LongAdder()).increment();
+        if (null != handles) {
+            handles.matched.inc();
+            handles.failures.labels(type).inc();
+        }
+    }
+    
+    /**
+     * Print the summary.
+     */
+    public void printSummary() {
+        long before = bytesBefore.sum();
+        long after = bytesAfter.sum();
+        long failed = failures.values().stream().mapToLong(LongAdder::sum).sum();
+        System.out.println(String.format("athena matched %d of %d inspected classes in %.1f ms, %d cached, %d failed, %d -> %d bytes (+%d), %d probes injected",
+                matched.sum(), inspected.sum(), nanos.sum() / NANOS_PER_MILLI, cached.sum(), failed, before, after, after - before, probes.sum()));
+        List<ClassTime> classes;
+        synchronized (slowest) {
+            classes = new ArrayList<>(slowest);
+        }
+        if (!classes.isEmpty()) {
+            System.out.println("athena slowest transforms : " + classes.stream()
+                    .map(each -> String.format("%s %.1f ms", each.className, each.elapsedNanos / NANOS_PER_MILLI)).collect(Collectors.joining(", ")));
+        }
+        if (0L != failed) {
+            System.out.println("athena transform failures : " + failures.entrySet().stream().sorted(Map.Entry.comparingByKey())
+                    .map(each -> each.getKey() + " " + each.getValue().sum()).collect(Collectors.joining(", ")));
+        }
+    }
+    
+    private void record(final String className, final long elapsedNanos, final int sizeBefore, final int sizeAfter) {
+        matched.increment();
+        bytesBefore.add(sizeBefore);
+        bytesAfter.add(sizeAfter);
+        if (null != handles) {
+            handles.matched.inc();
+            handles.duration.observe(elapsedNanos);
+            handles.bytesBefore.inc(sizeBefore);
+            handles.bytesAfter.inc(sizeAfter);
+        }
+        synchronized (slowest) {
+            if (slowest.size() < SLOWEST_SIZE || slowest.get(SLOWEST_SIZE - 1).elapsedNanos < elapsedNanos) {
+                slowest.add(new ClassTime(className, elapsedNanos));
+                slowest.sort(Comparator.comparingLong((ClassTime each) -> each.elapsedNanos).reversed());
+                if (slowest.size() > SLOWEST_SIZE) {
+                    slowest.remove(SLOWEST_SIZE);
+                }
+            }
+        }
+    }
+    
+    private static final class ClassTime {
+        
+        private final String className;
+        
+        private final long elapsedNanos;
+        
+        ClassTime(final String className, final long elapsedNanos) {
+            this.className = className;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+    
+    /**
+     * The series the stats are exported to.
+     */
+    private static final class Handles {
+        
+        private final CounterMetric.Child inspected;
+        
+        private final CounterMetric.Child matched;
+        
+        private final CounterMetric.Child cached;
+        
+        private final CounterMetric.Child nanos;
+        
+        private final HistogramMetric.Child duration;
+        
+        private final CounterMetric.Child bytesBefore;
+        
+        private final CounterMetric.Child bytesAfter;
+        
+        private final CounterMetric.Child probes;
+        
+        private final CounterMetric failures;
+        
+        Handles(final MetricRegister register) {
+            inspected = register.registerCounter("athena_transform_inspected_classes_total", null, "the classes the athena transformer was called with", 0).labels((String[]) null);
+            matched = register.registerCounter("athena_transform_matched_classes_total", null, "the classes that match the athena config", 0).labels((String[]) null);
+            cached = register.registerCounter("athena_transform_cached_classes_total", null, "the matched classes loaded from the athena bytecode cache", 0).labels((String[]) null);
+            nanos = register.registerCounter("athena_transform_nanos_total", null, "the nanoseconds spent in the athena transformer, for every class it was called with", 0)
+                    .labels((String[]) null);
+            duration = register.registerHistogram("athena_transform_duration_ms", null, "the time the athena transformer took for each matched class", 0,
+                    TimeUnit.MILLISECONDS, DURATION_BUCKETS, 1).labels((String[]) null);
+            CounterMetric bytes = register.registerCounter("athena_transform_class_bytes_total", new String[]{"stage"}, "the size of the matched class files before and after the transformation", 0);
+            bytesBefore = bytes.labels("before");
+            bytesAfter = bytes.labels("after");
+            probes = register.registerCounter("athena_transform_probes_total", null, "the metric probes injected into the matched classes", 0).labels((String[]) null);
+            failures = register.registerCounter("athena_transform_failures_total", new String[]{"cause"}, "the matched classes the athena transformer failed on, by exception type", MAX_CAUSES);
+        }
+    }
+}
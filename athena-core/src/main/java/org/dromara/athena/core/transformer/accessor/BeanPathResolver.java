@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.transformer.accessor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * The type Bean path resolver, resolves a label bean path such as {@code type.name} against the declared type of
+ * the argument at transform time, so the probe can read it with plain getter calls and field reads.
+ * The class files are read from the class loader of the instrumented class, nothing is loaded.
+ *
+ * @author xiaoyu
+ */
+public final class BeanPathResolver {
+
+    private static final String PATH_SEPARATOR = "\\.";
+
+    private final ClassLoader classLoader;
+
+    private final String className;
+
+    private final Map<String, ClassMembers> members = new HashMap<>();
+
+    /**
+     * Instantiates a new Bean path resolver.
+     *
+     * @param classLoader the class loader of the instrumented class
+     * @param className   the internal name of the instrumented class
+     */
+    public BeanPathResolver(final ClassLoader classLoader, final String className) {
+        this.classLoader = classLoader;
+        this.className = className;
+    }
+
+    /**
+     * Resolve the accessors of a bean path.
+     *
+     * @param rootType the declared type of the bean
+     * @param path     the bean path
+     * @return the accessors, or null when any step can not be resolved to an accessible member
+     */
+    public List<PropertyAccessor> resolve(final Type rootType, final String path) {
+        List<PropertyAccessor> result = new ArrayList<>();
+        Type current = rootType;
+        for (String property : path.split(PATH_SEPARATOR)) {
+            if (current.getSort() != Type.OBJECT) {
+                return null;
+            }
+            PropertyAccessor accessor = resolveProperty(current.getInternalName(), property);
+            if (null == accessor) {
+                return null;
+            }
+            result.add(accessor);
+            current = accessor.getType();
+        }
+        return result;
+    }
+
+    private PropertyAccessor resolveProperty(final String owner, final String property) {
+        ClassMembers ownerMembers = read(owner);
+        if (null == ownerMembers || !isAccessible(owner, ownerMembers.access)) {
+            return null;
+        }
+        String capitalized = Character.toUpperCase(property.charAt(0)) + property.substring(1);
+        int opcode = (ownerMembers.access & Opcodes.ACC_INTERFACE) != 0 ? Opcodes.INVOKEINTERFACE : Opcodes.INVOKEVIRTUAL;
+        for (String getter : new String[]{"get" + capitalized, "is" + capitalized}) {
+            Member method = findMethod(owner, getter);
+            if (null != method && (!getter.startsWith("is") || Type.getReturnType(method.desc) == Type.BOOLEAN_TYPE)) {
+                return new PropertyAccessor(opcode, owner, getter, method.desc, Type.getReturnType(method.desc));
+            }
+        }
+        Member field = findField(owner, property);
+        if (null != field) {
+            return new PropertyAccessor(Opcodes.GETFIELD, owner, property, field.desc, Type.getType(field.desc));
+        }
+        return null;
+    }
+
+    private Member findMethod(final String owner, final String name) {
+        ClassMembers current = read(owner);
+        while (null != current) {
+            Member method = current.methods.get(name);
+            if (null != method) {
+                return isAccessible(current.name, method.access) ? method : null;
+            }
+            for (String each : current.interfaces) {
+                Member found = findMethod(each, name);
+                if (null != found) {
+                    return found;
+                }
+            }
+            current = null == current.superName ? null : read(current.superName);
+        }
+        return null;
+    }
+
+    private Member findField(final String owner, final String name) {
+        ClassMembers current = read(owner);
+        while (null != current) {
+            Member field = current.fields.get(name);
+            if (null != field) {
+                return isAccessible(current.name, field.access) ? field : null;
+            }
+            current = null == current.superName ? null : read(current.superName);
+        }
+        return null;
+    }
+
+    private boolean isAccessible(final String declaringClass, final int access) {
+        if ((access & Opcodes.ACC_PUBLIC) != 0 || declaringClass.equals(className)) {
+            return true;
+        }
+        return (access & Opcodes.ACC_PRIVATE) == 0 && packageOf(declaringClass).equals(packageOf(className));
+    }
+
+    private static String packageOf(final String internalName) {
+        int index = internalName.lastIndexOf('/');
+        return index < 0 ? "" : internalName.substring(0, index);
+    }
+
+    private ClassMembers read(final String internalName) {
+        if (members.containsKey(internalName)) {
+            return members.get(internalName);
+        }
+        ClassMembers result = null;
+        ClassLoader loader = null == classLoader ? ClassLoader.getSystemClassLoader() : classLoader;
+        try (InputStream in = loader.getResourceAsStream(internalName + ".class")) {
+            if (null != in) {
+                result = new ClassMembers();
+                new ClassReader(in).accept(result, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+            }
+        } catch (IOException ignored) {
+            // not found class.
+        }
+        members.put(internalName, result);
+        return result;
+    }
+
+    private static final class Member {
+
+        private final int access;
+
+        private final String desc;
+
+        Member(final int access, final String desc) {
+            this.access = access;
+            this.desc = desc;
+        }
+    }
+
+    /**
+     * The instance members of a class that can be used as bean properties.
+     */
+    private static final class ClassMembers extends ClassVisitor {
+
+        private final Map<String, Member> methods = new HashMap<>();
+
+        private final Map<String, Member> fields = new HashMap<>();
+
+        private String name;
+
+        private int access;
+
+        private String superName;
+
+        private String[] interfaces;
+
+        ClassMembers() {
+            super(Opcodes.ASM5);
+        }
+
+        @Override
+        public void visit(final int version, final int access, final String name, final String signature, final String superName, final String[] interfaces) {
+            this.name = name;
+            this.access = access;
+            this.superName = superName;
+            this.interfaces = interfaces;
+        }
+
+        @Override
+        public FieldVisitor visitField(final int access, final String name, final String desc, final String signature, final Object value) {
+            if ((access & Opcodes.ACC_STATIC) == 0) {
+                fields.put(name, new Member(access, desc));
+            }
+            return null;
+        }
+
+        @Override
+        public MethodVisitor visitMethod(final int access, final String name, final String desc, final String signature, final String[] exceptions) {
+            boolean isBridge = (access & (Opcodes.ACC_BRIDGE | Opcodes.ACC_SYNTHETIC)) != 0;
+            if ((access & Opcodes.ACC_STATIC) == 0 && !isBridge && desc.startsWith("()") && !desc.endsWith(")V")) {
+                methods.putIfAbsent(name, new Member(access, desc));
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.transformer.accessor;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+/**
+ * The type Property accessor, one resolved step of a bean path: a getter call or a field read.
+ *
+ * @author xiaoyu
+ */
+@Getter
+@AllArgsConstructor
+public final class PropertyAccessor {
+
+    private final int opcode;
+
+    private final String owner;
+
+    private final String name;
+
+    private final String desc;
+
+    private final Type type;
+
+    /**
+     * Emit the access, the receiver has to be on top of the stack.
+     *
+     * @param mv the method visitor
+     */
+    public void accept(final MethodVisitor mv) {
+        if (opcode == Opcodes.GETFIELD) {
+            mv.visitFieldInsn(opcode, owner, name, desc);
+        } else {
+            mv.visitMethodInsn(opcode, owner, name, desc, opcode == Opcodes.INVOKEINTERFACE);
+        }
+    }
+}
@@ -17,24 +17,40 @@
 
 package org.dromara.athena.core.transformer.listener;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import org.apache.commons.beanutils.PropertyUtils;
 import org.apache.commons.collections.CollectionUtils;
 import org.dromara.athena.core.config.Metric;
+import org.dromara.athena.core.reporter.BeanProperties;
+import org.dromara.athena.core.reporter.LabelValues;
 import org.dromara.athena.core.reporter.MetricsReporter;
+import org.dromara.athena.core.reporter.ProbeSwitches;
+import org.dromara.athena.core.transformer.FrameTracker;
+import org.dromara.athena.core.transformer.SeriesField;
+import org.dromara.athena.core.transformer.TransformContext;
+import org.dromara.athena.core.transformer.accessor.PropertyAccessor;
 import org.dromara.athena.core.utils.MetricsLabelUtils;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.commons.AdviceAdapter;
+import org.objectweb.asm.commons.GeneratorAdapter;
+import org.objectweb.asm.commons.Method;
+import org.objectweb.asm.tree.MethodNode;
 
 import static org.objectweb.asm.Opcodes.AASTORE;
-import static org.objectweb.asm.Opcodes.ACONST_NULL;
-import static org.objectweb.asm.Opcodes.ALOAD;
 import static org.objectweb.asm.Opcodes.ANEWARRAY;
-import static org.objectweb.asm.Opcodes.ASTORE;
 import static org.objectweb.asm.Opcodes.DUP;
+import static org.objectweb.asm.Opcodes.DUP2;
+import static org.objectweb.asm.Opcodes.GOTO;
+import static org.objectweb.asm.Opcodes.H_INVOKESTATIC;
+import static org.objectweb.asm.Opcodes.IFNONNULL;
+import static org.objectweb.asm.Opcodes.ILOAD;
 import static org.objectweb.asm.Opcodes.INVOKESTATIC;
-
+import static org.objectweb.asm.Opcodes.POP;
 
 /**
  * The type Abstract listener.
@@ -45,6 +61,31 @@ public abstract class AbstractListener implements Listener {
     
     public static final String METRICS_REPORTER_CLASSNAME = Type.getInternalName(MetricsReporter.class);
     
+    /**
+     * The max number of label values passed to the reporter as separate arguments.
+     */
+    public static final int MAX_LABEL_ARITY = 4;
+    
+    private static final String LABEL_VALUES_CLASSNAME = Type.getInternalName(LabelValues.class);
+    
+    private static final String BEAN_PROPERTIES_CLASSNAME = Type.getInternalName(BeanProperties.class);
+    
+    private static final String NULL_VALUE = "null";
+    
+    private static final String PROBE_SWITCHES_CLASSNAME = Type.getInternalName(ProbeSwitches.class);
+    
+    private static final Handle PROBE_BOOTSTRAP = new Handle(H_INVOKESTATIC, PROBE_SWITCHES_CLASSNAME, "bootstrap",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodHandle;Ljava/lang/String;)Ljava/lang/invoke/CallSite;", false);
+    
+    private static final Handle VALUE_PROBE_BOOTSTRAP = new Handle(H_INVOKESTATIC, PROBE_SWITCHES_CLASSNAME, "bootstrapValue",
+            "(Ljava/lang/invoke/MethodHandles$Lookup;Ljava/lang/String;Ljava/lang/invoke/MethodType;Ljava/lang/invoke/MethodHandle;Ljava/lang/String;)Ljava/lang/invoke/CallSite;", false);
+    
+    private static final Type STRING_TYPE = Type.getType(String.class);
+    
+    private static final Type STRING_ARRAY_TYPE = Type.getType(String[].class);
+    
+    private static final Type OBJECT_TYPE = Type.getType(Object.class);
+    
     /**
      * The Advice adapter.
      */
@@ -60,75 +101,504 @@ public abstract class AbstractListener implements Listener {
      */
     protected final int access;
     
+    /**
+     * The id of the metric handle in {@link MetricsReporter}.
+     */
+    protected final int metricId;
+    
+    /**
+     * The transform context of the instrumented class.
+     */
+    protected final TransformContext context;
+    
+    private final int probeId;
+    
+    private int probeAllocatedBytes;
+    
+    private int probeStart;
+    
+    private GeneratorAdapter code;
+    
+    private int[] extraSlots;
+    
+    private int[] argSlots;
+    
+    private int thisSlot;
+    
+    private ProbeHelper helper;
+    
+    private int reentryId = -1;
+    
+    private int sampledSlot;
+    
     /**
      * Instantiates a new Abstract listener.
      *
+     * @param context   the transform context
      * @param aa        the AdviceAdapter
      * @param argTypes  the arg types
      * @param access    the access
+     * @param metricId  the metric id
+     * @param probeId   the probe id, -1 when the probe overhead is not measured
      */
-    public AbstractListener(final AdviceAdapter aa, final Type[] argTypes, final int access) {
+    public AbstractListener(final TransformContext context, final AdviceAdapter aa, final Type[] argTypes, final int access, final int metricId, final int probeId) {
+        this.context = context;
         this.aa = aa;
         this.argTypes = argTypes;
         this.access = access;
+        this.metricId = metricId;
+        this.probeId = probeId;
+        this.code = aa;
+    }
+    
+    /**
+     * Count the frame in the thread local depth of a metric that is not reentrant, it leaves the number of enclosing frames
+     * on the stack. It is emitted through {@link #code()}, in the enter probe, so a switched off probe does not count.
+     *
+     * @param metric the metric
+     */
+    protected void enterReentry(final Metric metric) {
+        if (reentryId < 0) {
+            reentryId = context.registerReentry(metric.getName());
+        }
+        code.push(reentryId);
+        code.visitMethodInsn(INVOKESTATIC, METRICS_REPORTER_CLASSNAME, "reentryEnter", Type.getMethodDescriptor(Type.INT_TYPE, Type.INT_TYPE), false);
     }
     
-    protected void injectLabel(final Metric metric) {
-        int nameVar = aa.newLocal(Type.getType(String.class));
-        aa.visitLdcInsn(metric.getName());
-        aa.visitVarInsn(ASTORE, nameVar);
+    /**
+     * Create a local of the instrumented method that lives for the whole method, it has to be stored on method enter.
+     *
+     * @param type the type
+     * @return the local
+     */
+    protected int newMethodLocal(final Type type) {
+        int result = aa.newLocal(type);
+        FrameTracker frameTracker = context.getFrameTracker();
+        if (null != frameTracker) {
+            frameTracker.keepLocal(result);
+        }
+        return result;
+    }
+    
+    /**
+     * Gets the frame locals of a handler whose range starts here.
+     *
+     * @return the frame locals, null when the frames are computed by the class writer
+     */
+    protected Object[] handlerLocals() {
+        FrameTracker frameTracker = context.getFrameTracker();
+        return null == frameTracker ? null : frameTracker.handlerLocals();
+    }
+    
+    /**
+     * Visit the label of a handler added to the instrumented method.
+     *
+     * @param handler the handler label
+     * @param locals  the frame locals from {@link #handlerLocals()} at the start of the handler range
+     */
+    protected void visitHandler(final Label handler, final Object[] locals) {
+        FrameTracker frameTracker = context.getFrameTracker();
+        if (null != frameTracker) {
+            frameTracker.handlerAt(handler, locals);
+        }
+        aa.visitLabel(handler);
+    }
+    
+    /**
+     * Leave the frame counted by {@link #enterReentry(Metric)}, emitted through {@link #code()} at every exit of a call whose frame was counted.
+     */
+    protected void exitReentry() {
+        code.push(reentryId);
+        code.visitMethodInsn(INVOKESTATIC, METRICS_REPORTER_CLASSNAME, "reentryExit", Type.getMethodDescriptor(Type.VOID_TYPE, Type.INT_TYPE), false);
+    }
+    
+    /**
+     * Gets the adapter the probe code is being emitted to, the instrumented method or the probe helper.
+     *
+     * @return the generator adapter
+     */
+    protected GeneratorAdapter code() {
+        return code;
+    }
+    
+    /**
+     * Emit the recording code of a probe that reads only the arguments of the instrumented method.
+     *
+     * @param metric the metric
+     * @param record emits the recording code through {@link #code()}
+     */
+    protected void emitProbe(final Metric metric, final Runnable record) {
+        emitProbe(metric, new Type[0], new int[0], record);
+    }
+    
+    /**
+     * Emit the recording code of a probe. When the class can get new methods the code goes to a synthetic static helper,
+     * generated once per listener, and the instrumented method only loads the values the probe reads and invokes the helper.
+     * That keeps the instrumented method small enough for the JIT to inline, however many exits it has.
+     * The helper is invoked through an invokedynamic call site of {@link ProbeSwitches} when the probes are switchable.
+     *
+     * @param metric      the metric
+     * @param extraTypes  the types of the locals of the instrumented method the probe reads besides its arguments
+     * @param extraLocals the locals of the instrumented method the probe reads besides its arguments
+     * @param record      emits the recording code through {@link #code()}
+     */
+    protected void emitProbe(final Metric metric, final Type[] extraTypes, final int[] extraLocals, final Runnable record) {
+        emitHelperProbe(metric, extraTypes, extraLocals, record, context.isSwitchableProbes());
+    }
+    
+    /**
+     * Emit the recording code of a probe that has to run at the exit of every call its enter probe saw, like
+     * {@link #emitProbe(Metric, Type[], int[], Runnable)} but the helper is invoked directly, never through a switchable
+     * call site. The instrumented method decides from the value left by the enter probe whether to run it.
+     *
+     * @param metric      the metric
+     * @param extraTypes  the types of the locals of the instrumented method the probe reads besides its arguments
+     * @param extraLocals the locals of the instrumented method the probe reads besides its arguments
+     * @param record      emits the recording code through {@link #code()}
+     */
+    protected void emitExitProbe(final Metric metric, final Type[] extraTypes, final int[] extraLocals, final Runnable record) {
+        emitHelperProbe(metric, extraTypes, extraLocals, record, false);
+    }
+    
+    /**
+     * Emit the code of a probe that leaves a value on the stack of the instrumented method, such as the start time of a call.
+     * When the class can get new methods the code goes to a synthetic static helper of its own that returns the value, it takes
+     * a last boolean argument read by {@link #loadSampled()}. With switchable probes the helper is reached through an
+     * invokedynamic call site of {@link ProbeSwitches} that returns zero while the probe is switched off, so the instrumented
+     * method runs nothing of the probe, and that passes false for the calls left out by the sample interval of the metric.
+     *
+     * @param metric    the metric
+     * @param valueType the type of the value
+     * @param record    emits the code leaving the value through {@link #code()}
+     */
+    protected void emitValueProbe(final Metric metric, final Type valueType, final Runnable record) {
+        if (!context.isProbeHelpers()) {
+            extraSlots = new int[0];
+            record.run();
+            return;
+        }
+        boolean[] usedArgs = new boolean[argTypes.length];
+        boolean usesThis = collectUsedArgs(metric, usedArgs);
+        ProbeHelper valueHelper = defineHelper(valueType, new Type[0], usesThis, usedArgs, true, record);
+        loadHelperArguments(new int[0], usesThis, usedArgs);
+        if (context.isSwitchableProbes()) {
+            Type[] helperArgs = Type.getArgumentTypes(valueHelper.desc);
+            String siteDesc = Type.getMethodDescriptor(valueType, Arrays.copyOf(helperArgs, helperArgs.length - 1));
+            aa.visitInvokeDynamicInsn("probe", siteDesc, VALUE_PROBE_BOOTSTRAP, new Handle(H_INVOKESTATIC, context.getClassName(), valueHelper.name, valueHelper.desc, false),
+                    metric.getName());
+        } else {
+            aa.push(true);
+            aa.visitMethodInsn(INVOKESTATIC, context.getClassName(), valueHelper.name, valueHelper.desc, false);
+        }
+    }
+    
+    /**
+     * Whether the probe code is being emitted to a probe helper instead of the instrumented method.
+     *
+     * @return the boolean
+     */
+    protected boolean isInProbeHelper() {
+        return code != aa;
+    }
+    
+    /**
+     * Load the last argument of the helper of a value probe, false when the call is left out by the sample interval set
+     * on the call site, it can only be read while {@link #isInProbeHelper() in the helper}.
+     */
+    protected void loadSampled() {
+        code.visitVarInsn(ILOAD, sampledSlot);
+    }
+    
+    /**
+     * Load a local passed to {@link #emitProbe(Metric, Type[], int[], Runnable)} in the probe code.
+     *
+     * @param index the index in the extra locals
+     * @param type  the type
+     */
+    protected void loadExtra(final int index, final Type type) {
+        if (null == argSlots) {
+            code.loadLocal(extraSlots[index], type);
+        } else {
+            code.visitVarInsn(type.getOpcode(ILOAD), extraSlots[index]);
+        }
+    }
+    
+    private void loadHelperArguments(final int[] extraLocals, final boolean usesThis, final boolean[] usedArgs) {
+        for (int extraLocal : extraLocals) {
+            aa.loadLocal(extraLocal);
+        }
+        if (usesThis) {
+            aa.loadThis();
+        }
+        for (int i = 0; i < argTypes.length; i++) {
+            if (usedArgs[i]) {
+                aa.visitVarInsn(argTypes[i].getOpcode(ILOAD), getStackIndex(i));
+            }
+        }
+    }
+    
+    private void emitHelperProbe(final Metric metric, final Type[] extraTypes, final int[] extraLocals, final Runnable record, final boolean switchable) {
+        if (!context.isProbeHelpers()) {
+            extraSlots = extraLocals;
+            record.run();
+            return;
+        }
+        boolean[] usedArgs = new boolean[argTypes.length];
+        boolean usesThis = collectUsedArgs(metric, usedArgs);
+        if (null == helper) {
+            helper = defineHelper(Type.VOID_TYPE, extraTypes, usesThis, usedArgs, false, record);
+        }
+        loadHelperArguments(extraLocals, usesThis, usedArgs);
+        if (switchable) {
+            aa.visitInvokeDynamicInsn("probe", helper.desc, PROBE_BOOTSTRAP, new Handle(H_INVOKESTATIC, context.getClassName(), helper.name, helper.desc, false), metric.getName());
+        } else {
+            aa.visitMethodInsn(INVOKESTATIC, context.getClassName(), helper.name, helper.desc, false);
+        }
+    }
+    
+    private ProbeHelper defineHelper(final Type returnType, final Type[] extraTypes, final boolean usesThis, final boolean[] usedArgs, final boolean sampledArg,
+                                     final Runnable record) {
+        List<Type> params = new ArrayList<>(Arrays.asList(extraTypes));
+        int slot = 0;
+        extraSlots = new int[extraTypes.length];
+        for (int i = 0; i < extraTypes.length; i++) {
+            extraSlots[i] = slot;
+            slot += extraTypes[i].getSize();
+        }
+        thisSlot = slot;
+        if (usesThis) {
+            params.add(Type.getObjectType(context.getClassName()));
+            slot++;
+        }
+        argSlots = new int[argTypes.length];
+        for (int i = 0; i < argTypes.length; i++) {
+            if (usedArgs[i]) {
+                argSlots[i] = slot;
+                params.add(argTypes[i]);
+                slot += argTypes[i].getSize();
+            }
+        }
+        sampledSlot = slot;
+        if (sampledArg) {
+            params.add(Type.BOOLEAN_TYPE);
+        }
+        String desc = Type.getMethodDescriptor(returnType, params.toArray(new Type[0]));
+        MethodNode method = context.newProbeHelper(desc);
+        MethodVisitor mv = context.isPreserveFrames() ? new FrameTracker(context.getClassName(), method.access, method.name, desc, method) : method;
+        code = new GeneratorAdapter(method.access, new Method(method.name, desc), mv);
+        code.visitCode();
+        record.run();
+        code.returnValue();
+        code.endMethod();
+        code = aa;
+        argSlots = null;
+        return new ProbeHelper(method.name, desc);
+    }
+    
+    private boolean collectUsedArgs(final Metric metric, final boolean[] usedArgs) {
+        List<String> labelValues = MetricsLabelUtils.getLabelValues(metric.getLabels());
+        if (null == labelValues) {
+            return false;
+        }
+        boolean usesThis = false;
+        for (String each : labelValues) {
+            if (!each.startsWith("$")) {
+                continue;
+            }
+            if (MetricsLabelUtils.isThisLabel(each)) {
+                usesThis = true;
+            } else {
+                usedArgs[MetricsLabelUtils.getLabelValueIndex(each)] = true;
+            }
+        }
+        return usesThis;
+    }
+    
+    /**
+     * Start measuring the probe code that follows, nothing is emitted when the probe overhead is not measured.
+     */
+    protected void enterProbe() {
+        if (probeId < 0) {
+            return;
+        }
+        probeAllocatedBytes = code.newLocal(Type.LONG_TYPE);
+        probeStart = code.newLocal(Type.LONG_TYPE);
+        code.visitMethodInsn(INVOKESTATIC, METRICS_REPORTER_CLASSNAME, "probeAllocatedBytes", Type.getMethodDescriptor(Type.LONG_TYPE), false);
+        code.visitInsn(DUP2);
+        code.storeLocal(probeAllocatedBytes);
+        code.visitMethodInsn(INVOKESTATIC, METRICS_REPORTER_CLASSNAME, "probeStart", Type.getMethodDescriptor(Type.LONG_TYPE, Type.LONG_TYPE), false);
+        code.storeLocal(probeStart);
+    }
+    
+    /**
+     * End measuring the probe code emitted since {@link #enterProbe()}.
+     */
+    protected void exitProbe() {
+        if (probeId < 0) {
+            return;
+        }
+        code.push(probeId);
+        code.loadLocal(probeStart);
+        code.loadLocal(probeAllocatedBytes);
+        code.visitMethodInsn(INVOKESTATIC, METRICS_REPORTER_CLASSNAME, "probeExit", Type.getMethodDescriptor(Type.VOID_TYPE, Type.INT_TYPE, Type.LONG_TYPE, Type.LONG_TYPE), false);
+    }
+    
+    /**
+     * Bind the series of a metric whose labels are all constant to a static field of the instrumented class.
+     *
+     * @param metric the metric
+     * @return the series field, or null when the labels are dynamic or the class can not get new fields
+     */
+    protected SeriesField bindConstantSeries(final Metric metric) {
+        if (!MetricsLabelUtils.isConstantLabels(metric.getLabels())) {
+            return null;
+        }
+        List<String> labelValues = MetricsLabelUtils.getLabelValues(metric.getLabels());
+        return context.bindSeries(metric.getType(), metricId, null == labelValues ? null : labelValues.toArray(new String[0]));
+    }
+    
+    /**
+     * Load the bound series child onto the stack.
+     *
+     * @param seriesField the series field
+     */
+    protected void loadSeries(final SeriesField seriesField) {
+        context.loadSeries(code, seriesField);
+    }
+    
+    /**
+     * Push the metric id and the label values for a reporter call. Up to {@link #MAX_LABEL_ARITY} label values are
+     * passed as separate arguments so the probe does not allocate a label array, more than that fall back to an array.
+     *
+     * @param metric the metric
+     * @return the argument types of the reporter call pushed so far
+     */
+    protected List<Type> injectLabel(final Metric metric) {
+        code.push(metricId);
+        List<Type> argumentTypes = new ArrayList<>();
+        argumentTypes.add(Type.INT_TYPE);
         List<String> labelValues = MetricsLabelUtils.getLabelValues(metric.getLabels());
-        if (CollectionUtils.isNotEmpty(labelValues)) {
-            int labelVar = injectLabelValues(labelValues);
-            aa.visitVarInsn(ALOAD, nameVar);
-            aa.visitVarInsn(ALOAD, labelVar);
+        if (CollectionUtils.isEmpty(labelValues)) {
+            return argumentTypes;
+        }
+        if (labelValues.size() <= MAX_LABEL_ARITY) {
+            for (String each : labelValues) {
+                injectLabelValue(each);
+                argumentTypes.add(STRING_TYPE);
+            }
         } else {
-            aa.visitVarInsn(ALOAD, nameVar);
-            aa.visitInsn(ACONST_NULL);
+            injectLabelValues(labelValues);
+            argumentTypes.add(STRING_ARRAY_TYPE);
         }
+        return argumentTypes;
     }
     
-    protected int injectLabelValues(final List<String> labelValues) {
-        aa.visitInsn(labelValues.size() + 3);
-        aa.visitTypeInsn(ANEWARRAY, Type.getInternalName(String.class));
+    /**
+     * Invoke a static method of {@link MetricsReporter}.
+     *
+     * @param method        the method name
+     * @param argumentTypes the argument types
+     */
+    protected void invokeReporter(final String method, final List<Type> argumentTypes) {
+        String desc = Type.getMethodDescriptor(Type.VOID_TYPE, argumentTypes.toArray(new Type[0]));
+        code.visitMethodInsn(INVOKESTATIC, METRICS_REPORTER_CLASSNAME, method, desc, false);
+    }
+    
+    private void injectLabelValues(final List<String> labelValues) {
+        code.push(labelValues.size());
+        code.visitTypeInsn(ANEWARRAY, STRING_TYPE.getInternalName());
         for (int i = 0; i < labelValues.size(); i++) {
-            aa.visitInsn(DUP);
-            aa.visitInsn(i + 3);
+            code.visitInsn(DUP);
+            code.push(i);
             injectLabelValue(labelValues.get(i));
+            code.visitInsn(AASTORE);
         }
-        int labelVar = aa.newLocal(Type.getType(String[].class));
-        aa.visitVarInsn(ASTORE, labelVar);
-        return labelVar;
     }
     
     private void injectLabelValue(final String labelValue) {
-        if (labelValue.startsWith("$")) {
-            int argIndex = MetricsLabelUtils.getLabelValueIndex(labelValue);
-            argsLoad(argIndex);
+        if (!labelValue.startsWith("$")) {
+            code.visitLdcInsn(labelValue);
+            return;
+        }
+        Type type;
+        if (MetricsLabelUtils.isThisLabel(labelValue)) {
+            loadThis();
+            type = Type.getObjectType(context.getClassName());
         } else {
-            aa.visitLdcInsn(labelValue);
+            type = argsLoad(MetricsLabelUtils.getLabelValueIndex(labelValue));
         }
         if (MetricsLabelUtils.hasBeanParam(labelValue)) {
-            aa.visitLdcInsn(MetricsLabelUtils.getLabelVarIndex(labelValue));
-            aa.visitMethodInsn(INVOKESTATIC, Type.getInternalName(PropertyUtils.class), "getNestedProperty",
-                    Type.getMethodDescriptor(Type.getType(Object.class), Type.getType(Object.class), Type.getType(String.class)), false);
+            String path = MetricsLabelUtils.getLabelVarIndex(labelValue);
+            List<PropertyAccessor> accessors = context.getBeanPathResolver().resolve(type, path);
+            if (null != accessors) {
+                injectAccessors(accessors);
+                return;
+            }
+            // not resolvable against the declared type, read it by reflection.
+            code.visitLdcInsn(path);
+            code.visitMethodInsn(INVOKESTATIC, BEAN_PROPERTIES_CLASSNAME, "getNestedProperty", Type.getMethodDescriptor(OBJECT_TYPE, OBJECT_TYPE, STRING_TYPE), false);
+            type = OBJECT_TYPE;
         }
-        aa.visitMethodInsn(INVOKESTATIC, Type.getInternalName(String.class), "valueOf",
-                Type.getMethodDescriptor(Type.getType(String.class), Type.getType(Object.class)), false);
-        aa.visitInsn(AASTORE);
+        invokeValueOf(type);
     }
     
-    private void argsLoad(final int argsIndex) {
-        Type type = argTypes[argsIndex];
-        int stackIndex = getStackIndex(argsIndex);
-        if (type.getSort() == Type.OBJECT) {
-            aa.visitVarInsn(ALOAD, stackIndex);
+    /**
+     * Walk the bean path with direct getter calls and field reads, a null on the way is labelled as "null".
+     * Every null check leaves the stack with a single string, so the branches merge without a common super type.
+     *
+     * @param accessors the accessors
+     */
+    private void injectAccessors(final List<PropertyAccessor> accessors) {
+        Label end = new Label();
+        for (PropertyAccessor each : accessors) {
+            Label nonNull = new Label();
+            code.visitInsn(DUP);
+            code.visitJumpInsn(IFNONNULL, nonNull);
+            code.visitInsn(POP);
+            code.visitLdcInsn(NULL_VALUE);
+            code.visitJumpInsn(GOTO, end);
+            code.visitLabel(nonNull);
+            each.accept(code);
+        }
+        invokeValueOf(accessors.get(accessors.size() - 1).getType());
+        code.visitLabel(end);
+    }
+    
+    private void invokeValueOf(final Type type) {
+        code.visitMethodInsn(INVOKESTATIC, LABEL_VALUES_CLASSNAME, "valueOf", Type.getMethodDescriptor(STRING_TYPE, toValueOfType(type)), false);
+    }
+    
+    private Type toValueOfType(final Type type) {
+        switch (type.getSort()) {
+            case Type.BYTE:
+            case Type.SHORT:
+            case Type.INT:
+                return Type.INT_TYPE;
+            case Type.BOOLEAN:
+            case Type.CHAR:
+            case Type.LONG:
+            case Type.FLOAT:
+            case Type.DOUBLE:
+                return type;
+            default:
+                return OBJECT_TYPE;
+        }
+    }
+    
+    private void loadThis() {
+        if (null == argSlots) {
+            code.loadThis();
         } else {
-            aa.visitVarInsn(type.getOpcode(Opcodes.ILOAD), stackIndex);
-            aa.valueOf(type);
+            code.visitVarInsn(Opcodes.ALOAD, thisSlot);
         }
     }
     
+    private Type argsLoad(final int argsIndex) {
+        Type type = argTypes[argsIndex];
+        code.visitVarInsn(type.getOpcode(Opcodes.ILOAD), null == argSlots ? getStackIndex(argsIndex) : argSlots[argsIndex]);
+        return type;
+    }
+    
     private int getStackIndex(final int args) {
         int index = (access & Opcodes.ACC_STATIC) == 0 ? 1 : 0;
         for (int i = 0; i < args; i++) {
@@ -137,4 +607,18 @@ public abstract class AbstractListener implements Listener {
         return index;
     }
     
+    /**
+     * The name and descriptor of a synthetic probe helper.
+     */
+    private static final class ProbeHelper {
+        
+        private final String name;
+        
+        private final String desc;
+        
+        ProbeHelper(final String name, final String desc) {
+            this.name = name;
+            this.desc = desc;
+        }
+    }
 }
@@ -18,13 +18,21 @@
 package org.dromara.athena.core.transformer.listener;
 
 import org.dromara.athena.core.config.Metric;
+import org.dromara.athena.core.transformer.SeriesField;
+import org.dromara.athena.core.transformer.TransformContext;
+import org.dromara.athena.spi.CounterMetric;
+import org.objectweb.asm.Label;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.commons.AdviceAdapter;
 
-import static org.objectweb.asm.Opcodes.INVOKESTATIC;
+import static org.objectweb.asm.Opcodes.ATHROW;
+import static org.objectweb.asm.Opcodes.IFEQ;
+import static org.objectweb.asm.Opcodes.IFNE;
+import static org.objectweb.asm.Opcodes.INVOKEINTERFACE;
 
 /**
- * The type Counter listener.
+ * The type Counter listener. A counter that is not reentrant counts its frame in its enter probe, which leaves 1 when it did,
+ * and only the outermost frame of the metric on the thread is counted.
  *
  * @author xiaoyu
  */
@@ -32,27 +40,106 @@ public class CounterListener extends AbstractListener {
     
     private static final String METHOD = "counterInc";
     
-    private static final String SIGNATURE = Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(String.class), Type.getType(String[].class));
+    private static final String SERIES_OWNER = Type.getInternalName(CounterMetric.Child.class);
+    
+    private static final String SERIES_METHOD = "inc";
+    
+    private static final String SERIES_SIGNATURE = Type.getMethodDescriptor(Type.VOID_TYPE);
     
     private final Metric metric;
     
+    private int entered;
+    
+    private Label startFinally;
+    
+    private Object[] handlerLocals;
+    
     /**
      * Instantiates a new Counter listener.
      *
      * @param metric    the metric
+     * @param context   the context
      * @param aa        the aa
      * @param argTypes  the arg types
      * @param access    the access
+     * @param metricId  the metric id
+     * @param probeId   the probe id
      */
-    public CounterListener(final Metric metric, final AdviceAdapter aa, final Type[] argTypes, final int access) {
-        super(aa, argTypes, access);
+    public CounterListener(final Metric metric, final TransformContext context, final AdviceAdapter aa, final Type[] argTypes, final int access, final int metricId,
+                           final int probeId) {
+        super(context, aa, argTypes, access, metricId, probeId);
         this.metric = metric;
     }
     
     @Override
     public void listenerOnMethodEnter() {
-        injectLabel(metric);
-        aa.visitMethodInsn(INVOKESTATIC, METRICS_REPORTER_CLASSNAME, METHOD, SIGNATURE, false);
+        if (metric.isReentrant()) {
+            emitProbe(metric, this::record);
+            return;
+        }
+        entered = newMethodLocal(Type.INT_TYPE);
+        emitValueProbe(metric, Type.INT_TYPE, this::enter);
+        aa.storeLocal(entered);
+        startFinally = new Label();
+        aa.visitLabel(startFinally);
+        handlerLocals = handlerLocals();
+    }
+    
+    @Override
+    public void listenerOnVisitMaxs(final int maxStack, final int maxLocals) {
+        if (null == startFinally) {
+            return;
+        }
+        Label endFinally = new Label();
+        aa.visitTryCatchBlock(startFinally, endFinally, endFinally, null);
+        visitHandler(endFinally, handlerLocals);
+        onFinally();
+        aa.visitInsn(ATHROW);
+    }
+    
+    @Override
+    public void listenerOnMethodExit(final int opcode) {
+        if (null != startFinally && opcode != ATHROW) {
+            onFinally();
+        }
+    }
+    
+    private void onFinally() {
+        if (!context.isSwitchableProbes()) {
+            exitReentry();
+            return;
+        }
+        // a switched off enter probe leaves 0, it did not count the frame.
+        Label skip = new Label();
+        aa.loadLocal(entered);
+        aa.visitJumpInsn(IFEQ, skip);
+        exitReentry();
+        aa.visitLabel(skip);
+    }
+    
+    private void enter() {
+        Label nested = new Label();
+        enterReentry(metric);
+        code().visitJumpInsn(IFNE, nested);
+        if (isInProbeHelper() && context.isSwitchableProbes()) {
+            loadSampled();
+            code().visitJumpInsn(IFEQ, nested);
+        }
+        record();
+        code().visitLabel(nested);
+        code().push(1);
+    }
+    
+    private void record() {
+        enterProbe();
+        SeriesField seriesField = bindConstantSeries(metric);
+        if (null != seriesField) {
+            loadSeries(seriesField);
+            code().visitMethodInsn(INVOKEINTERFACE, SERIES_OWNER, SERIES_METHOD, SERIES_SIGNATURE, true);
+        } else {
+            invokeReporter(METHOD, injectLabel(metric));
+        }
+        exitProbe();
     }
     
 }
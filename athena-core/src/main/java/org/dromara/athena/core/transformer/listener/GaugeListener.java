@@ -18,10 +18,13 @@
 package org.dromara.athena.core.transformer.listener;
 
 import org.dromara.athena.core.config.Metric;
+import org.dromara.athena.core.transformer.SeriesField;
+import org.dromara.athena.core.transformer.TransformContext;
+import org.dromara.athena.spi.GaugeMetric;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.commons.AdviceAdapter;
 
-import static org.objectweb.asm.Opcodes.INVOKESTATIC;
+import static org.objectweb.asm.Opcodes.INVOKEINTERFACE;
 
 /**
  * The type Gauge listener.
@@ -32,7 +35,15 @@ public class GaugeListener extends AbstractListener {
 
     private static final String INC_METHOD = "gaugeInc";
 
-    private static final String SIGNATURE = Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(String.class), Type.getType(String[].class));
+    private static final String DEC_METHOD = "gaugeDec";
+
+    private static final String SERIES_OWNER = Type.getInternalName(GaugeMetric.Child.class);
+    
+    private static final String SERIES_INC_METHOD = "inc";
+    
+    private static final String SERIES_DEC_METHOD = "dec";
+    
+    private static final String SERIES_SIGNATURE = Type.getMethodDescriptor(Type.VOID_TYPE);
     
     private final Metric metric;
     
@@ -40,18 +51,21 @@ public class GaugeListener extends AbstractListener {
      * Instantiates a new Gauge listener.
      *
      * @param metric   the metric
+     * @param context  the context
      * @param aa       the aa
      * @param argTypes the arg types
      * @param access   the access
+     * @param metricId the metric id
+     * @param probeId  the probe id
      */
-    public GaugeListener(final Metric metric, final AdviceAdapter aa, final Type[] argTypes, final int access) {
-        super(aa, argTypes, access);
+    public GaugeListener(final Metric metric, final TransformContext context, final AdviceAdapter aa, final Type[] argTypes, final int access, final int metricId,
+                         final int probeId) {
+        super(context, aa, argTypes, access, metricId, probeId);
         this.metric = metric;
     }
 
     @Override
     public void listenerOnMethodEnter() {
-        injectLabel(metric);
         String method = metric.getMethod();
         String methodName;
         if (null != method && !"".equalsIgnoreCase(method)) {
@@ -59,6 +73,19 @@ public class GaugeListener extends AbstractListener {
         } else {
             methodName = INC_METHOD;
         }
-        aa.visitMethodInsn(INVOKESTATIC, METRICS_REPORTER_CLASSNAME, methodName, SIGNATURE, false);
+        emitProbe(metric, () -> record(methodName));
+    }
+    
+    private void record(final String methodName) {
+        enterProbe();
+        SeriesField seriesField = bindConstantSeries(metric);
+        if (null != seriesField) {
+            loadSeries(seriesField);
+            String seriesMethod = DEC_METHOD.equals(methodName) ? SERIES_DEC_METHOD : SERIES_INC_METHOD;
+            code().visitMethodInsn(INVOKEINTERFACE, SERIES_OWNER, seriesMethod, SERIES_SIGNATURE, true);
+        } else {
+            invokeReporter(methodName, injectLabel(metric));
+        }
+        exitProbe();
     }
 }
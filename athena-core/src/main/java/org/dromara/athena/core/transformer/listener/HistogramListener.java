@@ -17,19 +17,32 @@
 
 package org.dromara.athena.core.transformer.listener;
 
+import java.util.List;
 import org.dromara.athena.core.config.Metric;
+import org.dromara.athena.core.transformer.SeriesField;
+import org.dromara.athena.core.transformer.TransformContext;
+import org.dromara.athena.core.utils.MetricsUtils;
+import org.dromara.athena.spi.HistogramMetric;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.commons.AdviceAdapter;
 
+import static org.objectweb.asm.Opcodes.GOTO;
+import static org.objectweb.asm.Opcodes.IFEQ;
+import static org.objectweb.asm.Opcodes.IFNE;
+import static org.objectweb.asm.Opcodes.INVOKEINTERFACE;
 import static org.objectweb.asm.Opcodes.INVOKESTATIC;
-import static org.objectweb.asm.Opcodes.LLOAD;
-import static org.objectweb.asm.Opcodes.LSTORE;
+import static org.objectweb.asm.Opcodes.LCMP;
+import static org.objectweb.asm.Opcodes.LCONST_0;
 import static org.objectweb.asm.Opcodes.ATHROW;
 import static org.objectweb.asm.Opcodes.LSUB;
 
 /**
- * The type Histogram listener.
+ * The type Histogram listener. The enter probe leaves the start time of the call, it counts the frame of a metric that
+ * is not reentrant and decides whether a sampled histogram times the call. The exit probe records the calls with a
+ * start time: a switched off enter probe leaves 0 and the exit probe does not run, a call that is not timed is marked
+ * {@link Long#MIN_VALUE} when the exit probe still has to leave the frame of a metric that is not reentrant, and 0 otherwise.
+ * A histogram that is not reentrant only records the outermost frame of the metric on the thread.
  *
  * @author xiaoyu
  */
@@ -37,41 +50,65 @@ public class HistogramListener extends AbstractListener {
 
     private static final String METHOD = "recordTime";
     
-    private static final String SIGNATURE = Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(String.class), Type.getType(String[].class), Type.LONG_TYPE);
+    private static final String SERIES_OWNER = Type.getInternalName(HistogramMetric.Child.class);
+    
+    private static final String SERIES_METHOD = "observe";
+    
+    private static final String SERIES_SIGNATURE = Type.getMethodDescriptor(Type.VOID_TYPE, Type.LONG_TYPE);
+    
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+    
+    private static final String SAMPLE_METHOD = "sample";
+    
+    private static final String SAMPLE_SIGNATURE = Type.getMethodDescriptor(Type.BOOLEAN_TYPE, Type.INT_TYPE);
     
     private final Metric metric;
     
+    private final int sampleEvery;
+    
     private int startTime;
     
     private Label startFinally;
     
+    private Object[] handlerLocals;
+    
     /**
      * Instantiates a new Histogram listener.
      *
      * @param metric   the metric
+     * @param context  the context
      * @param aa       the aa
      * @param argTypes the arg types
      * @param access   the access
+     * @param metricId the metric id
+     * @param probeId  the probe id
      */
-    public HistogramListener(final Metric metric, final AdviceAdapter aa, final Type[] argTypes, final int access) {
-        super(aa, argTypes, access);
+    public HistogramListener(final Metric metric, final TransformContext context, final AdviceAdapter aa, final Type[] argTypes, final int access, final int metricId,
+                             final int probeId) {
+        super(context, aa, argTypes, access, metricId, probeId);
         this.metric = metric;
+        this.sampleEvery = MetricsUtils.getSampleEvery(metric);
     }
 
     @Override
     public void listenerOnMethodEnter() {
         startFinally = new Label();
-        startTime = aa.newLocal(Type.LONG_TYPE);
-        aa.visitMethodInsn(INVOKESTATIC, "java/lang/System", "nanoTime", "()J", false);
-        aa.visitVarInsn(LSTORE, startTime);
+        startTime = newMethodLocal(Type.LONG_TYPE);
+        if (context.isSwitchableProbes() || !metric.isReentrant() || sampleEvery > 1) {
+            emitValueProbe(metric, Type.LONG_TYPE, this::start);
+        } else {
+            aa.visitMethodInsn(INVOKESTATIC, "java/lang/System", "nanoTime", "()J", false);
+        }
+        aa.storeLocal(startTime);
         aa.visitLabel(startFinally);
+        handlerLocals = handlerLocals();
     }
 
     @Override
     public void listenerOnVisitMaxs(final int maxStack, final int maxLocals) {
         Label endFinally = new Label();
         aa.visitTryCatchBlock(startFinally, endFinally, endFinally, null);
-        aa.visitLabel(endFinally);
+        visitHandler(endFinally, handlerLocals);
         onFinally();
         aa.visitInsn(ATHROW);
     }
@@ -84,10 +121,80 @@ public class HistogramListener extends AbstractListener {
     }
 
     private void onFinally() {
-        injectLabel(metric);
-        aa.visitMethodInsn(INVOKESTATIC, "java/lang/System", "nanoTime", "()J", false);
-        aa.visitVarInsn(LLOAD, startTime);
-        aa.visitInsn(LSUB);
-        aa.visitMethodInsn(INVOKESTATIC, METRICS_REPORTER_CLASSNAME, METHOD, SIGNATURE, false);
+        Label skip = null;
+        // a start time of 0 is a call the enter probe did not see, or one it saw but does not time when the metric is reentrant.
+        if (context.isSwitchableProbes() || (metric.isReentrant() && sampleEvery > 1)) {
+            skip = new Label();
+            aa.loadLocal(startTime);
+            aa.visitInsn(LCONST_0);
+            aa.visitInsn(LCMP);
+            aa.visitJumpInsn(IFEQ, skip);
+        }
+        emitExitProbe(metric, new Type[]{Type.LONG_TYPE}, new int[]{startTime}, this::record);
+        if (null != skip) {
+            aa.visitLabel(skip);
+        }
+    }
+    
+    private void start() {
+        Label untimed = new Label();
+        boolean branches = false;
+        if (!metric.isReentrant()) {
+            enterReentry(metric);
+            code().visitJumpInsn(IFNE, untimed);
+            branches = true;
+        }
+        if (isInProbeHelper() && context.isSwitchableProbes()) {
+            loadSampled();
+            code().visitJumpInsn(IFEQ, untimed);
+            branches = true;
+        }
+        if (sampleEvery > 1) {
+            code().push(sampleEvery);
+            code().visitMethodInsn(INVOKESTATIC, METRICS_REPORTER_CLASSNAME, SAMPLE_METHOD, SAMPLE_SIGNATURE, false);
+            code().visitJumpInsn(IFEQ, untimed);
+            branches = true;
+        }
+        code().visitMethodInsn(INVOKESTATIC, "java/lang/System", "nanoTime", "()J", false);
+        if (branches) {
+            Label end = new Label();
+            code().visitJumpInsn(GOTO, end);
+            code().visitLabel(untimed);
+            code().push(metric.isReentrant() ? 0L : NOT_TIMED);
+            code().visitLabel(end);
+        }
+    }
+    
+    private void record() {
+        Label skip = null;
+        if (!metric.isReentrant()) {
+            exitReentry();
+            skip = new Label();
+            loadExtra(0, Type.LONG_TYPE);
+            code().push(NOT_TIMED);
+            code().visitInsn(LCMP);
+            code().visitJumpInsn(IFEQ, skip);
+        }
+        enterProbe();
+        SeriesField seriesField = bindConstantSeries(metric);
+        List<Type> argumentTypes = null;
+        if (null != seriesField) {
+            loadSeries(seriesField);
+        } else {
+            argumentTypes = injectLabel(metric);
+        }
+        code().visitMethodInsn(INVOKESTATIC, "java/lang/System", "nanoTime", "()J", false);
+        loadExtra(0, Type.LONG_TYPE);
+        code().visitInsn(LSUB);
+        if (null != seriesField) {
+            code().visitMethodInsn(INVOKEINTERFACE, SERIES_OWNER, SERIES_METHOD, SERIES_SIGNATURE, true);
+        } else {
+            argumentTypes.add(Type.LONG_TYPE);
+            invokeReporter(METHOD, argumentTypes);
+        }
+        exitProbe();
+        if (null != skip) {
+            code().visitLabel(skip);
+        }
     }
 }
@@ -20,6 +20,7 @@ package org.dromara.athena.core.transformer.listener;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.dromara.athena.core.config.Metric;
+import org.dromara.athena.core.transformer.TransformContext;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.commons.AdviceAdapter;
 
@@ -29,26 +30,29 @@ import org.objectweb.asm.commons.AdviceAdapter;
 public class ListenerFactory {
     
     /**
-     * New listeners list.
+     * New listeners list, registering every metric with the reporter to obtain its handle id.
      *
      * @param metrics       the metrics
+     * @param context       the transform context
      * @param adviceAdapter the advice adapter
      * @param argTypes      the arg types
      * @param access        the access
      * @return the list
      */
-    public static List<Listener> newListeners(final List<Metric> metrics, final AdviceAdapter adviceAdapter, final Type[] argTypes, final int access) {
-        return metrics.stream().map(metric -> newListener(metric, adviceAdapter, argTypes, access)).collect(Collectors.toList());
+    public static List<Listener> newListeners(final List<Metric> metrics, final TransformContext context, final AdviceAdapter adviceAdapter, final Type[] argTypes, final int access) {
+        return metrics.stream().map(metric -> newListener(metric, context, adviceAdapter, argTypes, access)).collect(Collectors.toList());
     }
     
-    private static Listener newListener(final Metric metric, final AdviceAdapter adviceAdapter, final Type[] argTypes, final int access) {
+    private static Listener newListener(final Metric metric, final TransformContext context, final AdviceAdapter adviceAdapter, final Type[] argTypes, final int access) {
+        int metricId = context.registerMetric(metric);
+        int probeId = context.registerProbe(metric.getName());
         switch (metric.getType()) {
             case COUNTER:
-                return new CounterListener(metric, adviceAdapter, argTypes, access);
+                return new CounterListener(metric, context, adviceAdapter, argTypes, access, metricId, probeId);
             case GAUGE:
-                return new GaugeListener(metric, adviceAdapter, argTypes, access);
+                return new GaugeListener(metric, context, adviceAdapter, argTypes, access, metricId, probeId);
             case HISTOGRAM:
-                return new HistogramListener(metric, adviceAdapter, argTypes, access);
+                return new HistogramListener(metric, context, adviceAdapter, argTypes, access, metricId, probeId);
             default:
                 throw new IllegalStateException("we not support metric type: " + metric.getType());
         }
@@ -21,10 +21,13 @@ import java.util.Collections;
 import java.util.List;
 import org.apache.commons.collections.CollectionUtils;
 import org.dromara.athena.core.config.Metric;
-import org.dromara.athena.core.reporter.MetricsReporter;
+import org.dromara.athena.core.transformer.FrameTracker;
+import org.dromara.athena.core.transformer.TransformContext;
 import org.dromara.athena.core.transformer.listener.Listener;
 import org.dromara.athena.core.transformer.listener.ListenerFactory;
 import org.dromara.athena.core.utils.MetricsLabelUtils;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Type;
 import org.objectweb.asm.commons.AdviceAdapter;
@@ -46,25 +49,42 @@ public class MetricsAdapter extends AdviceAdapter {
     
     private final int access;
     
+    private final TransformContext context;
+    
+    private final FrameTracker frameTracker;
+    
     private List<Listener> listeners;
     
+    private boolean entering;
+    
     /**
      * Instantiates a new Metrics adapter.
      *
      * @param mv        the mv
-     * @param className the class name
+     * @param context   the transform context
      * @param access    the access
      * @param name      the name
      * @param desc      the desc
      * @param metrics   the metric list
      */
-    public MetricsAdapter(final MethodVisitor mv, final String className, final int access, final String name, final String desc, final List<Metric> metrics) {
+    public MetricsAdapter(final MethodVisitor mv, final TransformContext context, final int access, final String name, final String desc, final List<Metric> metrics) {
         super(ASM5, mv, access, name, desc);
-        this.className = className;
+        this.context = context;
+        this.className = context.getClassName();
         this.methodName = name;
         this.argTypes = Type.getArgumentTypes(desc);
         this.access = access;
         this.metrics = metrics;
+        this.frameTracker = context.getFrameTracker();
+    }
+    
+    @Override
+    public int newLocal(final Type type) {
+        int result = super.newLocal(type);
+        if (null != frameTracker) {
+            frameTracker.newLocal(result);
+        }
+        return result;
     }
     
     @Override
@@ -76,14 +96,87 @@ public class MetricsAdapter extends AdviceAdapter {
         if (!checkLabels()) {
             throw new IllegalArgumentException("you class name :" + className + " methodName :" + methodName + ", labels config error");
         }
-        listeners = ListenerFactory.newListeners(metrics, this, argTypes, access);
-        MetricsReporter.registerMetrics(metrics);
-        listeners.forEach(Listener::listenerOnMethodEnter);
+        listeners = ListenerFactory.newListeners(metrics, context, this, argTypes, access);
+        entering = true;
+        try {
+            listeners.forEach(Listener::listenerOnMethodEnter);
+        } finally {
+            entering = false;
+        }
+    }
+    
+    // in a constructor the advice adapter still tracks the stack while the enter probes are emitted, it only sees part of
+    // their pushes and pops, so the probe code goes straight to the next visitor. it only loads arguments, which keep their slot.
+    
+    @Override
+    public void visitInsn(final int opcode) {
+        if (entering) {
+            mv.visitInsn(opcode);
+        } else {
+            super.visitInsn(opcode);
+        }
+    }
+    
+    @Override
+    public void visitVarInsn(final int opcode, final int var) {
+        if (entering) {
+            mv.visitVarInsn(opcode, var);
+        } else {
+            super.visitVarInsn(opcode, var);
+        }
+    }
+    
+    @Override
+    public void visitMethodInsn(final int opcode, final String owner, final String name, final String desc, final boolean itf) {
+        if (entering) {
+            mv.visitMethodInsn(opcode, owner, name, desc, itf);
+        } else {
+            super.visitMethodInsn(opcode, owner, name, desc, itf);
+        }
+    }
+    
+    @Override
+    public void visitInvokeDynamicInsn(final String name, final String desc, final Handle bsm, final Object... bsmArgs) {
+        if (entering) {
+            mv.visitInvokeDynamicInsn(name, desc, bsm, bsmArgs);
+        } else {
+            super.visitInvokeDynamicInsn(name, desc, bsm, bsmArgs);
+        }
+    }
+    
+    @Override
+    public void visitJumpInsn(final int opcode, final Label label) {
+        if (entering) {
+            mv.visitJumpInsn(opcode, label);
+        } else {
+            super.visitJumpInsn(opcode, label);
+        }
+    }
+    
+    @Override
+    public void visitLabel(final Label label) {
+        if (entering) {
+            mv.visitLabel(label);
+        } else {
+            super.visitLabel(label);
+        }
+    }
+    
+    @Override
+    public void visitTryCatchBlock(final Label start, final Label end, final Label handler, final String type) {
+        if (entering) {
+            mv.visitTryCatchBlock(start, end, handler, type);
+        } else {
+            super.visitTryCatchBlock(start, end, handler, type);
+        }
     }
     
     @Override
     public void visitMaxs(final int maxStack, final int maxLocals) {
-        listeners.forEach(listener -> listener.listenerOnVisitMaxs(maxStack, maxLocals));
+        // the handler of the listener entered last comes first, so every handler range nests inside the ones entered before it.
+        for (int i = listeners.size() - 1; i >= 0; i--) {
+            listeners.get(i).listenerOnVisitMaxs(maxStack, maxLocals);
+        }
         mv.visitMaxs(maxStack, maxLocals);
     }
     
@@ -94,7 +187,7 @@ public class MetricsAdapter extends AdviceAdapter {
     
     private boolean checkLabels() {
         return metrics.stream().filter(metric -> CollectionUtils.isNotEmpty(metric.getLabels()))
-                .allMatch(metric -> MetricsLabelUtils.checkLabels(argTypes, metric.getLabels()));
+                .allMatch(metric -> MetricsLabelUtils.checkLabels(argTypes, (access & ACC_STATIC) != 0, metric.getLabels()));
     }
     
 }
@@ -17,16 +17,31 @@
 
 package org.dromara.athena.core.transformer.visitor;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.dromara.athena.core.config.AgentConfig;
 import org.dromara.athena.core.config.Metric;
+import org.dromara.athena.core.transformer.ClassHeaders;
+import org.dromara.athena.core.transformer.FrameTracker;
+import org.dromara.athena.core.transformer.ProbeIds;
+import org.dromara.athena.core.transformer.ReporterProbeIds;
+import org.dromara.athena.core.transformer.TransformContext;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.commons.JSRInlinerAdapter;
+import org.objectweb.asm.tree.MethodNode;
 
+import static org.objectweb.asm.Opcodes.ACC_ABSTRACT;
 import static org.objectweb.asm.Opcodes.ACC_INTERFACE;
+import static org.objectweb.asm.Opcodes.ACC_NATIVE;
+import static org.objectweb.asm.Opcodes.ACC_STATIC;
 import static org.objectweb.asm.Opcodes.ACC_SYNTHETIC;
 import static org.objectweb.asm.Opcodes.ASM5;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.V1_6;
+import static org.objectweb.asm.Opcodes.V1_7;
 
 /**
  * The type Metrics class visitor.
@@ -34,6 +49,14 @@ import static org.objectweb.asm.Opcodes.ASM5;
  * @author xiaoyu
  */
 public class MetricsClassVisitor extends ClassVisitor {
+    
+    private static final String CLINIT = "<clinit>";
+
+    private static final String PROBE_HELPERS_KEY = "probeHelpers";
+
+    private static final String SWITCHABLE_PROBES_KEY = "switchableProbes";
+
+    private static final String PRESERVE_FRAMES_KEY = "preserveFrames";
 
     private boolean isInterface;
     
@@ -41,6 +64,18 @@ public class MetricsClassVisitor extends ClassVisitor {
     
     private AgentConfig agentConfig;
     
+    private final ClassLoader loader;
+    
+    private final boolean canAddMembers;
+    
+    private final ProbeIds probeIds;
+    
+    private TransformContext context;
+    
+    private Collection<String> supertypes;
+    
+    private MethodNode clinit;
+    
     /**
      * Instantiates a new Metrics class visitor.
      *
@@ -48,8 +83,52 @@ public class MetricsClassVisitor extends ClassVisitor {
      * @param agentConfig the agent config
      */
     public MetricsClassVisitor(final ClassVisitor cv, final AgentConfig agentConfig) {
+        this(cv, agentConfig, null, true);
+    }
+    
+    /**
+     * Instantiates a new Metrics class visitor.
+     *
+     * @param cv            the cv
+     * @param agentConfig   the agent config
+     * @param loader        the class loader of the class, null for the bootstrap loader
+     * @param canAddMembers whether fields and methods can be added, false when the class is being redefined
+     */
+    public MetricsClassVisitor(final ClassVisitor cv, final AgentConfig agentConfig, final ClassLoader loader, final boolean canAddMembers) {
+        this(cv, agentConfig, loader, canAddMembers, ReporterProbeIds.INSTANCE);
+    }
+    
+    /**
+     * Instantiates a new Metrics class visitor.
+     *
+     * @param cv            the cv
+     * @param agentConfig   the agent config
+     * @param loader        the class loader of the class, null for the bootstrap loader
+     * @param canAddMembers whether fields and methods can be added, false when the class is being redefined
+     * @param probeIds      the probe ids the metrics are registered with
+     */
+    public MetricsClassVisitor(final ClassVisitor cv, final AgentConfig agentConfig, final ClassLoader loader, final boolean canAddMembers, final ProbeIds probeIds) {
+        this(cv, agentConfig, loader, canAddMembers, probeIds, null);
+    }
+    
+    /**
+     * Instantiates a new Metrics class visitor.
+     *
+     * @param cv            the cv
+     * @param agentConfig   the agent config
+     * @param loader        the class loader of the class, null for the bootstrap loader
+     * @param canAddMembers whether fields and methods can be added, false when the class is being redefined
+     * @param probeIds      the probe ids the metrics are registered with
+     * @param supertypes    the supertypes of the class when the caller already resolved them, null to resolve them from the class header
+     */
+    public MetricsClassVisitor(final ClassVisitor cv, final AgentConfig agentConfig, final ClassLoader loader, final boolean canAddMembers, final ProbeIds probeIds,
+                               final Collection<String> supertypes) {
         super(ASM5, cv);
         this.agentConfig = agentConfig;
+        this.loader = loader;
+        this.canAddMembers = canAddMembers;
+        this.probeIds = probeIds;
+        this.supertypes = supertypes;
     }
 
     @Override
@@ -57,15 +136,45 @@ public class MetricsClassVisitor extends ClassVisitor {
         super.visit(version, access, name, signature, superName, interfaces);
         this.className = name;
         this.isInterface = 0 != (access & ACC_INTERFACE);
+        if (null == supertypes) {
+            supertypes = agentConfig.hasSupertypeSelectors() ? ClassHeaders.getSupertypes(loader, superName, interfaces) : Collections.emptySet();
+        }
+        // invokedynamic needs a class file of java 7 or later.
+        boolean switchableProbes = isEnabled(SWITCHABLE_PROBES_KEY) && (version & 0xFFFF) >= V1_7;
+        // a class file before java 6 has no stack map frames to keep.
+        boolean preserveFrames = isPreserveFrames(agentConfig) && (version & 0xFFFF) >= V1_6;
+        this.context = new TransformContext(name, loader, canAddMembers, isEnabled(PROBE_HELPERS_KEY), switchableProbes, preserveFrames, probeIds);
     }
 
     @Override
     public MethodVisitor visitMethod(final int access, final String name, final String desc, final String signature, final String[] exceptions) {
-        MethodVisitor mv = super.visitMethod(access, name, desc, signature, exceptions);
-        boolean isSyntheticMethod = 0 != (access & ACC_SYNTHETIC);
-        if (!isInterface && !isSyntheticMethod && mv != null) {
-            List<Metric> metadata = agentConfig.findByKey(className, name, desc);
-            mv = new MetricsAdapter(mv, className, access, name, desc, metadata);
+        MethodVisitor mv;
+        if (CLINIT.equals(name) && !isInterface) {
+            // the class initializer is written last, once all series fields are known.
+            clinit = new MethodNode(access, name, desc, signature, exceptions);
+            mv = clinit;
+        } else {
+            mv = super.visitMethod(access, name, desc, signature, exceptions);
+        }
+        // a selector can match methods without code, and the bridges and lambda bodies the compiler generates.
+        boolean isSkipped = 0 != (access & (ACC_SYNTHETIC | ACC_ABSTRACT | ACC_NATIVE));
+        if (isInterface || isSkipped || mv == null) {
+            return mv;
+        }
+        List<Metric> metadata = agentConfig.findByKey(className, supertypes, name, desc);
+        if (!context.isSwitchableProbes()) {
+            // without a call site to switch, a metric that starts switched off is not instrumented at all.
+            metadata = metadata.stream().filter(Metric::isEnabled).collect(Collectors.toList());
+        }
+        // a method without metrics keeps the writer as its visitor, so the writer copies its bytes from the reader.
+        if (!metadata.isEmpty()) {
+            FrameTracker frameTracker = null;
+            if (context.isPreserveFrames()) {
+                frameTracker = new FrameTracker(className, access, name, desc, mv);
+                mv = frameTracker;
+            }
+            context.setFrameTracker(frameTracker);
+            mv = new MetricsAdapter(mv, context, access, name, desc, metadata);
             mv = new JSRInlinerAdapter(mv, access, name, desc, signature, exceptions);
         }
         return mv;
@@ -73,6 +182,65 @@ public class MetricsClassVisitor extends ClassVisitor {
 
     @Override
     public void visitEnd() {
+        if (context.hasSeriesFields()) {
+            context.visitSeriesFields(cv);
+        }
+        context.visitProbeHelpers(cv);
+        if (null != clinit) {
+            @SuppressWarnings("unchecked")
+            String[] exceptions = ((List<String>) clinit.exceptions).toArray(new String[0]);
+            MethodVisitor mv = super.visitMethod(clinit.access, clinit.name, clinit.desc, clinit.signature, exceptions);
+            clinit.accept(new SeriesInitAdapter(mv, context));
+        } else if (context.hasSeriesFields()) {
+            MethodVisitor mv = super.visitMethod(ACC_STATIC, CLINIT, "()V", null, null);
+            mv.visitCode();
+            context.visitSeriesInit(mv);
+            mv.visitInsn(RETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+        }
         super.visitEnd();
     }
+    
+    /**
+     * Gets the transform context of the class, it is created when the class header is visited.
+     *
+     * @return the transform context
+     */
+    public TransformContext getContext() {
+        return context;
+    }
+    
+    /**
+     * Whether the config asks to keep the stack map frames of the instrumented classes instead of computing them.
+     *
+     * @param agentConfig the agent config
+     * @return the boolean
+     */
+    public static boolean isPreserveFrames(final AgentConfig agentConfig) {
+        return null != agentConfig.getConfigMap() && Boolean.parseBoolean(String.valueOf(agentConfig.getConfigMap().get(PRESERVE_FRAMES_KEY)));
+    }
+    
+    private boolean isEnabled(final String key) {
+        return null != agentConfig.getConfigMap() && Boolean.parseBoolean(String.valueOf(agentConfig.getConfigMap().get(key)));
+    }
+    
+    /**
+     * Prepends the series field initialization to an existing class initializer.
+     */
+    private static final class SeriesInitAdapter extends MethodVisitor {
+        
+        private final TransformContext context;
+        
+        SeriesInitAdapter(final MethodVisitor mv, final TransformContext context) {
+            super(ASM5, mv);
+            this.context = context;
+        }
+        
+        @Override
+        public void visitCode() {
+            super.visitCode();
+            context.visitSeriesInit(mv);
+        }
+    }
 }
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.objectweb.asm.ClassReader;
+
+/**
+ * The type Bytecode utils.
+ */
+public final class BytecodeUtils {
+    
+    /**
+     * The default MaxInlineSize of HotSpot, a method with more bytecode is only inlined when it is hot.
+     */
+    public static final int MAX_INLINE_SIZE = 35;
+    
+    /**
+     * The default FreqInlineSize of HotSpot, a method with more bytecode is never inlined.
+     */
+    public static final int FREQ_INLINE_SIZE = 325;
+    
+    private static final String CODE_ATTRIBUTE = "Code";
+    
+    private BytecodeUtils() {
+    }
+    
+    /**
+     * Gets the bytecode length of every method that has code, keyed by name and descriptor.
+     *
+     * @param classfileBuffer the class file
+     * @return the code lengths in the order of the methods
+     */
+    public static Map<String, Integer> getCodeLengths(final byte[] classfileBuffer) {
+        ClassReader cr = new ClassReader(classfileBuffer);
+        char[] buf = new char[cr.getMaxStringLength()];
+        int u = cr.header + 6;
+        u += 2 + cr.readUnsignedShort(u) * 2;
+        int fieldCount = cr.readUnsignedShort(u);
+        u += 2;
+        for (int i = 0; i < fieldCount; i++) {
+            u = skipAttributes(cr, u + 6);
+        }
+        Map<String, Integer> result = new LinkedHashMap<>();
+        int methodCount = cr.readUnsignedShort(u);
+        u += 2;
+        for (int i = 0; i < methodCount; i++) {
+            String key = cr.readUTF8(u + 2, buf) + cr.readUTF8(u + 4, buf);
+            int attributeCount = cr.readUnsignedShort(u + 6);
+            u += 8;
+            for (int j = 0; j < attributeCount; j++) {
+                if (CODE_ATTRIBUTE.equals(cr.readUTF8(u, buf))) {
+                    // max_stack and max_locals come before code_length.
+                    result.put(key, cr.readInt(u + 10));
+                }
+                u += 6 + cr.readInt(u + 2);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Describe how a method compares to the inlining thresholds of HotSpot.
+     *
+     * @param codeLength the bytecode length
+     * @return the description
+     */
+    public static String inlining(final int codeLength) {
+        if (codeLength > FREQ_INLINE_SIZE) {
+            return "not inlined";
+        }
+        return codeLength > MAX_INLINE_SIZE ? "inlined when hot" : "inlined";
+    }
+    
+    private static int skipAttributes(final ClassReader cr, final int offset) {
+        int u = offset;
+        int attributeCount = cr.readUnsignedShort(u);
+        u += 2;
+        for (int i = 0; i < attributeCount; i++) {
+            u += 6 + cr.readInt(u + 2);
+        }
+        return u;
+    }
+}
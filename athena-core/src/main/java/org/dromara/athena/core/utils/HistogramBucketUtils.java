@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.utils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.collections.CollectionUtils;
+import org.dromara.athena.core.config.Metric;
+
+/**
+ * The type Histogram bucket utils, resolves the buckets of a histogram in its unit.
+ * The buckets are either listed, generated with {@code linearBuckets: [start, width, count]} or
+ * {@code exponentialBuckets: [start, factor, count]}, or default to 5ms up to 10s.
+ */
+public class HistogramBucketUtils {
+    
+    private static final double[] DEFAULT_SECONDS_BUCKETS = {.005, .01, .025, .05, .075, .1, .25, .5, .75, 1, 2.5, 5, 7.5, 10};
+    
+    private static final int GENERATOR_ARGS = 3;
+    
+    /**
+     * Gets buckets.
+     *
+     * @param metric the metric
+     * @param unit   the unit of the histogram
+     * @return the upper bounds of the buckets in the unit, ascending
+     */
+    public static double[] getBuckets(final Metric metric, final TimeUnit unit) {
+        int configured = (CollectionUtils.isEmpty(metric.getBuckets()) ? 0 : 1) + (CollectionUtils.isEmpty(metric.getLinearBuckets()) ? 0 : 1)
+                + (CollectionUtils.isEmpty(metric.getExponentialBuckets()) ? 0 : 1);
+        if (configured > 1) {
+            throw new IllegalArgumentException("metric " + metric.getName() + " can only have one of buckets, linearBuckets and exponentialBuckets");
+        }
+        double[] result;
+        if (CollectionUtils.isNotEmpty(metric.getBuckets())) {
+            result = metric.getBuckets().stream().mapToDouble(Double::doubleValue).toArray();
+        } else if (CollectionUtils.isNotEmpty(metric.getLinearBuckets())) {
+            result = linear(metric.getName(), metric.getLinearBuckets());
+        } else if (CollectionUtils.isNotEmpty(metric.getExponentialBuckets())) {
+            result = exponential(metric.getName(), metric.getExponentialBuckets());
+        } else {
+            result = defaults(unit);
+        }
+        for (int i = 1; i < result.length; i++) {
+            if (result[i] <= result[i - 1]) {
+                throw new IllegalArgumentException("metric " + metric.getName() + " buckets must be in increasing order");
+            }
+        }
+        return result;
+    }
+    
+    private static double[] linear(final String name, final List<Double> args) {
+        checkGenerator(name, args);
+        double[] result = new double[args.get(2).intValue()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = args.get(0) + i * args.get(1);
+        }
+        return result;
+    }
+    
+    private static double[] exponential(final String name, final List<Double> args) {
+        checkGenerator(name, args);
+        double[] result = new double[args.get(2).intValue()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = args.get(0) * Math.pow(args.get(1), i);
+        }
+        return result;
+    }
+    
+    private static void checkGenerator(final String name, final List<Double> args) {
+        if (args.size() != GENERATOR_ARGS || args.get(2) < 1) {
+            throw new IllegalArgumentException("metric " + name + " bucket generator needs [start, width or factor, count], count at least 1");
+        }
+    }
+    
+    private static double[] defaults(final TimeUnit unit) {
+        double perSecond = (double) TimeUnit.SECONDS.toNanos(1) / unit.toNanos(1);
+        double[] result = new double[DEFAULT_SECONDS_BUCKETS.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = DEFAULT_SECONDS_BUCKETS[i] * perSecond;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.utils;
+
+import java.util.function.Supplier;
+
+/**
+ * The type Memoized supplier, asks its delegate once and returns that value from then on.
+ * It is meant for one thread, such as the supertypes of a class that several config lookups of one transformation may ask for.
+ *
+ * @param <T> the type of the value
+ */
+public final class MemoizedSupplier<T> implements Supplier<T> {
+    
+    private final Supplier<T> delegate;
+    
+    private boolean resolved;
+    
+    private T value;
+    
+    /**
+     * Instantiates a new Memoized supplier.
+     *
+     * @param delegate the supplier asked for the value the first time
+     */
+    public MemoizedSupplier(final Supplier<T> delegate) {
+        this.delegate = delegate;
+    }
+    
+    @Override
+    public T get() {
+        if (!resolved) {
+            value = delegate.get();
+            resolved = true;
+        }
+        return value;
+    }
+}
@@ -34,7 +34,9 @@ public class MetricsLabelUtils {
     
     private static final String PARAM = ".";
     
-    private static final String REGEX_PATTERN = "\\$([0-9]+|this)([a-zA-Z.]+)*";
+    private static final String THIS = "$this";
+    
+    private static final String REGEX_PATTERN = "\\$([0-9]+|this)(\\.[a-zA-Z_][a-zA-Z0-9_]*)*";
     
     /**
      * Get label names string [ ].
@@ -53,11 +55,12 @@ public class MetricsLabelUtils {
      * Check labels boolean.
      *
      * @param argTypes the arg types
+     * @param isStatic whether the method is static, $this is not available then
      * @param labels   the labels
      * @return the boolean
      */
-    public static boolean checkLabels(final Type[] argTypes, final List<String> labels) {
-        return getLabelValues(labels).stream().allMatch(labelValue -> checkLabel(argTypes, labelValue));
+    public static boolean checkLabels(final Type[] argTypes, final boolean isStatic, final List<String> labels) {
+        return getLabelValues(labels).stream().allMatch(labelValue -> checkLabel(argTypes, isStatic, labelValue));
     }
     
     /**
@@ -73,6 +76,19 @@ public class MetricsLabelUtils {
         return labels.stream().map(label -> label.split(REGEX)[1]).collect(Collectors.toList());
     }
     
+    /**
+     * Whether every label value is a constant, an empty label list is constant as well.
+     *
+     * @param labels the labels
+     * @return the boolean
+     */
+    public static boolean isConstantLabels(final List<String> labels) {
+        if (CollectionUtils.isEmpty(labels)) {
+            return true;
+        }
+        return getLabelValues(labels).stream().noneMatch(labelValue -> labelValue.startsWith("$"));
+    }
+    
     /**
      * Has bean param boolean.
      *
@@ -84,7 +100,17 @@ public class MetricsLabelUtils {
     }
     
     /**
-     * Gets label var index.
+     * Whether the label value refers to the instance the method is called on.
+     *
+     * @param labelValue the label value
+     * @return the boolean
+     */
+    public static boolean isThisLabel(final String labelValue) {
+        return labelValue.equals(THIS) || labelValue.startsWith(THIS + PARAM);
+    }
+    
+    /**
+     * Gets label var index, the bean path after the argument.
      *
      * @param value the value
      * @return the label var index
@@ -93,23 +119,29 @@ public class MetricsLabelUtils {
         return value.substring(value.indexOf(PARAM) + 1);
     }
     
-    private static boolean checkLabel(final Type[] argTypes, final String labelValue) {
+    private static boolean checkLabel(final Type[] argTypes, final boolean isStatic, final String labelValue) {
         if (labelValue.startsWith("$")) {
             if (!Pattern.matches(REGEX_PATTERN, labelValue)) {
                 return false;
             }
+            if (isThisLabel(labelValue)) {
+                return !isStatic;
+            }
             int index = getLabelValueIndex(labelValue);
             if (index >= argTypes.length) {
                 return false;
             }
             Type argType = argTypes[index];
+            if (hasBeanParam(labelValue)) {
+                return argType.getSort() == Type.OBJECT;
+            }
             return argType.getSort() != Type.ARRAY;
         }
         return true;
     }
     
     /**
-     * Gets label value index.
+     * Gets label value index, the argument index of {@code $N} or {@code $N.path}.
      *
      * @param labelValue the label value
      * @return the label value index
@@ -118,6 +150,6 @@ public class MetricsLabelUtils {
         if (hasBeanParam(labelValue)) {
             return Integer.parseInt(labelValue.substring(1, labelValue.indexOf(PARAM)));
         }
-        return 0;
+        return Integer.parseInt(labelValue.substring(1));
     }
 }
@@ -37,4 +37,20 @@ public class MetricsUtils {
     public static Map<MetricType, Metric> toMap(final List<Metric> configMetrics) {
         return configMetrics.stream().collect(Collectors.toMap(Metric::getType, metric -> metric));
     }
+    
+    /**
+     * Gets sample every, one call out of this many is timed, 1 when every call is.
+     *
+     * @param metric the metric
+     * @return the sample every
+     */
+    public static int getSampleEvery(final Metric metric) {
+        if (metric.getSampleEvery() > 1) {
+            return metric.getSampleEvery();
+        }
+        if (metric.getSampleRate() > 0 && metric.getSampleRate() < 1) {
+            return (int) Math.round(1 / metric.getSampleRate());
+        }
+        return 1;
+    }
 }
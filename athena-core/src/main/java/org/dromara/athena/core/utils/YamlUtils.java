@@ -69,9 +69,12 @@ public class YamlUtils {
         
         @Override
         public Object deserializeKey(final String key, final DeserializationContext ctxt) {
-            String className = key.substring(0, key.lastIndexOf("."));
-            String methodName = key.substring(key.lastIndexOf(".") + 1, key.indexOf("("));
-            String descriptor = key.substring(key.indexOf("("));
+            // a selector descriptor can hold dots, the method name is the part after the last dot before it.
+            int descriptorIndex = key.indexOf("(");
+            int methodIndex = key.lastIndexOf(".", descriptorIndex);
+            String className = key.substring(0, methodIndex);
+            String methodName = key.substring(methodIndex + 1, descriptorIndex);
+            String descriptor = key.substring(descriptorIndex);
             return new Klass(className, methodName, descriptor);
         }
     }
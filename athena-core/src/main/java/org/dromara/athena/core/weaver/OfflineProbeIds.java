@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.weaver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.dromara.athena.core.config.Metric;
+import org.dromara.athena.core.reporter.MetricHandles;
+import org.dromara.athena.core.reporter.ProbeOverhead;
+import org.dromara.athena.core.transformer.ProbeIds;
+import org.dromara.athena.core.transformer.Registration;
+
+/**
+ * The type Offline probe ids, hands out the ids of the woven classes the way the metrics reporter would, without
+ * creating the metrics. Every new id is recorded in order, registering them in that order with the reporter of a
+ * fresh jvm hands out the same ids.
+ *
+ * @author xiaoyu
+ */
+public final class OfflineProbeIds implements ProbeIds {
+    
+    private final MetricHandles<String> counters = new MetricHandles<>();
+    
+    private final MetricHandles<String> gauges = new MetricHandles<>();
+    
+    private final MetricHandles<String> histograms = new MetricHandles<>();
+    
+    private final MetricHandles<String> probes = new MetricHandles<>();
+    
+    private final MetricHandles<String> reentry = new MetricHandles<>();
+    
+    private final boolean probeOverhead;
+    
+    private final List<Registration> registrations = new ArrayList<>();
+    
+    /**
+     * Instantiates a new Offline probe ids.
+     *
+     * @param configMap the config map the woven classes run with
+     */
+    public OfflineProbeIds(final Map<String, Object> configMap) {
+        this.probeOverhead = ProbeOverhead.isMeasured(configMap);
+    }
+    
+    @Override
+    public int registerMetric(final Metric metric) {
+        switch (metric.getType()) {
+            case COUNTER:
+                return register(Registration.Kind.METRIC, counters, metric.getName());
+            case GAUGE:
+                return register(Registration.Kind.METRIC, gauges, metric.getName());
+            case HISTOGRAM:
+                return register(Registration.Kind.METRIC, histograms, metric.getName());
+            default:
+                throw new IllegalStateException("we not support metric registration for type: " + metric.getType());
+        }
+    }
+    
+    @Override
+    public int registerProbe(final String metricName) {
+        return probeOverhead ? register(Registration.Kind.PROBE, probes, metricName) : -1;
+    }
+    
+    @Override
+    public int registerReentry(final String metricName) {
+        return register(Registration.Kind.REENTRY, reentry, metricName);
+    }
+    
+    /**
+     * Gets the new ids in the order they were handed out.
+     *
+     * @return the registrations
+     */
+    public List<Registration> getRegistrations() {
+        return Collections.unmodifiableList(registrations);
+    }
+    
+    private int register(final Registration.Kind kind, final MetricHandles<String> handles, final String name) {
+        int size = handles.size();
+        int result = handles.register(name, () -> name);
+        if (result == size) {
+            registrations.add(new Registration(kind, name, result));
+        }
+        return result;
+    }
+}
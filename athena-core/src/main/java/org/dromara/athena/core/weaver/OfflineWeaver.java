@@ -0,0 +1,296 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.weaver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import org.dromara.athena.core.config.AgentConfig;
+import org.dromara.athena.core.config.Klass;
+import org.dromara.athena.core.config.KlassSelector;
+import org.dromara.athena.core.transformer.ClassHeaders;
+import org.dromara.athena.core.transformer.ClassHeaders.ClassHeader;
+import org.dromara.athena.core.transformer.MetricsClassTransformer;
+import org.dromara.athena.core.transformer.TransformStats;
+import org.dromara.athena.core.utils.YamlUtils;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+/**
+ * The type Offline weaver, instruments the classes of application jars at build time with the same pipeline the agent
+ * runs when the classes load, so the application runs the agent without a class file transformer.
+ * Every configured method is checked against the classes of the jars first, a class or method that does not exist or
+ * can not be instrumented fails the weaving instead of being skipped when the application runs.
+ * <pre>
+ * java -cp athena-core.jar:&lt;dependencies&gt; org.dromara.athena.core.weaver.OfflineWeaver &lt;config.yaml&gt; &lt;output dir&gt; &lt;jar&gt;...
+ * </pre>
+ * The woven jars keep their names in the output directory, next to the {@value WovenRegistrations#FILE_NAME} file the
+ * {@code wovenRegistrations} config of the agent has to point at. The super classes the frames are computed against
+ * are read from the jars and the class path of the weaver. Signature files are dropped, the woven classes no longer match them.
+ *
+ * @author xiaoyu
+ */
+public final class OfflineWeaver {
+    
+    private static final String CLASS_SUFFIX = ".class";
+    
+    private static final String META_INF = "META-INF/";
+    
+    private final AgentConfig agentConfig;
+    
+    private final OfflineProbeIds probeIds;
+    
+    private final MetricsClassTransformer transformer;
+    
+    /**
+     * Instantiates a new Offline weaver.
+     *
+     * @param agentConfig the agent config
+     */
+    public OfflineWeaver(final AgentConfig agentConfig) {
+        this.agentConfig = agentConfig;
+        this.probeIds = new OfflineProbeIds(agentConfig.getConfigMap());
+        this.transformer = new MetricsClassTransformer(agentConfig, probeIds, null, true, new TransformStats(null));
+    }
+    
+    /**
+     * The entry point, exits with 1 when the config does not match the jars or a class can not be woven.
+     *
+     * @param args the config file, the output directory and the jars
+     * @throws IOException the io exception
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("usage: OfflineWeaver <config.yaml> <output dir> <jar>...");
+            System.exit(2);
+        }
+        List<Path> jars = Arrays.stream(args, 2, args.length).map(Paths::get).collect(Collectors.toList());
+        List<String> errors = new OfflineWeaver(YamlUtils.createAgentConfig(args[0])).weave(jars, Paths.get(args[1]));
+        if (!errors.isEmpty()) {
+            errors.forEach(System.err::println);
+            System.exit(1);
+        }
+    }
+    
+    /**
+     * Weave the jars.
+     *
+     * @param jars      the jars
+     * @param outputDir the output directory
+     * @return the errors, nothing is written when the config does not match the jars
+     * @throws IOException the io exception
+     */
+    public List<String> weave(final List<Path> jars, final Path outputDir) throws IOException {
+        URL[] urls = new URL[jars.size()];
+        for (int i = 0; i < urls.length; i++) {
+            urls[i] = jars.get(i).toUri().toURL();
+        }
+        List<String> errors;
+        int woven = 0;
+        try (URLClassLoader loader = new URLClassLoader(urls, OfflineWeaver.class.getClassLoader())) {
+            errors = validate(jars, loader);
+            if (!errors.isEmpty()) {
+                return errors;
+            }
+            Files.createDirectories(outputDir);
+            for (Path each : jars) {
+                woven += weaveJar(each, outputDir.resolve(each.getFileName()), loader, errors);
+            }
+        }
+        if (errors.isEmpty()) {
+            WovenRegistrations.write(outputDir.resolve(WovenRegistrations.FILE_NAME), probeIds.getRegistrations());
+            System.out.println("athena woven " + woven + " classes of " + jars.size() + " jars into " + outputDir);
+            transformer.getTransformStats().printSummary();
+        }
+        return errors;
+    }
+    
+    private List<String> validate(final List<Path> jars, final ClassLoader loader) throws IOException {
+        Map<String, ClassMethods> classes = new HashMap<>();
+        for (Path jar : jars) {
+            try (JarFile in = new JarFile(jar.toFile())) {
+                Enumeration<JarEntry> entries = in.entries();
+                while (entries.hasMoreElements()) {
+                    String className = getClassName(entries.nextElement());
+                    if (null != className && !classes.containsKey(className) && agentConfig.hasMetric(className, () -> getSupertypes(loader, className))) {
+                        ClassMethods methods = new ClassMethods();
+                        new ClassReader(read(in, in.getJarEntry(className + CLASS_SUFFIX))).accept(methods, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+                        if (agentConfig.hasSupertypeSelectors()) {
+                            methods.supertypes = ClassHeaders.getSupertypes(loader, methods.superName, methods.interfaces);
+                        }
+                        classes.put(className, methods);
+                    }
+                }
+            }
+        }
+        List<String> result = new ArrayList<>();
+        for (Klass each : agentConfig.getMetrics().keySet()) {
+            String key = each.getClassName() + "." + each.getMethod() + each.getDescriptor();
+            ClassMethods methods = classes.get(each.getClassName());
+            if (KlassSelector.isSelector(each)) {
+                if (!matchesAny(new KlassSelector(each, Collections.emptyList()), classes)) {
+                    result.add("athena config error, no method in the jars matches the selector : " + key);
+                }
+            } else if (null == methods) {
+                result.add("athena config error, class not found in the jars : " + key);
+            } else if (methods.isInterface) {
+                result.add("athena config error, the methods of an interface are not instrumented : " + key);
+            } else if (!methods.access.containsKey(each.getMethod() + each.getDescriptor())) {
+                List<String> overloads = methods.access.keySet().stream().filter(method -> method.startsWith(each.getMethod() + "(")).sorted().collect(Collectors.toList());
+                result.add("athena config error, method not found : " + key + (overloads.isEmpty() ? "" : ", the class has " + overloads));
+            } else if (0 != (methods.access.get(each.getMethod() + each.getDescriptor()) & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE | Opcodes.ACC_SYNTHETIC))) {
+                result.add("athena config error, abstract, native and synthetic methods are not instrumented : " + key);
+            }
+        }
+        return result;
+    }
+    
+    private static boolean matchesAny(final KlassSelector selector, final Map<String, ClassMethods> classes) {
+        for (Map.Entry<String, ClassMethods> entry : classes.entrySet()) {
+            if (entry.getValue().isInterface || !selector.matchesClass(entry.getKey(), entry.getValue().supertypes)) {
+                continue;
+            }
+            for (Map.Entry<String, Integer> method : entry.getValue().access.entrySet()) {
+                int index = method.getKey().indexOf('(');
+                if (0 == (method.getValue() & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE | Opcodes.ACC_SYNTHETIC))
+                        && selector.matchesMethod(method.getKey().substring(0, index), method.getKey().substring(index))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    private int weaveJar(final Path jar, final Path output, final ClassLoader loader, final List<String> errors) throws IOException {
+        int result = 0;
+        try (JarFile in = new JarFile(jar.toFile());
+             JarOutputStream out = new JarOutputStream(Files.newOutputStream(output))) {
+            Enumeration<JarEntry> entries = in.entries();
+            while (entries.hasMoreElements()) {
+                JarEntry entry = entries.nextElement();
+                if (isSignature(entry.getName())) {
+                    continue;
+                }
+                byte[] bytes = read(in, entry);
+                String className = getClassName(entry);
+                if (null != className) {
+                    try {
+                        byte[] woven = transformer.transform(loader, className, null, null, bytes);
+                        if (woven != bytes) {
+                            bytes = woven;
+                            result++;
+                        }
+                    } catch (RuntimeException ex) {
+                        errors.add("athena can not weave " + className + " of " + jar + " : " + ex.getMessage());
+                    }
+                }
+                JarEntry copy = new JarEntry(entry.getName());
+                copy.setTime(entry.getTime());
+                out.putNextEntry(copy);
+                out.write(bytes);
+                out.closeEntry();
+            }
+        }
+        return result;
+    }
+    
+    private static Collection<String> getSupertypes(final ClassLoader loader, final String className) {
+        ClassHeader header = ClassHeaders.get(loader, className);
+        return null == header ? Collections.emptySet() : ClassHeaders.getSupertypes(loader, header.getSuperName(), header.getInterfaces());
+    }
+    
+    private static String getClassName(final JarEntry entry) {
+        String name = entry.getName();
+        if (entry.isDirectory() || !name.endsWith(CLASS_SUFFIX) || name.startsWith(META_INF)) {
+            return null;
+        }
+        return name.substring(0, name.length() - CLASS_SUFFIX.length());
+    }
+    
+    private static boolean isSignature(final String name) {
+        if (!name.startsWith(META_INF) || name.indexOf('/', META_INF.length()) >= 0) {
+            return false;
+        }
+        String upper = name.toUpperCase();
+        return upper.endsWith(".SF") || upper.endsWith(".RSA") || upper.endsWith(".DSA") || upper.endsWith(".EC");
+    }
+    
+    private static byte[] read(final JarFile jar, final JarEntry entry) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (InputStream in = jar.getInputStream(entry)) {
+            byte[] buffer = new byte[8192];
+            int length;
+            while ((length = in.read(buffer)) > 0) {
+                result.write(buffer, 0, length);
+            }
+        }
+        return result.toByteArray();
+    }
+    
+    /**
+     * The access of the methods of a class, by name and descriptor.
+     */
+    private static final class ClassMethods extends ClassVisitor {
+        
+        private final Map<String, Integer> access = new HashMap<>();
+        
+        private boolean isInterface;
+        
+        private String superName;
+        
+        private String[] interfaces;
+        
+        private Collection<String> supertypes = Collections.emptySet();
+        
+        ClassMethods() {
+            super(Opcodes.ASM5);
+        }
+        
+        @Override
+        public void visit(final int version, final int access, final String name, final String signature, final String superName, final String[] interfaces) {
+            this.isInterface = 0 != (access & Opcodes.ACC_INTERFACE);
+            this.superName = superName;
+            this.interfaces = interfaces;
+        }
+        
+        @Override
+        public MethodVisitor visitMethod(final int access, final String name, final String desc, final String signature, final String[] exceptions) {
+            this.access.put(name + desc, access);
+            return null;
+        }
+    }
+}
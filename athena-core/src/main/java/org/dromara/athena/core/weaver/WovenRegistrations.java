@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.weaver;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import org.dromara.athena.core.config.AgentConfig;
+import org.dromara.athena.core.config.Metric;
+import org.dromara.athena.core.transformer.ProbeIds;
+import org.dromara.athena.core.transformer.Registration;
+
+/**
+ * The type Woven registrations, the file of ids the offline weaver compiled the probes against.
+ * The agent registers them with the reporter before any woven class runs, in place of transforming the classes.
+ * One registration per line: the kind, the metric name and the id.
+ *
+ * @author xiaoyu
+ */
+public final class WovenRegistrations {
+    
+    /**
+     * The name of the file the weaver writes next to the woven jars.
+     */
+    public static final String FILE_NAME = "athena-woven-registrations";
+    
+    private static final String FILE_KEY = "wovenRegistrations";
+    
+    private static final String COMMENT = "#";
+    
+    private WovenRegistrations() {
+    }
+    
+    /**
+     * Gets the registrations file of the {@code wovenRegistrations} config.
+     *
+     * @param configMap the config map
+     * @return the file, or null when the classes are transformed as they load
+     */
+    public static Path getFile(final Map<String, Object> configMap) {
+        Object value = null == configMap ? null : configMap.get(FILE_KEY);
+        return null == value || value.toString().trim().isEmpty() ? null : Paths.get(value.toString().trim());
+    }
+    
+    /**
+     * Write the registrations.
+     *
+     * @param file          the file
+     * @param registrations the registrations in the order they were handed out
+     * @throws IOException the io exception
+     */
+    public static void write(final Path file, final List<Registration> registrations) throws IOException {
+        List<String> lines = new ArrayList<>(registrations.size() + 1);
+        lines.add(COMMENT + " ids of the athena woven classes, register them in this order");
+        for (Registration each : registrations) {
+            lines.add(each.getKind() + " " + each.getMetricName() + " " + each.getId());
+        }
+        Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Register the woven ids again, in order.
+     *
+     * @param file        the file
+     * @param agentConfig the agent config the classes were woven with
+     * @param probeIds    the probe ids to register with
+     * @throws IOException the io exception
+     */
+    public static void replay(final Path file, final AgentConfig agentConfig, final ProbeIds probeIds) throws IOException {
+        List<Metric> metrics = agentConfig.getMetrics().values().stream().flatMap(List::stream).collect(Collectors.toList());
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith(COMMENT)) {
+                continue;
+            }
+            String[] fields = trimmed.split("\\s+");
+            if (3 != fields.length) {
+                throw new IllegalStateException("bad woven registration in " + file + " : " + line);
+            }
+            Registration registration = new Registration(Registration.Kind.valueOf(fields[0]), fields[1], Integer.parseInt(fields[2]));
+            int id = registration.replay(probeIds, metrics);
+            if (id != registration.getId()) {
+                throw new IllegalStateException("the woven classes do not match the config, " + registration.getKind() + " " + registration.getMetricName()
+                        + " was woven with id " + registration.getId() + " but registered as " + id);
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class GlobAutomatonTest {
+    
+    private static final String[] GLOB_TOKENS = {"a", "b", "/", "*", "**", "?"};
+    
+    private static final String NAME_CHARS = "ab/";
+    
+    @Test
+    public void assertMatchInInsertionOrder() {
+        GlobAutomaton<String> automaton = new GlobAutomaton<>(Arrays.asList("a/b/c", "a/*", "a/b"), Function.identity());
+        assertThat(automaton.match("a/b"), is(Arrays.asList("a/*", "a/b")));
+        assertThat(automaton.match("a/b/c"), is(Collections.singletonList("a/b/c")));
+        assertThat(automaton.match("a/c"), is(Collections.singletonList("a/*")));
+        assertTrue(automaton.match("b").isEmpty());
+    }
+    
+    @Test
+    public void assertSeparator() {
+        GlobAutomaton<String> automaton = new GlobAutomaton<>(Arrays.asList("a/**", "a/*", "a/?", "**"), Function.identity());
+        assertThat(automaton.match("a/b"), is(Arrays.asList("a/**", "a/*", "a/?", "**")));
+        assertThat(automaton.match("a/bb"), is(Arrays.asList("a/**", "a/*", "**")));
+        assertThat(automaton.match("a/b/c"), is(Arrays.asList("a/**", "**")));
+        assertThat(automaton.match("a/"), is(Arrays.asList("a/**", "a/*", "**")));
+    }
+    
+    @Test
+    public void assertIsEmpty() {
+        assertTrue(new GlobAutomaton<String>(Collections.emptyList(), Function.identity()).isEmpty());
+        assertTrue(new GlobAutomaton<String>(Collections.emptyList(), Function.identity()).match("a").isEmpty());
+    }
+    
+    @Test
+    public void assertMatchAsGlob() {
+        Random random = new Random(20190401L);
+        for (int round = 0; round < 200; round++) {
+            List<String> globs = new ArrayList<>();
+            for (int i = 1 + random.nextInt(6); i > 0; i--) {
+                globs.add(randomGlob(random));
+            }
+            List<Integer> values = new ArrayList<>();
+            for (int i = 0; i < globs.size(); i++) {
+                values.add(i);
+            }
+            GlobAutomaton<Integer> automaton = new GlobAutomaton<>(values, globs::get);
+            for (int i = 0; i < 50; i++) {
+                String name = randomName(random);
+                List<Integer> expected = values.stream().filter(each -> Glob.matches(globs.get(each), name, '/')).collect(Collectors.toList());
+                assertThat(globs + " " + name, automaton.match(name), is(expected));
+                assertThat(globs + " " + name, automaton.match(name), is(expected));
+            }
+        }
+    }
+    
+    private static String randomGlob(final Random random) {
+        StringBuilder result = new StringBuilder();
+        for (int i = random.nextInt(6); i > 0; i--) {
+            result.append(GLOB_TOKENS[random.nextInt(GLOB_TOKENS.length)]);
+        }
+        return result.toString();
+    }
+    
+    private static String randomName(final Random random) {
+        StringBuilder result = new StringBuilder();
+        for (int i = random.nextInt(7); i > 0; i--) {
+            result.append(NAME_CHARS.charAt(random.nextInt(NAME_CHARS.length())));
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.reporter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public final class EventRingTest {
+    
+    @Test
+    public void assertOfferFailsWhenFull() {
+        EventRing ring = new EventRing(5);
+        for (int i = 0; i < 8; i++) {
+            assertTrue(ring.offer(RecordEvent.COUNTER_INC, i, null, 0, null, null, null, null, i));
+        }
+        assertFalse(ring.offer(RecordEvent.COUNTER_INC, 8, null, 0, null, null, null, null, 8L));
+        assertThat(ring.drain(1, event -> { }), is(1));
+        assertTrue(ring.offer(RecordEvent.COUNTER_INC, 8, null, 0, null, null, null, null, 8L));
+    }
+    
+    @Test
+    public void assertDrainInOrder() {
+        EventRing ring = new EventRing(4);
+        String[] labelValues = {"a"};
+        ring.offer(RecordEvent.HISTOGRAM_OBSERVE, 1, labelValues, RecordEvent.ARRAY_ARITY, null, null, null, null, 10L);
+        ring.offer(RecordEvent.GAUGE_INC, 2, null, 2, "x", "y", null, null, 0L);
+        List<String> drained = new ArrayList<>();
+        assertThat(ring.drain(1, event -> drained.add(event.getOp() + ":" + event.getId() + ":" + event.getLabelValues()[0] + ":" + event.getValue())), is(1));
+        assertThat(ring.drain(8, event -> drained.add(event.getOp() + ":" + event.getId() + ":" + event.getV1() + event.getV2())), is(1));
+        assertThat(ring.drain(8, event -> drained.add("none")), is(0));
+        assertThat(drained.toString(), is("[3:1:a:10, 1:2:xy]"));
+    }
+    
+    @Test
+    public void assertDrainedEventIsCleared() {
+        EventRing ring = new EventRing(2);
+        RecordEvent[] drained = new RecordEvent[1];
+        ring.offer(RecordEvent.SERIES_COUNTER_INC, 0, new Object(), 1, "a", null, null, null, 1L);
+        ring.drain(1, event -> drained[0] = event);
+        assertThat(drained[0].getTarget(), nullValue());
+        assertThat(drained[0].getV1(), nullValue());
+    }
+    
+    @Test
+    public void assertWrapAround() {
+        EventRing ring = new EventRing(4);
+        long[] sum = new long[1];
+        for (int i = 0; i < 100; i++) {
+            assertTrue(ring.offer(RecordEvent.COUNTER_INC, 0, null, 0, null, null, null, null, i));
+            assertTrue(ring.offer(RecordEvent.COUNTER_INC, 0, null, 0, null, null, null, null, i));
+            assertThat(ring.drain(8, event -> sum[0] += event.getValue()), is(2));
+        }
+        assertThat(sum[0], is(9900L));
+    }
+    
+    @Test
+    public void assertConcurrentProducers() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 100_000;
+        EventRing ring = new EventRing(1024);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            executor.execute(() -> {
+                for (int i = 1; i <= perProducer; i++) {
+                    while (!ring.offer(RecordEvent.COUNTER_INC, 0, null, 0, null, null, null, null, i)) {
+                        Thread.yield();
+                    }
+                }
+                done.countDown();
+            });
+        }
+        long[] drained = new long[2];
+        while (drained[0] < (long) producers * perProducer) {
+            ring.drain(256, event -> {
+                drained[0]++;
+                drained[1] += event.getValue();
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertThat(drained[1], is((long) producers * perProducer * (perProducer + 1) / 2));
+        assertThat(ring.drain(256, event -> drained[0]++), is(0));
+    }
+}
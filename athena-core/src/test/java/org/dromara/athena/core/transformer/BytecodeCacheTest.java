@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.transformer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.dromara.athena.core.config.AgentConfig;
+import org.dromara.athena.core.config.Metric;
+import org.dromara.athena.core.utils.YamlUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public final class BytecodeCacheTest {
+    
+    private static final String CLASS_NAME = "demo/Target";
+    
+    private static final byte[] ORIGINAL = {1, 2, 3};
+    
+    private static final byte[] TRANSFORMED = {4, 5, 6, 7};
+    
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+    
+    private BytecodeCache cache;
+    
+    @Before
+    public void setUp() throws IOException {
+        File config = folder.newFile("athena.yaml");
+        String yaml = "imports:\n"
+                + "  - java/lang/Object\n"
+                + "metrics:\n"
+                + "  demo/Target.run()V:\n"
+                + "    - type: COUNTER\n"
+                + "      name: run_total\n"
+                + "      doc: run\n"
+                + "configMap:\n"
+                + "  bytecodeCacheDir: " + folder.newFolder("cache").getAbsolutePath() + "\n";
+        Files.write(config.toPath(), yaml.getBytes(StandardCharsets.UTF_8));
+        cache = BytecodeCache.create(YamlUtils.createAgentConfig(config.getAbsolutePath()));
+    }
+    
+    @Test
+    public void assertNoCacheWithoutDir() {
+        assertThat(BytecodeCache.create(new AgentConfig()), nullValue());
+    }
+    
+    @Test
+    public void assertKeyDependsOnClass() {
+        String key = cache.key(CLASS_NAME, Collections.emptyList(), ORIGINAL);
+        assertThat(cache.key(CLASS_NAME, Collections.emptyList(), ORIGINAL), is(key));
+        assertThat(cache.key(CLASS_NAME, Collections.emptyList(), TRANSFORMED), not(key));
+        assertThat(cache.key("demo/Other", Collections.emptyList(), ORIGINAL), not(key));
+    }
+    
+    @Test
+    public void assertLoadReplaysRegistrations() {
+        String key = cache.key(CLASS_NAME, Collections.emptyList(), ORIGINAL);
+        assertThat(cache.load(CLASS_NAME, Collections.emptyList(), key, new RecordingProbeIds(0)), nullValue());
+        cache.store(key, TRANSFORMED, registrations("run_total"));
+        RecordingProbeIds probeIds = new RecordingProbeIds(0);
+        assertThat(cache.load(CLASS_NAME, Collections.emptyList(), key, probeIds), is(TRANSFORMED));
+        assertThat(probeIds.calls, is(Arrays.asList("metric:run_total", "probe:run_total", "reentry:run_total")));
+    }
+    
+    @Test
+    public void assertLoadMissesWhenIdsDiffer() {
+        String key = cache.key(CLASS_NAME, Collections.emptyList(), ORIGINAL);
+        cache.store(key, TRANSFORMED, registrations("run_total"));
+        assertThat(cache.load(CLASS_NAME, Collections.emptyList(), key, new RecordingProbeIds(1)), nullValue());
+    }
+    
+    @Test
+    public void assertLoadMissesWhenMetricIsGone() {
+        String key = cache.key(CLASS_NAME, Collections.emptyList(), ORIGINAL);
+        cache.store(key, TRANSFORMED, registrations("gone_total"));
+        assertThat(cache.load(CLASS_NAME, Collections.emptyList(), key, new RecordingProbeIds(0)), nullValue());
+    }
+    
+    private static List<Registration> registrations(final String metricName) {
+        return Arrays.asList(new Registration(Registration.Kind.METRIC, metricName, 0),
+                new Registration(Registration.Kind.PROBE, metricName, -1), new Registration(Registration.Kind.REENTRY, metricName, 0));
+    }
+    
+    private static final class RecordingProbeIds implements ProbeIds {
+        
+        private final List<String> calls = new ArrayList<>();
+        
+        private final int id;
+        
+        RecordingProbeIds(final int id) {
+            this.id = id;
+        }
+        
+        @Override
+        public int registerMetric(final Metric metric) {
+            calls.add("metric:" + metric.getName());
+            return id;
+        }
+        
+        @Override
+        public int registerProbe(final String metricName) {
+            calls.add("probe:" + metricName);
+            return -1;
+        }
+        
+        @Override
+        public int registerReentry(final String metricName) {
+            calls.add("reentry:" + metricName);
+            return id;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.core.transformer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public final class FrameTrackerTest {
+    
+    private final List<String> frames = new ArrayList<>();
+    
+    private final MethodVisitor recorder = new MethodVisitor(Opcodes.ASM5) {
+        
+        @Override
+        public void visitFrame(final int type, final int nLocal, final Object[] local, final int nStack, final Object[] stack) {
+            frames.add(Arrays.toString(Arrays.copyOf(local, nLocal)) + Arrays.toString(Arrays.copyOf(stack, nStack)));
+        }
+    };
+    
+    @Test
+    public void assertScratchLocalIsTopInOriginalFrame() {
+        FrameTracker tracker = new FrameTracker("demo/Owner", Opcodes.ACC_STATIC, "run", "(I)V", recorder);
+        tracker.visitCode();
+        tracker.newLocal(1);
+        tracker.newLocal(2);
+        tracker.keepLocal(2);
+        tracker.visitInsn(Opcodes.ICONST_0);
+        tracker.visitVarInsn(Opcodes.ISTORE, 1);
+        tracker.visitInsn(Opcodes.LCONST_0);
+        tracker.visitVarInsn(Opcodes.LSTORE, 2);
+        tracker.visitLabel(new Label());
+        tracker.visitFrame(Opcodes.F_NEW, 3, new Object[]{Opcodes.INTEGER, Opcodes.INTEGER, Opcodes.LONG}, 0, new Object[0]);
+        tracker.visitLabel(new Label());
+        tracker.visitFrame(Opcodes.F_NEW, 2, new Object[]{Opcodes.INTEGER, Opcodes.INTEGER}, 0, new Object[0]);
+        assertThat(frames, is(Arrays.asList("[1, 0, 4][]", "[1][]")));
+    }
+    
+    @Test
+    public void assertInjectedJumpTargetGetsFrame() {
+        FrameTracker tracker = new FrameTracker("demo/Owner", Opcodes.ACC_STATIC, "run", "(JLjava/lang/String;)V", recorder);
+        tracker.visitCode();
+        Label skip = new Label();
+        tracker.visitVarInsn(Opcodes.ALOAD, 2);
+        tracker.visitVarInsn(Opcodes.ALOAD, 2);
+        tracker.visitJumpInsn(Opcodes.IFNULL, skip);
+        tracker.visitInsn(Opcodes.NOP);
+        tracker.visitLabel(skip);
+        assertThat(frames.size(), is(0));
+        tracker.visitInsn(Opcodes.POP);
+        tracker.visitInsn(Opcodes.RETURN);
+        assertThat(frames, is(Arrays.asList("[4, java/lang/String][java/lang/String]")));
+    }
+    
+    @Test
+    public void assertOriginalFrameWinsOverInjectedOne() {
+        FrameTracker tracker = new FrameTracker("demo/Owner", Opcodes.ACC_STATIC, "run", "(I)V", recorder);
+        tracker.visitCode();
+        Label target = new Label();
+        tracker.visitVarInsn(Opcodes.ILOAD, 0);
+        tracker.visitJumpInsn(Opcodes.IFEQ, target);
+        tracker.visitLabel(target);
+        tracker.visitFrame(Opcodes.F_NEW, 1, new Object[]{Opcodes.INTEGER}, 0, new Object[0]);
+        tracker.visitInsn(Opcodes.RETURN);
+        assertThat(frames, is(Arrays.asList("[1][]")));
+    }
+    
+    @Test
+    public void assertHandlerFrame() {
+        FrameTracker tracker = new FrameTracker("demo/Owner", Opcodes.ACC_STATIC, "run", "(I)V", recorder);
+        tracker.visitCode();
+        tracker.newLocal(1);
+        tracker.visitInsn(Opcodes.ICONST_0);
+        tracker.visitVarInsn(Opcodes.ISTORE, 1);
+        Object[] locals = tracker.handlerLocals();
+        Label handler = new Label();
+        tracker.handlerAt(handler, locals);
+        tracker.visitInsn(Opcodes.RETURN);
+        tracker.visitLabel(handler);
+        tracker.visitInsn(Opcodes.ATHROW);
+        assertThat(frames, is(Arrays.asList("[1][java/lang/Throwable]")));
+    }
+}
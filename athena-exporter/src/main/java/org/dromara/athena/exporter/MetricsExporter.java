@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.exporter;
+
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.exporter.HTTPServer;
+import io.prometheus.client.hotspot.DefaultExports;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Map;
+
+/**
+ * The type Metrics exporter, the http endpoint and the jvm metrics every register exports through the default collector registry.
+ * The config map keys are {@code port} (default {@value #DEFAULT_HTTP_PORT}), {@code host} (default every address)
+ * and {@code jvmEnabled} (default false).
+ *
+ * @author xiaoyu
+ */
+public final class MetricsExporter {
+    
+    /**
+     * The port the http server listens on when the config map has none.
+     */
+    public static final int DEFAULT_HTTP_PORT = 9090;
+    
+    private MetricsExporter() {
+    }
+    
+    /**
+     * Register the hotspot collectors when the config map asks for the jvm metrics.
+     *
+     * @param configMap the config map
+     * @return whether the jvm metrics are exported
+     */
+    public static boolean registerJvm(final Map<String, Object> configMap) {
+        if (!Boolean.parseBoolean(String.valueOf(configMap.get("jvmEnabled")))) {
+            return false;
+        }
+        DefaultExports.initialize();
+        return true;
+    }
+    
+    /**
+     * Start the http server of the default collector registry, as a daemon.
+     *
+     * @param configMap the config map
+     * @return the address the server listens on, or null when it could not be started
+     */
+    public static InetSocketAddress startServer(final Map<String, Object> configMap) {
+        Object port = configMap.get("port");
+        Object host = configMap.get("host");
+        int serverPort = null == port || "".equals(port.toString()) ? DEFAULT_HTTP_PORT : Integer.parseInt(port.toString().trim());
+        InetSocketAddress result = null == host || "".equals(host.toString()) ? new InetSocketAddress(serverPort) : new InetSocketAddress(host.toString(), serverPort);
+        try {
+            new HTTPServer(result, CollectorRegistry.defaultRegistry, true);
+            return result;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+}
@@ -17,17 +17,24 @@
 
 package org.dromara.athena.prometheus;
 
+import io.prometheus.client.Collector;
 import io.prometheus.client.CollectorRegistry;
 import io.prometheus.client.Counter;
 import io.prometheus.client.Gauge;
 import io.prometheus.client.Histogram;
-import io.prometheus.client.exporter.HTTPServer;
-import io.prometheus.client.hotspot.DefaultExports;
-import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.dromara.athena.exporter.MetricsExporter;
 import org.dromara.athena.prometheus.collector.BuildInfoCollector;
+import org.dromara.athena.prometheus.collector.SampledHistogramCollector;
+import org.dromara.athena.prometheus.metric.PrometheusCounterMetric;
+import org.dromara.athena.prometheus.metric.PrometheusGaugeMetric;
+import org.dromara.athena.prometheus.metric.PrometheusHistogramMetric;
+import org.dromara.athena.spi.CounterMetric;
+import org.dromara.athena.spi.GaugeMetric;
+import org.dromara.athena.spi.HistogramMetric;
 import org.dromara.athena.spi.MetricRegister;
 
 /**
@@ -37,13 +44,16 @@ import org.dromara.athena.spi.MetricRegister;
  */
 public class PrometheusMetricsRegister implements MetricRegister {
     
-    private static final int DEFAULT_HTTP_PORT = 9090;
+    private static final Counter SERIES_OVERFLOW = Counter.build().name("athena_series_overflow_total")
+            .help("the distinct label values folded into the overflow series of a metric with a series cap").labelNames("metric").register();
     
-    private static final Map<String, Counter> COUNTER_MAP = new ConcurrentHashMap<>();
+    private static final Map<String, CounterMetric> COUNTER_MAP = new ConcurrentHashMap<>();
     
-    private static final Map<String, Gauge> GAUGE_MAP = new ConcurrentHashMap<>();
+    private static final Map<String, GaugeMetric> GAUGE_MAP = new ConcurrentHashMap<>();
     
-    private static final Map<String, Histogram> HISTOGRAM_MAP = new ConcurrentHashMap<>();
+    private static final Map<String, HistogramMetric> HISTOGRAM_MAP = new ConcurrentHashMap<>();
+    
+    private static final Map<String, Collector> COLLECTOR_MAP = new ConcurrentHashMap<>();
     
     private final Map<String, Object> configMap;
     
@@ -59,85 +69,47 @@ public class PrometheusMetricsRegister implements MetricRegister {
     }
     
     @Override
-    public void registerCounter(final String name, final String[] labelNames, final String doc) {
-        if (!COUNTER_MAP.containsKey(name)) {
+    public CounterMetric registerCounter(final String name, final String[] labelNames, final String doc, final int maxSeries) {
+        return COUNTER_MAP.computeIfAbsent(name, key -> {
             Counter.Builder builder = Counter.build().name(name).help(doc);
             if (labelNames != null) {
                 builder.labelNames(labelNames);
             }
-            COUNTER_MAP.put(name, builder.register());
-        }
+            return new PrometheusCounterMetric(collect(name, builder.register()), maxSeries, overflowListener(name, maxSeries));
+        });
     }
     
     @Override
-    public void registerGauge(final String name, final String[] labelNames, final String doc) {
-        if (!GAUGE_MAP.containsKey(name)) {
+    public GaugeMetric registerGauge(final String name, final String[] labelNames, final String doc, final int maxSeries) {
+        return GAUGE_MAP.computeIfAbsent(name, key -> {
             Gauge.Builder builder = Gauge.build().name(name).help(doc);
             if (labelNames != null) {
                 builder.labelNames(labelNames);
             }
-            GAUGE_MAP.put(name, builder.register());
-        }
+            return new PrometheusGaugeMetric(collect(name, builder.register()), maxSeries, overflowListener(name, maxSeries));
+        });
     }
     
     @Override
-    public void registerHistogram(final String name, final String[] labelNames, final String doc) {
-        if (!HISTOGRAM_MAP.containsKey(name)) {
-            Histogram.Builder builder = Histogram.build().name(name).help(doc);
+    public HistogramMetric registerHistogram(final String name, final String[] labelNames, final String doc, final int maxSeries,
+                                             final TimeUnit unit, final double[] buckets, final int sampleEvery) {
+        return HISTOGRAM_MAP.computeIfAbsent(name, key -> {
+            Histogram.Builder builder = Histogram.build().name(name).help(doc).buckets(buckets);
             if (labelNames != null) {
                 builder.labelNames(labelNames);
             }
-            HISTOGRAM_MAP.put(name, builder.register());
-        }
-    }
-    
-    @Override
-    public void counterInc(final String name, final String[] labelValues) {
-        Counter counter = COUNTER_MAP.get(name);
-        if (labelValues != null) {
-            counter.labels(labelValues).inc();
-        } else {
-            counter.inc();
-        }
-    }
-    
-    @Override
-    public void counterInc(final String name, final String[] labelValues, final long count) {
-        Counter counter = COUNTER_MAP.get(name);
-        if (labelValues != null) {
-            counter.labels(labelValues).inc(count);
-        } else {
-            counter.inc(count);
-        }
-    }
-    
-    @Override
-    public void gaugeInc(final String name, final String[] labelValues) {
-        Gauge gauge = GAUGE_MAP.get(name);
-        if (labelValues != null) {
-            gauge.labels(labelValues).inc();
-        } else {
-            gauge.inc();
-        }
-    }
-    
-    @Override
-    public void gaugeDec(final String name, final String[] labelValues) {
-        Gauge gauge = GAUGE_MAP.get(name);
-        if (labelValues != null) {
-            gauge.labels(labelValues).dec();
-        } else {
-            gauge.dec();
-        }
+            return new PrometheusHistogramMetric(collect(name, new SampledHistogramCollector(builder, sampleEvery).register()), unit, maxSeries, overflowListener(name, maxSeries));
+        });
     }
     
     @Override
-    public void recordTime(final String name, final String[] labelValues, final long duration) {
-        Histogram histogram = HISTOGRAM_MAP.get(name);
-        if (labelValues != null) {
-            histogram.labels(labelValues).observe(duration);
-        } else {
-            histogram.observe(duration);
+    public void unregister(final String name) {
+        COUNTER_MAP.remove(name);
+        GAUGE_MAP.remove(name);
+        HISTOGRAM_MAP.remove(name);
+        Collector collector = COLLECTOR_MAP.remove(name);
+        if (null != collector) {
+            CollectorRegistry.defaultRegistry.unregister(collector);
         }
     }
     
@@ -145,32 +117,28 @@ public class PrometheusMetricsRegister implements MetricRegister {
      * Start server.
      */
     public void startServer() {
-        int port = DEFAULT_HTTP_PORT;
-        if (configMap.containsKey("port")) {
-            port = (Integer) configMap.get("port");
+        InetSocketAddress address = MetricsExporter.startServer(configMap);
+        if (null != address) {
+            System.out.println("you start prometheus metrics http server  host is : " + address.getPort() + " port is : " + address.getPort());
         }
-        String host = (String) configMap.get("host");
-        InetSocketAddress inetSocketAddress;
-        if ("".equals(host) || null == host) {
-            inetSocketAddress = new InetSocketAddress(port);
-        } else {
-            inetSocketAddress = new InetSocketAddress(host, port);
-        }
-        try {
-            new HTTPServer(inetSocketAddress, CollectorRegistry.defaultRegistry, true);
-            System.out.println("you start prometheus metrics http server  host is : " + inetSocketAddress.getPort() + " port is : " + inetSocketAddress.getPort());
-        } catch (IOException e) {
-            e.printStackTrace();
+    }
+    
+    private static <T extends Collector> T collect(final String name, final T collector) {
+        COLLECTOR_MAP.put(name, collector);
+        return collector;
+    }
+    
+    private static Runnable overflowListener(final String name, final int maxSeries) {
+        if (maxSeries <= 0) {
+            return null;
         }
+        Counter.Child overflow = SERIES_OVERFLOW.labels(name);
+        return overflow::inc;
     }
     
     private void registerJvm(final Map<String, Object> configMap) {
-        if (!configMap.isEmpty()) {
-            boolean enabled = Boolean.parseBoolean(configMap.get("jvmEnabled").toString());
-            if (enabled) {
-                new BuildInfoCollector().register();
-                DefaultExports.initialize();
-            }
+        if (MetricsExporter.registerJvm(configMap)) {
+            new BuildInfoCollector().register();
         }
     }
 }
@@ -28,6 +28,11 @@ import org.dromara.athena.spi.MetricRegisterFactory;
  */
 public class PrometheusMetricsRegisterFactory implements MetricRegisterFactory {
     
+    @Override
+    public String getName() {
+        return "prometheus";
+    }
+    
     @Override
     public MetricRegister newInstance(final Map<String, Object> configuration) {
         return new PrometheusMetricsRegister(configuration);
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.prometheus.collector;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Histogram;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * The type Sampled histogram collector, exports a histogram that records one call out of {@code sampleEvery}
+ * with its counts and sum scaled back up, so the rates stay those of all the calls.
+ * An observation that stands for n calls is recorded in a histogram of its own, created for that n the first time,
+ * whose counts and sum are scaled up by n as well and added to those of the same series at scrape time.
+ *
+ * @author xiaoyu
+ */
+public class SampledHistogramCollector extends Collector {
+    
+    private final Histogram.Builder builder;
+    
+    private final Histogram histogram;
+    
+    private final int sampleEvery;
+    
+    private final Map<Integer, Histogram> weighted = new ConcurrentHashMap<>();
+    
+    /**
+     * Instantiates a new Sampled histogram collector.
+     *
+     * @param builder     the builder of the histogram, whose histograms are not registered themselves
+     * @param sampleEvery the sample interval
+     */
+    public SampledHistogramCollector(final Histogram.Builder builder, final int sampleEvery) {
+        this.builder = builder;
+        this.histogram = builder.create();
+        this.sampleEvery = sampleEvery;
+    }
+    
+    /**
+     * Gets the histogram of the observations that stand for a number of calls.
+     *
+     * @param count the number of calls an observation stands for
+     * @return the histogram
+     */
+    public Histogram getHistogram(final int count) {
+        return 1 == count ? histogram : weighted.computeIfAbsent(count, key -> builder.create());
+    }
+    
+    @Override
+    public List<MetricFamilySamples> collect() {
+        List<MetricFamilySamples> result = histogram.collect();
+        if (1 == sampleEvery && weighted.isEmpty()) {
+            return result;
+        }
+        return result.stream().map(this::scale).collect(Collectors.toList());
+    }
+    
+    private MetricFamilySamples scale(final MetricFamilySamples family) {
+        Map<List<String>, MetricFamilySamples.Sample> samples = new LinkedHashMap<>();
+        add(samples, family, sampleEvery);
+        weighted.forEach((count, each) -> each.collect().forEach(weightedFamily -> add(samples, weightedFamily, (double) sampleEvery * count)));
+        return new MetricFamilySamples(family.name, family.type, family.help, new ArrayList<>(samples.values()));
+    }
+    
+    private static void add(final Map<List<String>, MetricFamilySamples.Sample> samples, final MetricFamilySamples family, final double scale) {
+        for (MetricFamilySamples.Sample each : family.samples) {
+            List<String> key = new ArrayList<>(each.labelValues.size() + 1);
+            key.add(each.name);
+            key.addAll(each.labelValues);
+            samples.merge(key, new MetricFamilySamples.Sample(each.name, each.labelNames, each.labelValues, each.value * scale, each.timestampMs),
+                (sum, sample) -> new MetricFamilySamples.Sample(sum.name, sum.labelNames, sum.labelValues, sum.value + sample.value, sum.timestampMs));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.prometheus.metric;
+
+import io.prometheus.client.Counter;
+import org.dromara.athena.spi.CounterMetric;
+import org.dromara.athena.spi.SeriesCache;
+
+/**
+ * The type Prometheus counter metric.
+ *
+ * @author xiaoyu
+ */
+public final class PrometheusCounterMetric implements CounterMetric {
+    
+    private final SeriesCache<Child> children;
+    
+    /**
+     * Instantiates a new Prometheus counter metric.
+     *
+     * @param counter          the counter
+     * @param maxSeries        the max number of series, 0 or less for no cap
+     * @param overflowListener called when label values are folded into the overflow series, may be null
+     */
+    public PrometheusCounterMetric(final Counter counter, final int maxSeries, final Runnable overflowListener) {
+        this.children = new SeriesCache<>(labelValues -> new PrometheusCounterChild(null == labelValues ? counter.labels() : counter.labels(labelValues)), maxSeries, overflowListener);
+    }
+    
+    @Override
+    public void inc(final String[] labelValues) {
+        children.get(labelValues).inc();
+    }
+    
+    @Override
+    public void inc(final String[] labelValues, final long count) {
+        children.get(labelValues).inc(count);
+    }
+    
+    @Override
+    public Child labels(final String[] labelValues) {
+        return children.get(labelValues);
+    }
+    
+    @Override
+    public Child labels(final String v1) {
+        return children.get(v1);
+    }
+    
+    @Override
+    public Child labels(final String v1, final String v2) {
+        return children.get(v1, v2);
+    }
+    
+    @Override
+    public Child labels(final String v1, final String v2, final String v3) {
+        return children.get(v1, v2, v3);
+    }
+    
+    @Override
+    public Child labels(final String v1, final String v2, final String v3, final String v4) {
+        return children.get(v1, v2, v3, v4);
+    }
+    
+    private static final class PrometheusCounterChild implements Child {
+        
+        private final Counter.Child child;
+        
+        PrometheusCounterChild(final Counter.Child child) {
+            this.child = child;
+        }
+        
+        @Override
+        public void inc() {
+            child.inc();
+        }
+        
+        @Override
+        public void inc(final long count) {
+            child.inc(count);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.prometheus.metric;
+
+import io.prometheus.client.Histogram;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.dromara.athena.prometheus.collector.SampledHistogramCollector;
+import org.dromara.athena.spi.HistogramMetric;
+import org.dromara.athena.spi.SeriesCache;
+
+/**
+ * The type Prometheus histogram metric, the nanoseconds are converted to the unit of the histogram
+ * with a multiplication by a factor computed once. The observations that stand for more than one call are recorded
+ * in the histograms the collector keeps for their number of calls.
+ *
+ * @author xiaoyu
+ */
+public final class PrometheusHistogramMetric implements HistogramMetric {
+    
+    private final SeriesCache<Child> children;
+    
+    /**
+     * Instantiates a new Prometheus histogram metric.
+     *
+     * @param collector        the collector of the histogram
+     * @param unit             the unit of the histogram
+     * @param maxSeries        the max number of series, 0 or less for no cap
+     * @param overflowListener called when label values are folded into the overflow series, may be null
+     */
+    public PrometheusHistogramMetric(final SampledHistogramCollector collector, final TimeUnit unit, final int maxSeries, final Runnable overflowListener) {
+        double unitsPerNano = 1.0 / unit.toNanos(1);
+        this.children = new SeriesCache<>(labelValues -> new PrometheusHistogramChild(collector, labelValues, unitsPerNano), maxSeries, overflowListener);
+    }
+    
+    @Override
+    public void observe(final String[] labelValues, final long duration) {
+        children.get(labelValues).observe(duration);
+    }
+    
+    @Override
+    public Child labels(final String[] labelValues) {
+        return children.get(labelValues);
+    }
+    
+    @Override
+    public Child labels(final String v1) {
+        return children.get(v1);
+    }
+    
+    @Override
+    public Child labels(final String v1, final String v2) {
+        return children.get(v1, v2);
+    }
+    
+    @Override
+    public Child labels(final String v1, final String v2, final String v3) {
+        return children.get(v1, v2, v3);
+    }
+    
+    @Override
+    public Child labels(final String v1, final String v2, final String v3, final String v4) {
+        return children.get(v1, v2, v3, v4);
+    }
+    
+    private static final class PrometheusHistogramChild implements Child {
+        
+        private final SampledHistogramCollector collector;
+        
+        private final String[] labelValues;
+        
+        private final Histogram.Child child;
+        
+        private final double unitsPerNano;
+        
+        private final Map<Integer, Histogram.Child> weighted = new ConcurrentHashMap<>();
+        
+        PrometheusHistogramChild(final SampledHistogramCollector collector, final String[] labelValues, final double unitsPerNano) {
+            this.collector = collector;
+            this.labelValues = labelValues;
+            this.child = labels(1);
+            this.unitsPerNano = unitsPerNano;
+        }
+        
+        @Override
+        public void observe(final long duration) {
+            child.observe(duration * unitsPerNano);
+        }
+        
+        @Override
+        public void observe(final long duration, final int count) {
+            Histogram.Child result = weighted.get(count);
+            if (null == result) {
+                result = weighted.computeIfAbsent(count, this::labels);
+            }
+            result.observe(duration * unitsPerNano);
+        }
+        
+        private Histogram.Child labels(final int count) {
+            Histogram histogram = collector.getHistogram(count);
+            return null == labelValues ? histogram.labels() : histogram.labels(labelValues);
+        }
+    }
+}
@@ -23,6 +23,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.ServiceLoader;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
 /**
  * service loader.
@@ -74,6 +75,16 @@ public final class AthenaServiceLoader<T> {
         return serviceMap.get(service).stream().findFirst();
     }
     
+    /**
+     * New service instances.
+     *
+     * @param filter the filter of the service instances
+     * @return the first service instance accepted by the filter
+     */
+    public Optional<T> newServiceInstances(final Predicate<T> filter) {
+        return serviceMap.get(service).stream().filter(filter).findFirst();
+    }
+    
     private void register(final Class<T> service) {
         if (serviceMap.containsKey(service)) {
             return;
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.spi;
+
+/**
+ * The interface Histogram metric, the handle returned when a histogram is registered.
+ *
+ * @author xiaoyu
+ */
+public interface HistogramMetric {
+    
+    /**
+     * Observe.
+     *
+     * @param labelValues the label values
+     * @param duration    the duration in nanoseconds
+     */
+    void observe(String[] labelValues, long duration);
+    
+    /**
+     * Resolve the series child of the label values, the child can be kept and recorded on directly.
+     *
+     * @param labelValues the label values
+     * @return the child
+     */
+    Child labels(String[] labelValues);
+    
+    /**
+     * Resolve the series child of one label value.
+     *
+     * @param v1 the label value
+     * @return the child
+     */
+    default Child labels(final String v1) {
+        return labels(new String[]{v1});
+    }
+    
+    /**
+     * Resolve the series child of two label values.
+     *
+     * @param v1 the first label value
+     * @param v2 the second label value
+     * @return the child
+     */
+    default Child labels(final String v1, final String v2) {
+        return labels(new String[]{v1, v2});
+    }
+    
+    /**
+     * Resolve the series child of three label values.
+     *
+     * @param v1 the first label value
+     * @param v2 the second label value
+     * @param v3 the third label value
+     * @return the child
+     */
+    default Child labels(final String v1, final String v2, final String v3) {
+        return labels(new String[]{v1, v2, v3});
+    }
+    
+    /**
+     * Resolve the series child of four label values.
+     *
+     * @param v1 the first label value
+     * @param v2 the second label value
+     * @param v3 the third label value
+     * @param v4 the fourth label value
+     * @return the child
+     */
+    default Child labels(final String v1, final String v2, final String v3, final String v4) {
+        return labels(new String[]{v1, v2, v3, v4});
+    }
+    
+    /**
+     * The interface Child, a single resolved series of the histogram.
+     */
+    interface Child {
+        
+        /**
+         * Observe.
+         *
+         * @param duration the duration in nanoseconds
+         */
+        void observe(long duration);
+        
+        /**
+         * Observe a duration that stands for a number of calls, when only one call out of that many was recorded.
+         *
+         * @param duration the duration in nanoseconds
+         * @param count    the number of calls the duration is counted for
+         */
+        void observe(long duration, int count);
+    }
+}
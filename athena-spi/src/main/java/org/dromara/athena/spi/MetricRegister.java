@@ -17,6 +17,8 @@
 
 package org.dromara.athena.spi;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * The interface Metric register.
  *
@@ -30,8 +32,10 @@ public interface MetricRegister {
      * @param name       the name
      * @param labelNames the label names
      * @param doc        the doc
+     * @param maxSeries  the max number of label series, 0 or less for no cap
+     * @return the gauge handle
      */
-    void registerGauge(String name, String[] labelNames, String doc);
+    GaugeMetric registerGauge(String name, String[] labelNames, String doc, int maxSeries);
     
     /**
      * Register counter.
@@ -39,58 +43,31 @@ public interface MetricRegister {
      * @param name       the name
      * @param labelNames the label names
      * @param doc        the doc
+     * @param maxSeries  the max number of label series, 0 or less for no cap
+     * @return the counter handle
      */
-    void registerCounter(String name, String[] labelNames, String doc);
+    CounterMetric registerCounter(String name, String[] labelNames, String doc, int maxSeries);
     
     /**
-     * Register histogram.
-     *
-     * @param name       the name
-     * @param labelNames the label names
-     * @param doc        the doc
-     */
-    void registerHistogram(String name, String[] labelNames, String doc);
-    
-    /**
-     * Counter inc.
+     * Register histogram, the durations are recorded in nanoseconds and exported in the unit of the histogram.
+     * When only one call out of {@code sampleEvery} is timed, the exported counts and sum are scaled back up by it.
      *
      * @param name        the name
-     * @param labelValues the label values
+     * @param labelNames  the label names
+     * @param doc         the doc
+     * @param maxSeries   the max number of label series, 0 or less for no cap
+     * @param unit        the unit the histogram is exported in
+     * @param buckets     the upper bounds of the buckets in the unit, ascending
+     * @param sampleEvery one call out of this many is recorded, 1 when every call is
+     * @return the histogram handle
      */
-    void counterInc(String name, String[] labelValues);
+    HistogramMetric registerHistogram(String name, String[] labelNames, String doc, int maxSeries, TimeUnit unit, double[] buckets, int sampleEvery);
     
     /**
-     * counterInc.
+     * Unregister a metric of any type, so it is no longer exported and its name can be registered again with another definition.
+     * The handles returned for it keep working but record into a metric that is not exported.
      *
-     * @param name        the name
-     * @param labelValues the label values
-     * @param count       the count
+     * @param name the name
      */
-    void counterInc(String name, String[] labelValues, long count);
-    
-    /**
-     * Record gauge inc.
-     *
-     * @param name        the name
-     * @param labelValues the label values
-     */
-    void gaugeInc(String name, String[] labelValues);
-    
-    /**
-     * Record gauge dec.
-     *
-     * @param name        the name
-     * @param labelValues the label values
-     */
-    void gaugeDec(String name, String[] labelValues);
-    
-    /**
-     * Record time.
-     *
-     * @param name        the name
-     * @param labelValues the label values
-     * @param duration    the duration
-     */
-    void recordTime(String name, String[] labelValues, long duration);
-
+    void unregister(String name);
 }
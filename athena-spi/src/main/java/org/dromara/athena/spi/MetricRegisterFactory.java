@@ -26,6 +26,13 @@ import java.util.Map;
  */
 public interface MetricRegisterFactory {
     
+    /**
+     * The name of the register, matched against the {@code register} key of the config map.
+     *
+     * @return the name
+     */
+    String getName();
+    
     /**
      * New instance metric register.
      *
@@ -29,14 +29,11 @@ public enum MetricsProvider {
      */
     INSTANCE;
     
-    private static MetricRegisterFactory metricRegisterFactory;
+    private static final String REGISTER_KEY = "register";
     
-    private Map<String, Object> configMap;
-    
-    static {
-        metricRegisterFactory = AthenaServiceLoader.getServiceLoader(MetricRegisterFactory.class).newServiceInstances().orElse(null);
-    }
+    private static final String DEFAULT_REGISTER = "prometheus";
     
+    private Map<String, Object> configMap;
     
     /**
      * Register config map.
@@ -47,12 +44,26 @@ public enum MetricsProvider {
         this.configMap = configMap;
     }
     
+    /**
+     * Gets the registered config map.
+     *
+     * @return the config map, null when none was registered
+     */
+    public Map<String, Object> getConfigMap() {
+        return configMap;
+    }
+    
     /**
      * Create metric system metric register.
      *
      * @return the metric register
      */
     public MetricRegister newInstance() {
+        Object register = null == configMap ? null : configMap.get(REGISTER_KEY);
+        String name = null == register ? DEFAULT_REGISTER : register.toString();
+        MetricRegisterFactory metricRegisterFactory = AthenaServiceLoader.getServiceLoader(MetricRegisterFactory.class)
+                .newServiceInstances(factory -> name.equals(factory.getName()))
+                .orElseThrow(() -> new IllegalStateException("can not find the metric register : " + name));
         return metricRegisterFactory.newInstance(configMap);
     }
     
@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.spi;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * The type Series cache, a lock free tree of label values to the series child of a metric.
+ * A lookup of a known series walks one map per label and does not allocate, the label array
+ * is only built when a new series is created.
+ * The number of series can be capped, label values beyond the cap are folded into a single
+ * {@value #OVERFLOW_VALUE} series so a label with unbounded values can not grow the heap.
+ * Up to as many folded label values as the cap are remembered in the tree and lead straight to the overflow series,
+ * so they are looked up like a known series and reported to the overflow listener once. The label values beyond
+ * that are not remembered, they are folded and reported again on each lookup.
+ *
+ * @param <C> the child type
+ * @author xiaoyu
+ */
+public final class SeriesCache<C> {
+
+    /**
+     * The label value of the series that takes the label values beyond the cap.
+     */
+    public static final String OVERFLOW_VALUE = "__overflow__";
+
+    private static final String NULL_VALUE = "null";
+
+    private final Function<String[], C> factory;
+
+    private final int maxSeries;
+
+    private final Runnable overflowListener;
+
+    private final ConcurrentMap<String, Object> root = new ConcurrentHashMap<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final AtomicInteger overflowSize = new AtomicInteger();
+
+    private volatile C noLabelsChild;
+
+    private volatile C overflowChild;
+
+    /**
+     * Instantiates a new Series cache without a cap.
+     *
+     * @param factory the child factory, called with null for the child of a metric without labels
+     */
+    public SeriesCache(final Function<String[], C> factory) {
+        this(factory, 0, null);
+    }
+
+    /**
+     * Instantiates a new Series cache.
+     *
+     * @param factory          the child factory, called with null for the child of a metric without labels
+     * @param maxSeries        the max number of series, 0 or less for no cap
+     * @param overflowListener called when label values are folded into the overflow series, once for the remembered ones, may be null
+     */
+    public SeriesCache(final Function<String[], C> factory, final int maxSeries, final Runnable overflowListener) {
+        this.factory = factory;
+        this.maxSeries = maxSeries;
+        this.overflowListener = overflowListener;
+    }
+
+    /**
+     * Get the child of a metric without labels.
+     *
+     * @return the child
+     */
+    public C get() {
+        C child = noLabelsChild;
+        if (null == child) {
+            synchronized (this) {
+                child = noLabelsChild;
+                if (null == child) {
+                    child = factory.apply(null);
+                    noLabelsChild = child;
+                }
+            }
+        }
+        return child;
+    }
+
+    /**
+     * Get the child of one label value.
+     *
+     * @param v1 the label value
+     * @return the child
+     */
+    @SuppressWarnings("unchecked")
+    public C get(final String v1) {
+        Object child = root.get(key(v1));
+        return null != child ? (C) child : create(new String[]{v1});
+    }
+
+    /**
+     * Get the child of two label values.
+     *
+     * @param v1 the first label value
+     * @param v2 the second label value
+     * @return the child
+     */
+    @SuppressWarnings("unchecked")
+    public C get(final String v1, final String v2) {
+        Object child = next(root.get(key(v1)), v2);
+        return null != child ? (C) child : create(new String[]{v1, v2});
+    }
+
+    /**
+     * Get the child of three label values.
+     *
+     * @param v1 the first label value
+     * @param v2 the second label value
+     * @param v3 the third label value
+     * @return the child
+     */
+    @SuppressWarnings("unchecked")
+    public C get(final String v1, final String v2, final String v3) {
+        Object child = next(next(root.get(key(v1)), v2), v3);
+        return null != child ? (C) child : create(new String[]{v1, v2, v3});
+    }
+
+    /**
+     * Get the child of four label values.
+     *
+     * @param v1 the first label value
+     * @param v2 the second label value
+     * @param v3 the third label value
+     * @param v4 the fourth label value
+     * @return the child
+     */
+    @SuppressWarnings("unchecked")
+    public C get(final String v1, final String v2, final String v3, final String v4) {
+        Object child = next(next(next(root.get(key(v1)), v2), v3), v4);
+        return null != child ? (C) child : create(new String[]{v1, v2, v3, v4});
+    }
+
+    /**
+     * Get the child of any number of label values.
+     *
+     * @param labelValues the label values, null or empty for a metric without labels
+     * @return the child
+     */
+    @SuppressWarnings("unchecked")
+    public C get(final String[] labelValues) {
+        if (null == labelValues || 0 == labelValues.length) {
+            return get();
+        }
+        Object node = root.get(key(labelValues[0]));
+        for (int i = 1; i < labelValues.length && null != node; i++) {
+            node = next(node, labelValues[i]);
+        }
+        return null != node ? (C) node : create(labelValues.clone());
+    }
+
+    /**
+     * Gets the number of series created, the overflow series is not counted.
+     *
+     * @return the size
+     */
+    public int size() {
+        return size.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private C create(final String[] labelValues) {
+        for (int i = 0; i < labelValues.length; i++) {
+            labelValues[i] = key(labelValues[i]);
+        }
+        if (isFull()) {
+            return overflow(labelValues);
+        }
+        ConcurrentMap<String, Object> node = root;
+        for (int i = 0; i < labelValues.length - 1; i++) {
+            node = (ConcurrentMap<String, Object>) node.computeIfAbsent(labelValues[i], k -> new ConcurrentHashMap<String, Object>());
+        }
+        C child = (C) node.computeIfAbsent(labelValues[labelValues.length - 1], k -> reserve() ? factory.apply(labelValues) : null);
+        return null != child ? child : overflow(labelValues);
+    }
+
+    private boolean isFull() {
+        return maxSeries > 0 && size.get() >= maxSeries;
+    }
+
+    private boolean reserve() {
+        if (size.incrementAndGet() > maxSeries && maxSeries > 0) {
+            size.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private C overflow(final String[] labelValues) {
+        C child = getOverflowChild(labelValues.length);
+        if (overflowSize.incrementAndGet() > maxSeries) {
+            overflowSize.decrementAndGet();
+            Object node = root;
+            for (int i = 0; i < labelValues.length && null != node; i++) {
+                node = ((ConcurrentMap<String, Object>) node).get(labelValues[i]);
+            }
+            if (null != node) {
+                // created or remembered by another thread before the caps were reached.
+                return (C) node;
+            }
+            fireOverflow();
+            return child;
+        }
+        ConcurrentMap<String, Object> node = root;
+        for (int i = 0; i < labelValues.length - 1; i++) {
+            node = (ConcurrentMap<String, Object>) node.computeIfAbsent(labelValues[i], k -> new ConcurrentHashMap<String, Object>());
+        }
+        Object existing = node.putIfAbsent(labelValues[labelValues.length - 1], child);
+        if (null != existing) {
+            // created or remembered by another thread before the cap was reached.
+            overflowSize.decrementAndGet();
+            return (C) existing;
+        }
+        fireOverflow();
+        return child;
+    }
+
+    private C getOverflowChild(final int labelCount) {
+        C child = overflowChild;
+        if (null == child) {
+            synchronized (this) {
+                child = overflowChild;
+                if (null == child) {
+                    String[] overflowValues = new String[labelCount];
+                    Arrays.fill(overflowValues, OVERFLOW_VALUE);
+                    child = factory.apply(overflowValues);
+                    overflowChild = child;
+                }
+            }
+        }
+        return child;
+    }
+
+    private void fireOverflow() {
+        if (null != overflowListener) {
+            overflowListener.run();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object next(final Object node, final String labelValue) {
+        return null == node ? null : ((ConcurrentMap<String, Object>) node).get(key(labelValue));
+    }
+
+    private static String key(final String labelValue) {
+        return null == labelValue ? NULL_VALUE : labelValue;
+    }
+}
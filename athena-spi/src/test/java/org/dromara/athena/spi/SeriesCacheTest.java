@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.spi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public final class SeriesCacheTest {
+    
+    private final List<String> created = new ArrayList<>();
+    
+    private final AtomicInteger overflows = new AtomicInteger();
+    
+    @Test
+    public void assertKnownSeries() {
+        SeriesCache<String> cache = new SeriesCache<>(this::create);
+        String child = cache.get("a", "b");
+        assertThat(cache.get("a", "b"), sameInstance(child));
+        assertThat(cache.get(new String[]{"a", "b"}), sameInstance(child));
+        assertThat(cache.get("a", null), is("[a, null]"));
+        assertThat(cache.get(), is("null"));
+        assertThat(cache.size(), is(2));
+        assertThat(created, is(Arrays.asList("[a, b]", "[a, null]", "null")));
+    }
+    
+    @Test
+    public void assertOverflowIsRemembered() {
+        SeriesCache<String> cache = new SeriesCache<>(this::create, 2, overflows::incrementAndGet);
+        assertThat(cache.get("a"), is("[a]"));
+        assertThat(cache.get("b"), is("[b]"));
+        String overflow = cache.get("c");
+        assertThat(overflow, is("[__overflow__]"));
+        assertThat(overflows.get(), is(1));
+        assertThat(cache.get("c"), sameInstance(overflow));
+        assertThat(cache.get(new String[]{"c"}), sameInstance(overflow));
+        assertThat(overflows.get(), is(1));
+        assertThat(cache.get("d"), sameInstance(overflow));
+        assertThat(overflows.get(), is(2));
+        assertThat(cache.get("a"), is("[a]"));
+        assertThat(cache.size(), is(2));
+        assertThat(created, is(Arrays.asList("[a]", "[b]", "[__overflow__]")));
+    }
+    
+    @Test
+    public void assertOverflowBeyondMemoIsNotRemembered() {
+        SeriesCache<String> cache = new SeriesCache<>(this::create, 1, overflows::incrementAndGet);
+        cache.get("a", "x");
+        String overflow = cache.get("b", "x");
+        assertThat(overflow, is("[__overflow__, __overflow__]"));
+        assertThat(cache.get("c", "x"), sameInstance(overflow));
+        assertThat(cache.get("c", "x"), sameInstance(overflow));
+        assertThat(cache.get("b", "x"), sameInstance(overflow));
+        assertThat(overflows.get(), is(3));
+        assertThat(cache.size(), is(1));
+    }
+    
+    private String create(final String[] labelValues) {
+        String result = null == labelValues ? "null" : Arrays.toString(labelValues);
+        created.add(result);
+        return result;
+    }
+}
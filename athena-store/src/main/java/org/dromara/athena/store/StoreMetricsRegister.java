@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.store;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.dromara.athena.exporter.MetricsExporter;
+import org.dromara.athena.spi.CounterMetric;
+import org.dromara.athena.spi.GaugeMetric;
+import org.dromara.athena.spi.HistogramMetric;
+import org.dromara.athena.spi.MetricRegister;
+import org.dromara.athena.store.collector.StoreCollector;
+import org.dromara.athena.store.memory.SlotArena;
+import org.dromara.athena.store.metric.AbstractStoreMetric;
+import org.dromara.athena.store.metric.StoreCounterMetric;
+import org.dromara.athena.store.metric.StoreGaugeMetric;
+import org.dromara.athena.store.metric.StoreHistogramMetric;
+
+/**
+ * The type Store metrics register, keeps the metrics in striped primitive slots, on or off heap,
+ * instead of the objects of the prometheus client, they are exported from the store at scrape time.
+ *
+ * <p>The config map keys are {@code offHeap} (default false) and {@code stripes}, the slots of a series are repeated
+ * once per stripe on their own cache lines, so a series costs {@code stripes * 64} bytes per cache line of slots, plus
+ * {@code stripes * 64} bytes on the heap, where a spare line keeps the stripes apart.
+ * The stripes default to the number of processors, rounded to a power of two and at most {@value #MAX_DEFAULT_STRIPES}.
+ *
+ * @author xiaoyu
+ */
+public class StoreMetricsRegister implements MetricRegister {
+    
+    private static final int MAX_DEFAULT_STRIPES = 8;
+    
+    private final Map<String, CounterMetric> counterMap = new ConcurrentHashMap<>();
+    
+    private final Map<String, GaugeMetric> gaugeMap = new ConcurrentHashMap<>();
+    
+    private final Map<String, HistogramMetric> histogramMap = new ConcurrentHashMap<>();
+    
+    private final Map<String, Object> configMap;
+    
+    private final SlotArena arena;
+    
+    private final int stripes;
+    
+    private final StoreCollector collector = new StoreCollector();
+    
+    private final CounterMetric seriesOverflow;
+    
+    /**
+     * Instantiates a new Store metrics register.
+     *
+     * @param configMap the config map
+     */
+    public StoreMetricsRegister(final Map<String, Object> configMap) {
+        this.configMap = configMap;
+        this.arena = new SlotArena(Boolean.parseBoolean(String.valueOf(configMap.get("offHeap"))));
+        this.stripes = stripes(configMap.get("stripes"));
+        this.seriesOverflow = registerCounter("athena_series_overflow_total", new String[]{"metric"},
+                "the distinct label values folded into the overflow series of a metric with a series cap", 0);
+        collector.register();
+        MetricsExporter.registerJvm(configMap);
+        startServer();
+    }
+    
+    @Override
+    public CounterMetric registerCounter(final String name, final String[] labelNames, final String doc, final int maxSeries) {
+        return counterMap.computeIfAbsent(name, key -> add(new StoreCounterMetric(name, labelNames, doc, stripes, arena, maxSeries, overflowListener(name, maxSeries))));
+    }
+    
+    @Override
+    public GaugeMetric registerGauge(final String name, final String[] labelNames, final String doc, final int maxSeries) {
+        return gaugeMap.computeIfAbsent(name, key -> add(new StoreGaugeMetric(name, labelNames, doc, stripes, arena, maxSeries, overflowListener(name, maxSeries))));
+    }
+    
+    @Override
+    public HistogramMetric registerHistogram(final String name, final String[] labelNames, final String doc, final int maxSeries,
+                                             final TimeUnit unit, final double[] buckets, final int sampleEvery) {
+        return histogramMap.computeIfAbsent(name, key -> add(new StoreHistogramMetric(name, labelNames, doc, unit, buckets, sampleEvery,
+                stripes, arena, maxSeries, overflowListener(name, maxSeries))));
+    }
+    
+    @Override
+    public void unregister(final String name) {
+        release(counterMap.remove(name));
+        release(gaugeMap.remove(name));
+        release(histogramMap.remove(name));
+        collector.remove(name);
+    }
+    
+    /**
+     * Start server.
+     */
+    public void startServer() {
+        InetSocketAddress address = MetricsExporter.startServer(configMap);
+        if (null != address) {
+            System.out.println("you start athena store metrics http server, port is : " + address.getPort() + " off heap : " + arena.isOffHeap());
+        }
+    }
+    
+    private <T extends AbstractStoreMetric<?>> T add(final T metric) {
+        collector.add(metric);
+        return metric;
+    }
+    
+    private static void release(final Object metric) {
+        // a probe still running the bytecode of before the reload may add to a reused block until its class is retransformed.
+        if (metric instanceof AbstractStoreMetric) {
+            ((AbstractStoreMetric<?>) metric).release();
+        }
+    }
+    
+    private Runnable overflowListener(final String name, final int maxSeries) {
+        if (maxSeries <= 0) {
+            return null;
+        }
+        CounterMetric.Child overflow = seriesOverflow.labels(name);
+        return overflow::inc;
+    }
+    
+    private static int stripes(final Object configured) {
+        int value = null == configured ? Math.min(MAX_DEFAULT_STRIPES, Runtime.getRuntime().availableProcessors()) : Integer.parseInt(configured.toString());
+        int result = 1;
+        while (result < value) {
+            result <<= 1;
+        }
+        return result;
+    }
+}
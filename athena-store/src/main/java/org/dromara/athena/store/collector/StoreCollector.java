@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.store.collector;
+
+import io.prometheus.client.Collector;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import org.dromara.athena.store.metric.AbstractStoreMetric;
+
+/**
+ * The type Store collector, exports the metric store at scrape time.
+ *
+ * @author xiaoyu
+ */
+public final class StoreCollector extends Collector {
+    
+    private final List<AbstractStoreMetric<?>> metrics = new CopyOnWriteArrayList<>();
+    
+    /**
+     * Add a metric to the export.
+     *
+     * @param metric the metric
+     */
+    public void add(final AbstractStoreMetric<?> metric) {
+        metrics.add(metric);
+    }
+    
+    /**
+     * Remove a metric from the export, the slots of its series are not reused.
+     *
+     * @param name the metric name
+     */
+    public void remove(final String name) {
+        metrics.removeIf(each -> each.getName().equals(name));
+    }
+    
+    @Override
+    public List<MetricFamilySamples> collect() {
+        return metrics.stream().map(AbstractStoreMetric::collect).collect(Collectors.toList());
+    }
+}
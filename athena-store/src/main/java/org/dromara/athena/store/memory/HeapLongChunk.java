@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.store.memory;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The type Heap long chunk, the slots are held in one long array of the heap.
+ *
+ * @author xiaoyu
+ */
+public final class HeapLongChunk implements LongChunk {
+    
+    private final AtomicLongArray slots;
+    
+    /**
+     * Instantiates a new Heap long chunk.
+     *
+     * @param capacity the number of slots
+     */
+    public HeapLongChunk(final int capacity) {
+        this.slots = new AtomicLongArray(capacity);
+    }
+    
+    @Override
+    public void add(final int index, final long delta) {
+        slots.getAndAdd(index, delta);
+    }
+    
+    @Override
+    public long get(final int index) {
+        return slots.get(index);
+    }
+    
+    @Override
+    public void clear(final int index, final int length) {
+        for (int i = index; i < index + length; i++) {
+            slots.set(i, 0L);
+        }
+    }
+    
+    @Override
+    public int capacity() {
+        return slots.length();
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.store.memory;
+
+/**
+ * The interface Long chunk, a fixed block of long slots that can be added to atomically.
+ *
+ * @author xiaoyu
+ */
+public interface LongChunk {
+    
+    /**
+     * Add to a slot.
+     *
+     * @param index the slot index
+     * @param delta the delta
+     */
+    void add(int index, long delta);
+    
+    /**
+     * Get the value of a slot.
+     *
+     * @param index the slot index
+     * @return the value
+     */
+    long get(int index);
+    
+    /**
+     * Set a range of slots to 0.
+     *
+     * @param index  the first slot index
+     * @param length the number of slots
+     */
+    void clear(int index, int length);
+    
+    /**
+     * Gets the number of slots.
+     *
+     * @return the capacity
+     */
+    int capacity();
+}
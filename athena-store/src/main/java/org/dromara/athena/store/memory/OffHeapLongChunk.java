@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.store.memory;
+
+/**
+ * The type Off heap long chunk, the slots are held in native memory aligned to a cache line.
+ * The memory lives as long as the agent, it is never freed.
+ *
+ * @author xiaoyu
+ */
+public final class OffHeapLongChunk implements LongChunk {
+    
+    private final long address;
+    
+    private final int capacity;
+    
+    /**
+     * Instantiates a new Off heap long chunk.
+     *
+     * @param capacity the number of slots
+     */
+    public OffHeapLongChunk(final int capacity) {
+        long bytes = (long) capacity << 3;
+        long allocated = UnsafeAccess.allocateMemory(bytes + SlotArena.CACHE_LINE_BYTES);
+        this.address = (allocated + SlotArena.CACHE_LINE_BYTES - 1) & -SlotArena.CACHE_LINE_BYTES;
+        this.capacity = capacity;
+        UnsafeAccess.setMemory(address, bytes, (byte) 0);
+    }
+    
+    @Override
+    public void add(final int index, final long delta) {
+        UnsafeAccess.getAndAddLong(address + ((long) index << 3), delta);
+    }
+    
+    @Override
+    public long get(final int index) {
+        return UnsafeAccess.getLongVolatile(address + ((long) index << 3));
+    }
+    
+    @Override
+    public void clear(final int index, final int length) {
+        UnsafeAccess.setMemory(address + ((long) index << 3), (long) length << 3, (byte) 0);
+    }
+    
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+}
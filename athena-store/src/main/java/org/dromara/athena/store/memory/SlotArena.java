@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.store.memory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The type Slot arena, hands out blocks of long slots carved from large chunks, on or off heap.
+ * A chunk is only allocated when the current one is full, so the heap cost of a series is the reference to its chunk
+ * and its offset. Chunks are never freed, a released block is kept by its size and handed out again before the current
+ * chunk is carved any further.
+ *
+ * <p>Off heap a chunk is aligned to a cache line and so is every block. The elements of a heap chunk start after the
+ * array header, on no particular line, so on the heap the chunk starts with a spare line and {@link #stride(int)} follows
+ * every stripe with another one: the slots of two stripes are always at least a line apart and never share one.
+ *
+ * @author xiaoyu
+ */
+public final class SlotArena {
+    
+    /**
+     * The bytes of a cache line.
+     */
+    public static final int CACHE_LINE_BYTES = 64;
+    
+    /**
+     * The long slots of a cache line.
+     */
+    public static final int CACHE_LINE_LONGS = CACHE_LINE_BYTES >> 3;
+    
+    private static final int CHUNK_LONGS = 1 << 17;
+    
+    private final boolean offHeap;
+    
+    private final Map<Integer, Deque<SlotBlock>> released = new HashMap<>();
+    
+    private LongChunk current;
+    
+    private int position;
+    
+    /**
+     * Instantiates a new Slot arena.
+     *
+     * @param offHeap whether the slots are kept in native memory
+     */
+    public SlotArena(final boolean offHeap) {
+        this.offHeap = offHeap && UnsafeAccess.isAvailable();
+    }
+    
+    /**
+     * Round the number of slots up to whole cache lines.
+     *
+     * @param longs the number of slots
+     * @return the padded number of slots
+     */
+    public static int pad(final int longs) {
+        return (longs + CACHE_LINE_LONGS - 1) / CACHE_LINE_LONGS * CACHE_LINE_LONGS;
+    }
+    
+    /**
+     * The distance between two stripes of a series, whole cache lines and one spare line more on the heap.
+     *
+     * @param slots the slots of one stripe
+     * @return the stride
+     */
+    public int stride(final int slots) {
+        return offHeap ? pad(slots) : pad(slots) + CACHE_LINE_LONGS;
+    }
+    
+    /**
+     * Allocate a block of slots, all set to 0.
+     *
+     * @param longs the number of slots, a multiple of {@link #CACHE_LINE_LONGS}
+     * @return the block
+     */
+    public synchronized SlotBlock allocate(final int longs) {
+        Deque<SlotBlock> free = released.get(longs);
+        if (null != free && !free.isEmpty()) {
+            SlotBlock reused = free.pop();
+            reused.getChunk().clear(reused.getBase(), longs);
+            return reused;
+        }
+        if (null == current || position + longs > current.capacity()) {
+            int leading = offHeap ? 0 : CACHE_LINE_LONGS;
+            current = newChunk(Math.max(CHUNK_LONGS, leading + longs));
+            position = leading;
+        }
+        SlotBlock result = new SlotBlock(current, position);
+        position += longs;
+        return result;
+    }
+    
+    /**
+     * Release a block nothing records into any more, a later allocation of the same size reuses it.
+     *
+     * @param block the block
+     * @param longs the number of slots it was allocated with
+     */
+    public synchronized void release(final SlotBlock block, final int longs) {
+        released.computeIfAbsent(longs, key -> new ArrayDeque<>()).push(block);
+    }
+    
+    /**
+     * Whether the slots are kept in native memory.
+     *
+     * @return the boolean
+     */
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+    
+    private LongChunk newChunk(final int longs) {
+        return offHeap ? new OffHeapLongChunk(longs) : new HeapLongChunk(longs);
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.store.memory;
+
+/**
+ * The type Slot block, the position of a block of slots in a chunk.
+ *
+ * @author xiaoyu
+ */
+public final class SlotBlock {
+    
+    private final LongChunk chunk;
+    
+    private final int base;
+    
+    /**
+     * Instantiates a new Slot block.
+     *
+     * @param chunk the chunk
+     * @param base  the index of the first slot
+     */
+    SlotBlock(final LongChunk chunk, final int base) {
+        this.chunk = chunk;
+        this.base = base;
+    }
+    
+    /**
+     * Gets chunk.
+     *
+     * @return the chunk
+     */
+    public LongChunk getChunk() {
+        return chunk;
+    }
+    
+    /**
+     * Gets base.
+     *
+     * @return the base
+     */
+    public int getBase() {
+        return base;
+    }
+}
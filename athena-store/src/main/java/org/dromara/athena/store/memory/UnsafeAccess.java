@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.store.memory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+/**
+ * The type Unsafe access, the native memory operations of {@code sun.misc.Unsafe}. The class is looked up by name
+ * and called through method handles bound to its instance, so the build has no warning about the internal API
+ * and a jvm without it only loses the off heap chunks.
+ *
+ * @author xiaoyu
+ */
+public final class UnsafeAccess {
+    
+    private static final MethodHandle ALLOCATE_MEMORY;
+    
+    private static final MethodHandle SET_MEMORY;
+    
+    private static final MethodHandle GET_AND_ADD_LONG;
+    
+    private static final MethodHandle GET_LONG_VOLATILE;
+    
+    static {
+        MethodHandle allocateMemory = null;
+        MethodHandle setMemory = null;
+        MethodHandle getAndAddLong = null;
+        MethodHandle getLongVolatile = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            Object unsafe = field.get(null);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            allocateMemory = lookup.findVirtual(unsafeClass, "allocateMemory", MethodType.methodType(long.class, long.class)).bindTo(unsafe);
+            setMemory = lookup.findVirtual(unsafeClass, "setMemory", MethodType.methodType(void.class, long.class, long.class, byte.class)).bindTo(unsafe);
+            // the null base object makes the offset an absolute address.
+            getAndAddLong = MethodHandles.insertArguments(lookup.findVirtual(unsafeClass, "getAndAddLong",
+                    MethodType.methodType(long.class, Object.class, long.class, long.class)).bindTo(unsafe), 0, (Object) null);
+            getLongVolatile = MethodHandles.insertArguments(lookup.findVirtual(unsafeClass, "getLongVolatile",
+                    MethodType.methodType(long.class, Object.class, long.class)).bindTo(unsafe), 0, (Object) null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            allocateMemory = null;
+        }
+        ALLOCATE_MEMORY = allocateMemory;
+        SET_MEMORY = setMemory;
+        GET_AND_ADD_LONG = getAndAddLong;
+        GET_LONG_VOLATILE = getLongVolatile;
+    }
+    
+    private UnsafeAccess() {
+    }
+    
+    /**
+     * Whether native memory can be used.
+     *
+     * @return the boolean
+     */
+    public static boolean isAvailable() {
+        return null != ALLOCATE_MEMORY;
+    }
+    
+    // CHECKSTYLE:OFF an exact invocation declares Throwable, the errors and runtime exceptions are thrown again as they are.
+    
+    /**
+     * Allocate native memory, it is never freed.
+     *
+     * @param bytes the bytes
+     * @return the address
+     */
+    public static long allocateMemory(final long bytes) {
+        checkAvailable();
+        try {
+            return (long) ALLOCATE_MEMORY.invokeExact(bytes);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Set a range of native memory to a value.
+     *
+     * @param address the address
+     * @param bytes   the bytes
+     * @param value   the value
+     */
+    public static void setMemory(final long address, final long bytes, final byte value) {
+        try {
+            SET_MEMORY.invokeExact(address, bytes, value);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Atomically add to the long at an address.
+     *
+     * @param address the address
+     * @param delta   the delta
+     * @return the previous value
+     */
+    public static long getAndAddLong(final long address, final long delta) {
+        try {
+            return (long) GET_AND_ADD_LONG.invokeExact(address, delta);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    /**
+     * Read the long at an address with volatile semantics.
+     *
+     * @param address the address
+     * @return the value
+     */
+    public static long getLongVolatile(final long address) {
+        try {
+            return (long) GET_LONG_VOLATILE.invokeExact(address);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    // CHECKSTYLE:ON
+    
+    private static void checkAvailable() {
+        if (!isAvailable()) {
+            throw new IllegalStateException("sun.misc.Unsafe is not available, off heap memory can not be used");
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.store.metric;
+
+import io.prometheus.client.Collector.MetricFamilySamples;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import org.dromara.athena.spi.SeriesCache;
+import org.dromara.athena.store.memory.SlotArena;
+import org.dromara.athena.store.memory.SlotBlock;
+
+/**
+ * The type Abstract store metric, indexes the series of a metric by their label tuple and keeps them in a list
+ * for the scrape. Looking up a known series is lock free, only the creation of a series takes the lock.
+ *
+ * @param <S> the series type
+ * @author xiaoyu
+ */
+public abstract class AbstractStoreMetric<S extends StoreSeries> {
+    
+    private static final String[] NO_LABELS = new String[0];
+    
+    private final String name;
+    
+    private final String doc;
+    
+    private final List<String> labelNames;
+    
+    private final SeriesLayout layout;
+    
+    private final SlotArena arena;
+    
+    private final SeriesCache<S> children;
+    
+    private volatile StoreSeries[] series = new StoreSeries[16];
+    
+    private volatile int size;
+    
+    private boolean released;
+    
+    /**
+     * Instantiates a new Abstract store metric.
+     *
+     * @param name             the name
+     * @param labelNames       the label names, may be null
+     * @param doc              the doc
+     * @param layout           the series layout
+     * @param arena            the slot arena
+     * @param maxSeries        the max number of series, 0 or less for no cap
+     * @param overflowListener called when label values are folded into the overflow series, may be null
+     */
+    protected AbstractStoreMetric(final String name, final String[] labelNames, final String doc, final SeriesLayout layout,
+                                  final SlotArena arena, final int maxSeries, final Runnable overflowListener) {
+        this.name = name;
+        this.doc = doc;
+        this.labelNames = null == labelNames ? Collections.emptyList() : Arrays.asList(labelNames);
+        this.layout = layout;
+        this.arena = arena;
+        this.children = new SeriesCache<>(this::create, maxSeries, overflowListener);
+    }
+    
+    /**
+     * Gets name.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Gets doc.
+     *
+     * @return the doc
+     */
+    public String getDoc() {
+        return doc;
+    }
+    
+    /**
+     * Gets label names.
+     *
+     * @return the label names
+     */
+    public List<String> getLabelNames() {
+        return labelNames;
+    }
+    
+    /**
+     * Gets the series cache.
+     *
+     * @return the children
+     */
+    protected SeriesCache<S> getChildren() {
+        return children;
+    }
+    
+    /**
+     * Read the metric for a scrape.
+     *
+     * @return the metric family samples
+     */
+    public abstract MetricFamilySamples collect();
+    
+    /**
+     * New series.
+     *
+     * @param block       the slot block of the series
+     * @param layout      the series layout
+     * @param labelValues the label values
+     * @return the series
+     */
+    protected abstract S newSeries(SlotBlock block, SeriesLayout layout, String[] labelValues);
+    
+    /**
+     * Visit every series created so far.
+     *
+     * @param consumer the consumer
+     */
+    @SuppressWarnings("unchecked")
+    protected void forEachSeries(final Consumer<S> consumer) {
+        int current = size;
+        StoreSeries[] snapshot = series;
+        for (int i = 0; i < current; i++) {
+            consumer.accept((S) snapshot[i]);
+        }
+    }
+    
+    /**
+     * Hand the slots of every series back to the arena once the metric is unregistered.
+     */
+    public synchronized void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        for (int i = 0; i < size; i++) {
+            arena.release(series[i].getBlock(), layout.getBlockLongs());
+        }
+    }
+    
+    private synchronized S create(final String[] labelValues) {
+        S result = newSeries(arena.allocate(layout.getBlockLongs()), layout, null == labelValues ? NO_LABELS : labelValues);
+        StoreSeries[] current = series;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, current.length << 1);
+        }
+        current[size] = result;
+        series = current;
+        size = size + 1;
+        return result;
+    }
+}
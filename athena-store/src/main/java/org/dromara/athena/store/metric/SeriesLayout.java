@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.store.metric;
+
+import org.dromara.athena.store.memory.SlotArena;
+
+/**
+ * The type Series layout, the slots of a series are repeated once per stripe and the stripes are spaced by the
+ * {@link SlotArena#stride(int)} of the arena, so threads recording on the same series do not write to the same line.
+ *
+ * @author xiaoyu
+ */
+public final class SeriesLayout {
+    
+    private final int stripes;
+    
+    private final int stride;
+    
+    /**
+     * Instantiates a new Series layout.
+     *
+     * @param slots   the slots of one stripe
+     * @param stripes the stripes, a power of two
+     * @param arena   the arena the series are allocated from
+     */
+    public SeriesLayout(final int slots, final int stripes, final SlotArena arena) {
+        this.stripes = stripes;
+        this.stride = arena.stride(slots);
+    }
+    
+    /**
+     * Gets stripes.
+     *
+     * @return the stripes
+     */
+    public int getStripes() {
+        return stripes;
+    }
+    
+    /**
+     * Gets the distance between two stripes of a series.
+     *
+     * @return the stride
+     */
+    public int getStride() {
+        return stride;
+    }
+    
+    /**
+     * Gets the slots of a whole series.
+     *
+     * @return the block longs
+     */
+    public int getBlockLongs() {
+        return stride * stripes;
+    }
+}
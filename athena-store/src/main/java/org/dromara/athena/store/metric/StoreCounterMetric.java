@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.store.metric;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples;
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.dromara.athena.spi.CounterMetric;
+import org.dromara.athena.store.memory.SlotArena;
+import org.dromara.athena.store.memory.SlotBlock;
+
+/**
+ * The type Store counter metric.
+ *
+ * @author xiaoyu
+ */
+public final class StoreCounterMetric extends AbstractStoreMetric<StoreCounterMetric.CounterSeries> implements CounterMetric {
+    
+    /**
+     * Instantiates a new Store counter metric.
+     *
+     * @param name             the name
+     * @param labelNames       the label names
+     * @param doc              the doc
+     * @param stripes          the stripes
+     * @param arena            the slot arena
+     * @param maxSeries        the max number of series, 0 or less for no cap
+     * @param overflowListener called when label values are folded into the overflow series, may be null
+     */
+    public StoreCounterMetric(final String name, final String[] labelNames, final String doc, final int stripes,
+                              final SlotArena arena, final int maxSeries, final Runnable overflowListener) {
+        super(name, labelNames, doc, new SeriesLayout(1, stripes, arena), arena, maxSeries, overflowListener);
+    }
+    
+    @Override
+    public void inc(final String[] labelValues) {
+        getChildren().get(labelValues).inc();
+    }
+    
+    @Override
+    public void inc(final String[] labelValues, final long count) {
+        getChildren().get(labelValues).inc(count);
+    }
+    
+    @Override
+    public Child labels(final String[] labelValues) {
+        return getChildren().get(labelValues);
+    }
+    
+    @Override
+    public Child labels(final String v1) {
+        return getChildren().get(v1);
+    }
+    
+    @Override
+    public Child labels(final String v1, final String v2) {
+        return getChildren().get(v1, v2);
+    }
+    
+    @Override
+    public Child labels(final String v1, final String v2, final String v3) {
+        return getChildren().get(v1, v2, v3);
+    }
+    
+    @Override
+    public Child labels(final String v1, final String v2, final String v3, final String v4) {
+        return getChildren().get(v1, v2, v3, v4);
+    }
+    
+    @Override
+    public MetricFamilySamples collect() {
+        List<Sample> samples = new ArrayList<>();
+        forEachSeries(series -> samples.add(new Sample(getName(), getLabelNames(), Arrays.asList(series.getLabelValues()), series.sum(0))));
+        return new MetricFamilySamples(getName(), Collector.Type.COUNTER, getDoc(), samples);
+    }
+    
+    @Override
+    protected CounterSeries newSeries(final SlotBlock block, final SeriesLayout layout, final String[] labelValues) {
+        return new CounterSeries(block, layout, labelValues);
+    }
+    
+    static final class CounterSeries extends StoreSeries implements CounterMetric.Child {
+        
+        CounterSeries(final SlotBlock block, final SeriesLayout layout, final String[] labelValues) {
+            super(block, layout, labelValues);
+        }
+        
+        @Override
+        public void inc() {
+            add(0, 1);
+        }
+        
+        @Override
+        public void inc(final long count) {
+            add(0, count);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.store.metric;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples;
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.dromara.athena.spi.GaugeMetric;
+import org.dromara.athena.store.memory.SlotArena;
+import org.dromara.athena.store.memory.SlotBlock;
+
+/**
+ * The type Store gauge metric.
+ *
+ * @author xiaoyu
+ */
+public final class StoreGaugeMetric extends AbstractStoreMetric<StoreGaugeMetric.GaugeSeries> implements GaugeMetric {
+    
+    /**
+     * Instantiates a new Store gauge metric.
+     *
+     * @param name             the name
+     * @param labelNames       the label names
+     * @param doc              the doc
+     * @param stripes          the stripes
+     * @param arena            the slot arena
+     * @param maxSeries        the max number of series, 0 or less for no cap
+     * @param overflowListener called when label values are folded into the overflow series, may be null
+     */
+    public StoreGaugeMetric(final String name, final String[] labelNames, final String doc, final int stripes,
+                              final SlotArena arena, final int maxSeries, final Runnable overflowListener) {
+        super(name, labelNames, doc, new SeriesLayout(1, stripes, arena), arena, maxSeries, overflowListener);
+    }
+    
+    @Override
+    public void inc(final String[] labelValues) {
+        getChildren().get(labelValues).inc();
+    }
+    
+    @Override
+    public void dec(final String[] labelValues) {
+        getChildren().get(labelValues).dec();
+    }
+    
+    @Override
+    public Child labels(final String[] labelValues) {
+        return getChildren().get(labelValues);
+    }
+    
+    @Override
+    public Child labels(final String v1) {
+        return getChildren().get(v1);
+    }
+    
+    @Override
+    public Child labels(final String v1, final String v2) {
+        return getChildren().get(v1, v2);
+    }
+    
+    @Override
+    public Child labels(final String v1, final String v2, final String v3) {
+        return getChildren().get(v1, v2, v3);
+    }
+    
+    @Override
+    public Child labels(final String v1, final String v2, final String v3, final String v4) {
+        return getChildren().get(v1, v2, v3, v4);
+    }
+    
+    @Override
+    public MetricFamilySamples collect() {
+        List<Sample> samples = new ArrayList<>();
+        forEachSeries(series -> samples.add(new Sample(getName(), getLabelNames(), Arrays.asList(series.getLabelValues()), series.sum(0))));
+        return new MetricFamilySamples(getName(), Collector.Type.GAUGE, getDoc(), samples);
+    }
+    
+    @Override
+    protected GaugeSeries newSeries(final SlotBlock block, final SeriesLayout layout, final String[] labelValues) {
+        return new GaugeSeries(block, layout, labelValues);
+    }
+    
+    static final class GaugeSeries extends StoreSeries implements GaugeMetric.Child {
+        
+        GaugeSeries(final SlotBlock block, final SeriesLayout layout, final String[] labelValues) {
+            super(block, layout, labelValues);
+        }
+        
+        @Override
+        public void inc() {
+            add(0, 1);
+        }
+        
+        @Override
+        public void dec() {
+            add(0, -1);
+        }
+        
+        @Override
+        public void add(final long delta) {
+            add(0, delta);
+        }
+    }
+}
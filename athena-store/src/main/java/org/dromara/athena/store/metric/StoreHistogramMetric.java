@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.store.metric;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.Collector.MetricFamilySamples;
+import io.prometheus.client.Collector.MetricFamilySamples.Sample;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.dromara.athena.spi.HistogramMetric;
+import org.dromara.athena.store.memory.SlotArena;
+import org.dromara.athena.store.memory.SlotBlock;
+
+/**
+ * The type Store histogram metric. The bucket bounds are converted to nanoseconds once, so a duration is recorded
+ * as it was measured without any conversion. A series keeps one slot per bucket, one for the durations above the
+ * last bucket and one for the sum in nanoseconds, the buckets are made cumulative and the sum converted to the unit
+ * of the histogram at scrape time.
+ *
+ * @author xiaoyu
+ */
+public final class StoreHistogramMetric extends AbstractStoreMetric<StoreHistogramMetric.HistogramSeries> implements HistogramMetric {
+    
+    private static final String LE = "le";
+    
+    private final long[] buckets;
+    
+    private final double nanosPerUnit;
+    
+    private final int sampleEvery;
+    
+    private final List<String> bucketLabelNames;
+    
+    private final List<String> bucketLabelValues;
+    
+    /**
+     * Instantiates a new Store histogram metric.
+     *
+     * @param name             the name
+     * @param labelNames       the label names
+     * @param doc              the doc
+     * @param unit             the unit of the histogram
+     * @param buckets          the upper bounds of the buckets in the unit, ascending
+     * @param sampleEvery      one call out of this many is recorded, the counts and sum are scaled up by it
+     * @param stripes          the stripes
+     * @param arena            the slot arena
+     * @param maxSeries        the max number of series, 0 or less for no cap
+     * @param overflowListener called when label values are folded into the overflow series, may be null
+     */
+    public StoreHistogramMetric(final String name, final String[] labelNames, final String doc, final TimeUnit unit, final double[] buckets, final int sampleEvery,
+                                final int stripes, final SlotArena arena, final int maxSeries, final Runnable overflowListener) {
+        super(name, labelNames, doc, new SeriesLayout(buckets.length + 2, stripes, arena), arena, maxSeries, overflowListener);
+        this.nanosPerUnit = unit.toNanos(1);
+        this.sampleEvery = sampleEvery;
+        this.buckets = new long[buckets.length];
+        this.bucketLabelNames = new ArrayList<>(getLabelNames());
+        this.bucketLabelNames.add(LE);
+        this.bucketLabelValues = new ArrayList<>(buckets.length + 1);
+        for (int i = 0; i < buckets.length; i++) {
+            this.buckets[i] = (long) Math.ceil(buckets[i] * nanosPerUnit);
+            if (i > 0 && this.buckets[i] <= this.buckets[i - 1]) {
+                throw new IllegalArgumentException("histogram " + name + " buckets are closer than a nanosecond");
+            }
+            bucketLabelValues.add(Collector.doubleToGoString(buckets[i]));
+        }
+        bucketLabelValues.add(Collector.doubleToGoString(Double.POSITIVE_INFINITY));
+    }
+    
+    @Override
+    public void observe(final String[] labelValues, final long duration) {
+        getChildren().get(labelValues).observe(duration);
+    }
+    
+    @Override
+    public Child labels(final String[] labelValues) {
+        return getChildren().get(labelValues);
+    }
+    
+    @Override
+    public Child labels(final String v1) {
+        return getChildren().get(v1);
+    }
+    
+    @Override
+    public Child labels(final String v1, final String v2) {
+        return getChildren().get(v1, v2);
+    }
+    
+    @Override
+    public Child labels(final String v1, final String v2, final String v3) {
+        return getChildren().get(v1, v2, v3);
+    }
+    
+    @Override
+    public Child labels(final String v1, final String v2, final String v3, final String v4) {
+        return getChildren().get(v1, v2, v3, v4);
+    }
+    
+    @Override
+    public MetricFamilySamples collect() {
+        List<Sample> samples = new ArrayList<>();
+        forEachSeries(series -> {
+            List<String> labelValues = Arrays.asList(series.getLabelValues());
+            long count = 0;
+            for (int i = 0; i <= buckets.length; i++) {
+                count += series.sum(i) * sampleEvery;
+                List<String> values = new ArrayList<>(labelValues);
+                values.add(bucketLabelValues.get(i));
+                samples.add(new Sample(getName() + "_bucket", bucketLabelNames, values, count));
+            }
+            samples.add(new Sample(getName() + "_count", getLabelNames(), labelValues, count));
+            samples.add(new Sample(getName() + "_sum", getLabelNames(), labelValues, series.sum(buckets.length + 1) * sampleEvery / nanosPerUnit));
+        });
+        return new MetricFamilySamples(getName(), Collector.Type.HISTOGRAM, getDoc(), samples);
+    }
+    
+    @Override
+    protected HistogramSeries newSeries(final SlotBlock block, final SeriesLayout layout, final String[] labelValues) {
+        return new HistogramSeries(block, layout, labelValues, buckets);
+    }
+    
+    static final class HistogramSeries extends StoreSeries implements HistogramMetric.Child {
+        
+        private final long[] buckets;
+        
+        HistogramSeries(final SlotBlock block, final SeriesLayout layout, final String[] labelValues, final long[] buckets) {
+            super(block, layout, labelValues);
+            this.buckets = buckets;
+        }
+        
+        @Override
+        public void observe(final long duration) {
+            observe(duration, 1);
+        }
+        
+        @Override
+        public void observe(final long duration, final int count) {
+            int bucket = 0;
+            while (bucket < buckets.length && duration > buckets[bucket]) {
+                bucket++;
+            }
+            add(bucket, count);
+            add(buckets.length + 1, duration * count);
+        }
+    }
+}
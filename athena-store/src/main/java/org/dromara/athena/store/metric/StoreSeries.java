@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.dromara.athena.store.metric;
+
+import org.dromara.athena.store.memory.LongChunk;
+import org.dromara.athena.store.memory.SlotBlock;
+
+/**
+ * The type Store series, one label tuple of a metric and the position of its slots.
+ * A thread always records on the stripe picked by its id, a scrape sums the stripes.
+ *
+ * @author xiaoyu
+ */
+public abstract class StoreSeries {
+    
+    private final SlotBlock block;
+    
+    private final LongChunk chunk;
+    
+    private final int base;
+    
+    private final int stride;
+    
+    private final int stripes;
+    
+    private final String[] labelValues;
+    
+    /**
+     * Instantiates a new Store series.
+     *
+     * @param block       the slot block
+     * @param layout      the layout
+     * @param labelValues the label values
+     */
+    protected StoreSeries(final SlotBlock block, final SeriesLayout layout, final String[] labelValues) {
+        this.block = block;
+        this.chunk = block.getChunk();
+        this.base = block.getBase();
+        this.stride = layout.getStride();
+        this.stripes = layout.getStripes();
+        this.labelValues = labelValues;
+    }
+    
+    /**
+     * Gets label values.
+     *
+     * @return the label values
+     */
+    public String[] getLabelValues() {
+        return labelValues;
+    }
+    
+    /**
+     * Gets block.
+     *
+     * @return the block
+     */
+    SlotBlock getBlock() {
+        return block;
+    }
+    
+    /**
+     * Add to a slot of the stripe of the current thread.
+     *
+     * @param slot  the slot
+     * @param delta the delta
+     */
+    protected final void add(final int slot, final long delta) {
+        int stripe = (int) Thread.currentThread().getId() & (stripes - 1);
+        chunk.add(base + stripe * stride + slot, delta);
+    }
+    
+    /**
+     * Sum a slot over all stripes.
+     *
+     * @param slot the slot
+     * @return the sum
+     */
+    protected final long sum(final int slot) {
+        long result = 0;
+        for (int i = 0; i < stripes; i++) {
+            result += chunk.get(base + i * stride + slot);
+        }
+        return result;
+    }
+}